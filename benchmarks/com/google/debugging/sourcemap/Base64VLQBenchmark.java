@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.debugging.sourcemap;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Base64VLQ} encoding and decoding of values distributed like the deltas of a
+ * source map: mostly small, sometimes large, of either sign.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class Base64VLQBenchmark {
+  private static final int VALUE_COUNT = 10000;
+
+  private int[] values;
+  private String encoded;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(20170101L);
+    values = new int[VALUE_COUNT];
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      int magnitude = random.nextInt(10) == 0 ? 100000 : 64;
+      values[i] = random.nextInt(2 * magnitude) - magnitude;
+    }
+    encoded = encode();
+  }
+
+  @Benchmark
+  public String encode() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int value : values) {
+      Base64VLQ.encode(sb, value);
+    }
+    return sb.toString();
+  }
+
+  @Benchmark
+  public int decode() {
+    StringCharIterator it = new StringCharIterator(encoded);
+    int sum = 0;
+    while (it.hasNext()) {
+      sum += Base64VLQ.decode(it);
+    }
+    return sum;
+  }
+
+  private static final class StringCharIterator implements Base64VLQ.CharIterator {
+    private final String content;
+    private int current = 0;
+
+    StringCharIterator(String content) {
+      this.content = content;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return current < content.length();
+    }
+
+    @Override
+    public char next() {
+      return content.charAt(current++);
+    }
+  }
+}
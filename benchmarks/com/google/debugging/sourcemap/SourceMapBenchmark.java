@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.debugging.sourcemap;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing a source map with {@link SourceMapGeneratorV3#appendTo} and reading it back
+ * with {@link SourceMapConsumerV3#parse}, for a generated map shaped like that of a compiled
+ * program: many inputs, about a third of the mappings named.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SourceMapBenchmark {
+  private static final int SOURCE_COUNT = 50;
+  private static final int MAPPINGS_PER_LINE = 20;
+
+  @Param({"1000", "10000"})
+  public int lineCount;
+
+  private SourceMapGeneratorV3 generator;
+  private String sourceMap;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(20170101L);
+    generator = new SourceMapGeneratorV3();
+    for (int line = 0; line < lineCount; line++) {
+      int column = 0;
+      for (int i = 0; i < MAPPINGS_PER_LINE; i++) {
+        int length = 1 + random.nextInt(20);
+        generator.addMapping(
+            "input" + random.nextInt(SOURCE_COUNT) + ".js",
+            random.nextInt(3) == 0 ? "name" + random.nextInt(1000) : null,
+            new FilePosition(random.nextInt(5000), random.nextInt(80)),
+            new FilePosition(line, column),
+            new FilePosition(line, column + length));
+        column += length;
+      }
+    }
+    sourceMap = appendTo();
+  }
+
+  @Benchmark
+  public String appendTo() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    generator.appendTo(sb, "output.js");
+    return sb.toString();
+  }
+
+  @Benchmark
+  public SourceMapConsumerV3 parse() throws SourceMapParseException {
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(sourceMap);
+    return consumer;
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import com.google.javascript.rhino.Node;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The JavaScript code that the benchmarks compile.
+ *
+ * <p>There are two corpora:
+ *
+ * <ul>
+ *   <li>{@code externs}: the checked-in browser externs, large files of JSDoc-heavy declarations.
+ *   <li>{@code generated}: Closure-style code (namespaces, constructors with typed JSDoc, class
+ *       hierarchies, methods with loops, branches and foldable constants), generated from a fixed
+ *       seed so that every run sees the same code.
+ * </ul>
+ */
+final class BenchmarkCorpus {
+  static final String EXTERNS = "externs";
+  static final String GENERATED = "generated";
+
+  /** The number of files of the generated corpus, unless a benchmark asks for another size. */
+  static final int DEFAULT_FILE_COUNT = 50;
+
+  private static final long SEED = 20170101L;
+  private static final int CLASSES_PER_FILE = 5;
+  private static final int METHODS_PER_CLASS = 4;
+  private static final int STATEMENTS_PER_METHOD = 8;
+
+  private BenchmarkCorpus() {}
+
+  /** Returns the corpus of the given name, with the default size. */
+  static List<SourceFile> get(String name) {
+    switch (name) {
+      case EXTERNS:
+        return getExterns();
+      case GENERATED:
+        return generate(DEFAULT_FILE_COUNT);
+      default:
+        throw new IllegalArgumentException("Unknown corpus: " + name);
+    }
+  }
+
+  /** Returns the default browser externs. */
+  static List<SourceFile> getExterns() {
+    try {
+      return CommandLineRunner.getBuiltinExterns(CompilerOptions.Environment.BROWSER);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Returns a generated corpus of the given number of files. */
+  static List<SourceFile> generate(int fileCount) {
+    Random random = new Random(SEED);
+    List<SourceFile> files = new ArrayList<>();
+    for (int i = 0; i < fileCount; i++) {
+      files.add(SourceFile.fromCode("generated" + i + ".js", generateFile(i, random)));
+    }
+    return files;
+  }
+
+  /** Returns the code of the given files, in the same order. */
+  static List<String> getCode(List<SourceFile> files) {
+    List<String> code = new ArrayList<>();
+    for (SourceFile file : files) {
+      try {
+        code.add(file.getCode());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return code;
+  }
+
+  /** Returns options for the ES5 code of the corpora, with no passes enabled. */
+  static CompilerOptions createOptions() {
+    CompilerOptions options = new CompilerOptions();
+    options.setLanguageIn(LanguageMode.ECMASCRIPT5);
+    options.setLanguageOut(LanguageMode.ECMASCRIPT5);
+    return options;
+  }
+
+  /**
+   * Returns a compiler that parsed the given externs and inputs. Fails if they do not parse
+   * cleanly, so that a benchmark never measures error recovery.
+   */
+  static Compiler parse(CompilerOptions options, List<SourceFile> externs, List<SourceFile> inputs) {
+    Compiler compiler = new Compiler();
+    compiler.disableThreads();
+    compiler.init(externs, inputs, options);
+    Node root = compiler.parseInputs();
+    checkState(root != null && compiler.getErrorCount() == 0, Arrays.toString(compiler.getErrors()));
+    return compiler;
+  }
+
+  /**
+   * Returns a compiler that parsed the given inputs, with no externs. Inputs that are annotated
+   * with {@code @externs} end up under the externs root, so benchmarks of the whole corpus work on
+   * {@link Compiler#getRoot}.
+   */
+  static Compiler parse(List<SourceFile> inputs) {
+    return parse(createOptions(), ImmutableList.<SourceFile>of(), inputs);
+  }
+
+  private static String generateFile(int fileIndex, Random random) {
+    StringBuilder sb = new StringBuilder();
+    String ns = "ns" + fileIndex;
+    sb.append("/** @const */\nvar ").append(ns).append(" = {};\n\n");
+    for (int c = 0; c < CLASSES_PER_FILE; c++) {
+      String className = ns + ".Class" + c;
+      String superClassName = c > 0 ? ns + ".Class" + (c - 1) : null;
+      sb.append("/**\n * @param {number} x\n * @constructor\n");
+      if (superClassName != null) {
+        sb.append(" * @extends {").append(superClassName).append("}\n");
+      }
+      sb.append(" */\n").append(className).append(" = function(x) {\n");
+      if (superClassName != null) {
+        sb.append("  ").append(superClassName).append(".call(this, x + ").append(c).append(");\n");
+      }
+      sb.append("  /** @type {number} */\n  this.x").append(c).append("_ = x;\n");
+      sb.append("  /** @type {!Array<string>} */\n  this.names").append(c).append("_ = [];\n");
+      sb.append("};\n");
+      if (superClassName != null) {
+        sb.append(className).append(".prototype = Object.create(")
+            .append(superClassName).append(".prototype);\n");
+        sb.append("/** @override */\n")
+            .append(className).append(".prototype.constructor = ").append(className).append(";\n");
+      }
+      sb.append("\n");
+      for (int m = 0; m < METHODS_PER_CLASS; m++) {
+        sb.append("/**\n * @param {number} a\n * @param {string} b\n * @return {string}\n */\n");
+        sb.append(className).append(".prototype.method").append(c).append("_").append(m)
+            .append(" = function(a, b) {\n");
+        for (int s = 0; s < STATEMENTS_PER_METHOD; s++) {
+          appendStatement(sb, c, s, random);
+        }
+        sb.append("  return b + this.x").append(c).append("_;\n};\n\n");
+      }
+    }
+    int c = random.nextInt(CLASSES_PER_FILE);
+    sb.append("var instance").append(fileIndex).append(" = new ").append(ns).append(".Class")
+        .append(c).append("(").append(random.nextInt(100)).append(");\n");
+    sb.append("instance").append(fileIndex).append(".method").append(c).append("_0(")
+        .append(random.nextInt(100)).append(", 'start');\n");
+    return sb.toString();
+  }
+
+  /** Appends a statement of the body of a method taking {@code number a, string b}. */
+  private static void appendStatement(StringBuilder sb, int classIndex, int index, Random random) {
+    int k = random.nextInt(100);
+    String v = "v" + index;
+    switch (random.nextInt(9)) {
+      case 0:
+        sb.append("  var ").append(v).append(" = a + ").append(k).append(" * 2 - 1;\n");
+        sb.append("  a = ").append(v).append(";\n");
+        break;
+      case 1:
+        sb.append("  if (a > ").append(k).append(") {\n    b = b + 'x").append(k)
+            .append("';\n  } else {\n    a = a - 1;\n  }\n");
+        break;
+      case 2:
+        sb.append("  for (var ").append(v).append(" = 0; ").append(v).append(" < a; ")
+            .append(v).append("++) {\n    this.names").append(classIndex).append("_.push(b + ")
+            .append(v).append(");\n  }\n");
+        break;
+      case 3:
+        sb.append("  while (!(a < ").append(k).append(")) {\n    a -= ")
+            .append(k + 1).append(";\n  }\n");
+        break;
+      case 4:
+        sb.append("  var ").append(v).append(" = {'key': a, other: b};\n");
+        sb.append("  b = ").append(v).append("['other'] + ").append(v).append(".key;\n");
+        break;
+      case 5:
+        sb.append("  if (true) {\n    b = b + String(a);\n  } else {\n    b = '';\n  }\n");
+        break;
+      case 6:
+        sb.append("  var ").append(v).append(" = function(x) {\n    return x * ")
+            .append(k).append(";\n  };\n");
+        sb.append("  a = ").append(v).append("(a);\n");
+        break;
+      case 7:
+        sb.append("  switch (a) {\n    case ").append(k).append(":\n      b = 'k").append(k)
+            .append("';\n      break;\n    default:\n      b = b.substring(0, ")
+            .append(k).append(");\n  }\n");
+        break;
+      default:
+        sb.append("  b = b + ('a' + 'b' + ").append(k).append(");\n");
+        break;
+    }
+  }
+}
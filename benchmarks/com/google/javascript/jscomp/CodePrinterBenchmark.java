@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.rhino.Node;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures {@link CodePrinter}, printing the AST as compact and as pretty code. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CodePrinterBenchmark {
+  @Param({BenchmarkCorpus.EXTERNS, BenchmarkCorpus.GENERATED})
+  public String corpus;
+
+  private CompilerOptions options;
+  private Node root;
+
+  @Setup
+  public void setUp() {
+    options = BenchmarkCorpus.createOptions();
+    root = BenchmarkCorpus.parse(BenchmarkCorpus.get(corpus)).getRoot();
+  }
+
+  @Benchmark
+  public String printCompact() {
+    return new CodePrinter.Builder(root).setCompilerOptions(options).build();
+  }
+
+  @Benchmark
+  public String printPretty() {
+    return new CodePrinter.Builder(root)
+        .setCompilerOptions(options)
+        .setPrettyPrint(true)
+        .build();
+  }
+}
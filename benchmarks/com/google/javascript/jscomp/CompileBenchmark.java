@@ -0,0 +1,339 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Splitter;
+import com.google.common.io.ByteStreams;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import com.google.javascript.jscomp.CompilerOptions.TracerMode;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.spi.BooleanOptionHandler;
+
+/**
+ * Compiles generated code bases of growing sizes with {@link Compiler#compile}, and reports how the
+ * wall time, the peak heap and the runtime of every pass grow with the size of the program.
+ *
+ * <p>Every combination of the given sizes, compilation levels and type checkers is compiled a few
+ * times, and the fastest run is kept. The results can be saved, and compared with the results of
+ * an earlier run. The benchmark fails, that is exits with a non-zero status, when:
+ *
+ * <ul>
+ *   <li>a metric is worse than in the baseline by more than {@code --max_regression}, or
+ *   <li>the wall time or a pass grows faster than {@code n^--max_growth_exponent} with the number
+ *       of files {@code n}, which catches passes that go superlinear.
+ * </ul>
+ *
+ * <p>Timings below {@code --min_millis} are too noisy to be compared and are ignored by the growth
+ * check. A metric only regresses when it also gets worse by at least an absolute floor: {@code
+ * --min_millis} for timings, {@code --min_megabytes} for memory, and 1 for any other metric, so
+ * that baselines of zero or close to it do not fail on noise.
+ */
+final class CompileBenchmark {
+  private static final String HEADER = "# compile benchmark results v1";
+
+  /** The type checkers to compile with. */
+  enum TypeChecker {
+    OTI,
+    NTI
+  }
+
+  @Option(
+      name = "--help",
+      hidden = true,
+      handler = BooleanOptionHandler.class,
+      usage = "Displays this message")
+  private boolean displayHelp = false;
+
+  @Option(name = "--file_counts", usage = "Comma-separated sizes of the code bases, in files.")
+  private String fileCounts = "100,200,400";
+
+  @Option(
+      name = "--compilation_levels",
+      usage = "Comma-separated compilation levels, among SIMPLE and ADVANCED.")
+  private String compilationLevels = "SIMPLE,ADVANCED";
+
+  @Option(name = "--type_checkers", usage = "Comma-separated type checkers, among OTI and NTI.")
+  private String typeCheckers = "OTI,NTI";
+
+  @Option(
+      name = "--module_fraction",
+      usage = "The fraction of the files that are goog.modules rather than goog.provided.")
+  private double moduleFraction = 0.5;
+
+  @Option(name = "--classes_per_file", usage = "The number of classes of each file.")
+  private int classesPerFile = 4;
+
+  @Option(
+      name = "--jsdoc_density",
+      usage = "The fraction of the methods and fields that have type annotations.")
+  private double jsDocDensity = 0.8;
+
+  @Option(name = "--seed", usage = "The seed of the code generator.")
+  private long seed = 20170101L;
+
+  @Option(name = "--warmups", usage = "The number of compiles of each setup that are not measured.")
+  private int warmups = 1;
+
+  @Option(name = "--runs", usage = "The number of measured compiles of each setup.")
+  private int runs = 3;
+
+  @Option(name = "--output", usage = "Writes the results to this file.")
+  private String outputFile = "";
+
+  @Option(name = "--baseline", usage = "Compares the results with those of this file.")
+  private String baselineFile = "";
+
+  @Option(
+      name = "--max_regression",
+      usage = "How much worse than the baseline a metric may be, e.g. 0.2 for 20%.")
+  private double maxRegression = 0.2;
+
+  @Option(
+      name = "--max_growth_exponent",
+      usage = "The highest exponent e such that metrics may grow like n^e with the number of files.")
+  private double maxGrowthExponent = 1.5;
+
+  @Option(name = "--min_millis", usage = "Timings below this are ignored by the checks.")
+  private long minMillis = 50;
+
+  @Option(
+      name = "--min_megabytes",
+      usage = "Memory metrics must grow by at least this much to count as a regression.")
+  private long minMegabytes = 16;
+
+  private final List<String> failures = new ArrayList<>();
+
+  public static void main(String[] args) throws Exception {
+    // The compiler logs warnings that are irrelevant here, e.g. about disabled passes.
+    Logger.getLogger("com.google.javascript.jscomp").setLevel(Level.OFF);
+
+    CompileBenchmark benchmark = new CompileBenchmark();
+    if (!benchmark.doMain(args)) {
+      System.exit(1);
+    }
+  }
+
+  /** Runs the benchmark, and returns whether all the checks passed. */
+  private boolean doMain(String[] args) throws Exception {
+    CmdLineParser parser = new CmdLineParser(this);
+    parser.parseArgument(args);
+    if (displayHelp) {
+      parser.printUsage(System.out);
+      return true;
+    }
+
+    List<Integer> sizes = new ArrayList<>();
+    for (String size : Splitter.on(',').trimResults().split(fileCounts)) {
+      sizes.add(Integer.parseInt(size));
+    }
+    sizes.sort(null);
+
+    Map<String, Long> results = new TreeMap<>();
+    for (String levelName : Splitter.on(',').trimResults().split(compilationLevels)) {
+      CompilationLevel level = CompilationLevel.fromString(levelName);
+      if (level == null) {
+        throw new IllegalArgumentException("Unknown compilation level: " + levelName);
+      }
+      for (String checkerName : Splitter.on(',').trimResults().split(typeCheckers)) {
+        TypeChecker checker = TypeChecker.valueOf(checkerName);
+        String setup = levelName + "/" + checker;
+        for (int size : sizes) {
+          Map<String, Long> metrics = measure(size, level, checker);
+          System.out.printf(
+              "%-14s %6d files: %7d ms, %6d MB peak heap%n",
+              setup, size, metrics.get("wall_ms"), metrics.get("peak_heap_mb"));
+          for (Map.Entry<String, Long> metric : metrics.entrySet()) {
+            results.put(key(setup, size, metric.getKey()), metric.getValue());
+          }
+        }
+        checkGrowth(setup, sizes, results);
+      }
+    }
+
+    if (!outputFile.isEmpty()) {
+      save(results, outputFile);
+    }
+    if (!baselineFile.isEmpty()) {
+      checkRegressions(load(baselineFile), results);
+    }
+
+    for (String failure : failures) {
+      System.out.println("FAILED: " + failure);
+    }
+    return failures.isEmpty();
+  }
+
+  /** Returns the metrics of the fastest of the measured compiles of a code base. */
+  private Map<String, Long> measure(int size, CompilationLevel level, TypeChecker checker) {
+    List<SourceFile> externs = BenchmarkCorpus.getExterns();
+    List<SourceFile> inputs =
+        new SyntheticCodebase(size, moduleFraction, classesPerFile, jsDocDensity, seed).generate();
+    Map<String, Long> best = null;
+    for (int i = 0; i < warmups + runs; i++) {
+      Map<String, Long> metrics = compile(externs, inputs, level, checker);
+      if (i >= warmups && (best == null || metrics.get("wall_ms") < best.get("wall_ms"))) {
+        best = metrics;
+      }
+    }
+    return best;
+  }
+
+  private static Map<String, Long> compile(
+      List<SourceFile> externs,
+      List<SourceFile> inputs,
+      CompilationLevel level,
+      TypeChecker checker) {
+    CompilerOptions options = new CompilerOptions();
+    level.setOptionsForCompilationLevel(options);
+    options.setLanguageIn(LanguageMode.ECMASCRIPT5);
+    options.setLanguageOut(LanguageMode.ECMASCRIPT5);
+    options.setClosurePass(true);
+    if (checker == TypeChecker.NTI) {
+      options.setNewTypeInference(true);
+    } else {
+      options.setCheckTypes(true);
+    }
+    options.setTracerMode(TracerMode.TIMING_ONLY);
+    options.setTracerOutput(new PrintStream(ByteStreams.nullOutputStream()));
+
+    Compiler compiler = new Compiler(new PrintStream(ByteStreams.nullOutputStream()));
+    compiler.disableThreads();
+    System.gc();
+    JvmMetrics.HeapPeak heapPeak = new JvmMetrics.HeapPeak();
+    long start = System.nanoTime();
+    Result result = compiler.compile(externs, inputs, options);
+    long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    if (!result.success) {
+      throw new IllegalStateException(
+          "The generated code does not compile: " + Arrays.toString(result.errors));
+    }
+
+    Map<String, Long> metrics = new TreeMap<>();
+    metrics.put("wall_ms", wallMillis);
+    long allocatedBytes = 0;
+    for (PerformanceTracker.Stats stats : compiler.tracker.getStats().values()) {
+      metrics.put("pass/" + stats.pass + "_ms", stats.runtime);
+      allocatedBytes += stats.allocatedBytes;
+    }
+    metrics.put("peak_heap_mb", heapPeak.getPeakBytes() / (1024 * 1024));
+    metrics.put("allocated_mb", allocatedBytes / (1024 * 1024));
+    return metrics;
+  }
+
+  /**
+   * Checks that no timing of a setup grows faster than allowed with the number of files, from one
+   * size to the next.
+   */
+  private void checkGrowth(String setup, List<Integer> sizes, Map<String, Long> results) {
+    for (int i = 1; i < sizes.size(); i++) {
+      int smaller = sizes.get(i - 1);
+      int larger = sizes.get(i);
+      if (smaller == larger) {
+        continue;
+      }
+      String prefix = key(setup, smaller, "");
+      for (Map.Entry<String, Long> entry : results.entrySet()) {
+        if (!entry.getKey().startsWith(prefix)) {
+          continue;
+        }
+        String metric = entry.getKey().substring(prefix.length());
+        if (!metric.endsWith("_ms")) {
+          continue;
+        }
+        Long largerValue = results.get(key(setup, larger, metric));
+        if (entry.getValue() < minMillis || largerValue == null) {
+          continue;
+        }
+        double exponent =
+            Math.log((double) largerValue / entry.getValue()) / Math.log((double) larger / smaller);
+        if (exponent > maxGrowthExponent) {
+          failures.add(
+              String.format(
+                  "%s %s grows like n^%.2f: %d ms with %d files, %d ms with %d files",
+                  setup, metric, exponent, entry.getValue(), smaller, largerValue, larger));
+        }
+      }
+    }
+  }
+
+  /** Checks that no metric is worse than in the baseline by more than the allowed regression. */
+  private void checkRegressions(Map<String, Long> baseline, Map<String, Long> results) {
+    for (Map.Entry<String, Long> entry : results.entrySet()) {
+      Long baselineValue = baseline.get(entry.getKey());
+      if (baselineValue == null) {
+        continue;
+      }
+      if (entry.getValue() > baselineValue * (1 + maxRegression)
+          && entry.getValue() - baselineValue >= absoluteFloor(entry.getKey())) {
+        failures.add(
+            String.format(
+                "%s regressed from %d to %d", entry.getKey(), baselineValue, entry.getValue()));
+      }
+    }
+  }
+
+  /** Returns how much a metric must get worse, in its own unit, to count as a regression. */
+  private long absoluteFloor(String metric) {
+    if (metric.endsWith("_ms")) {
+      return minMillis;
+    } else if (metric.endsWith("_mb")) {
+      return minMegabytes;
+    }
+    return 1;
+  }
+
+  private static String key(String setup, int size, String metric) {
+    return setup + "/" + size + "/" + metric;
+  }
+
+  private static Map<String, Long> load(String filename) throws IOException {
+    Map<String, Long> results = new TreeMap<>();
+    List<String> lines = Files.readAllLines(Paths.get(filename), UTF_8);
+    if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+      throw new IOException(filename + " is not a file of compile benchmark results");
+    }
+    for (String line : lines.subList(1, lines.size())) {
+      List<String> fields = Splitter.on('\t').splitToList(line);
+      results.put(fields.get(0), Long.parseLong(fields.get(1)));
+    }
+    return results;
+  }
+
+  private static void save(Map<String, Long> results, String filename) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add(HEADER);
+    for (Map.Entry<String, Long> entry : results.entrySet()) {
+      lines.add(entry.getKey() + "\t" + entry.getValue());
+    }
+    Files.write(Paths.get(filename), lines, UTF_8);
+  }
+}
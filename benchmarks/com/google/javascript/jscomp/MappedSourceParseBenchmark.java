@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.Config.JsDocParsing;
+import com.google.javascript.jscomp.parsing.Config.LanguageMode;
+import com.google.javascript.jscomp.parsing.Config.RunMode;
+import com.google.javascript.jscomp.parsing.Config.StrictMode;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing a large file read as a String or through the memory mapping of {@link
+ * SourceFile#getCodeCharSequence}.
+ *
+ * <p>The scanner reads characters through {@link CharSequence#charAt}. When a build parses both
+ * Strings and mapped files, that call sees several receiver types. The {@code mixed} reads parse
+ * the String after the scanner has also read an ASCII mapping and a decoded non-ASCII mapping, so
+ * that the JIT compiles the scanner for all three.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MappedSourceParseBenchmark {
+  /** Enough generated files for a source above the mapping threshold. */
+  private static final int FILE_COUNT = 200;
+
+  private static final int POLLUTING_PARSES = 20;
+
+  @Param({"string", "mapped", "mixed"})
+  public String reads;
+
+  private Path directory;
+  private SourceFile file;
+  private CharSequence code;
+  private Config config;
+
+  private static final ErrorReporter FAILING_REPORTER =
+      new ErrorReporter() {
+        @Override
+        public void warning(String message, String sourceName, int line, int lineOffset) {}
+
+        @Override
+        public void error(String message, String sourceName, int line, int lineOffset) {
+          throw new IllegalStateException(sourceName + ":" + line + ": " + message);
+        }
+      };
+
+  @Setup
+  public void setUp() throws IOException {
+    config =
+        ParserRunner.createConfig(
+            LanguageMode.ECMASCRIPT5,
+            JsDocParsing.TYPES_ONLY,
+            RunMode.KEEP_GOING,
+            null,
+            false,
+            StrictMode.SLOPPY);
+    StringBuilder sb = new StringBuilder();
+    for (String fileCode : BenchmarkCorpus.getCode(BenchmarkCorpus.generate(FILE_COUNT))) {
+      sb.append(fileCode);
+    }
+    String ascii = sb.toString();
+    checkState(ascii.length() >= SourceFile.OnDisk.MAPPED_READ_THRESHOLD);
+
+    directory = Files.createTempDirectory("mapped-parse");
+    SourceFile asciiFile = write("ascii.js", ascii);
+    switch (reads) {
+      case "string":
+        file = SourceFile.fromCode("ascii.js", ascii);
+        code = ascii;
+        break;
+      case "mapped":
+        file = asciiFile;
+        code = asciiFile.getCodeCharSequence();
+        checkState(!(code instanceof String));
+        break;
+      case "mixed":
+        SourceFile nonAsciiFile = write("non-ascii.js", "// é\n" + ascii);
+        for (int i = 0; i < POLLUTING_PARSES; i++) {
+          parse(asciiFile, asciiFile.getCodeCharSequence());
+          parse(nonAsciiFile, nonAsciiFile.getCodeCharSequence());
+          parse(asciiFile, ascii);
+        }
+        file = SourceFile.fromCode("ascii.js", ascii);
+        code = ascii;
+        break;
+      default:
+        throw new IllegalArgumentException(reads);
+    }
+  }
+
+  private SourceFile write(String name, String content) throws IOException {
+    Path path = directory.resolve(name);
+    Files.write(path, content.getBytes(UTF_8));
+    return SourceFile.fromPath(path, UTF_8);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    file = null;
+    code = null;
+    for (String name : new String[] {"ascii.js", "non-ascii.js"}) {
+      Files.deleteIfExists(directory.resolve(name));
+    }
+    Files.delete(directory);
+  }
+
+  private ParserRunner.ParseResult parse(SourceFile sourceFile, CharSequence sourceCode) {
+    return ParserRunner.parse(sourceFile, sourceCode, config, FAILING_REPORTER);
+  }
+
+  @Benchmark
+  public ParserRunner.ParseResult parse() {
+    return parse(file, code);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
+import com.google.javascript.jscomp.NodeTraversal.AbstractScopedCallback;
+import com.google.javascript.rhino.Node;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a plain {@link NodeTraversal} of the AST, and one that also builds the scope of every
+ * function, as the many passes that look up variables do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class NodeTraversalBenchmark {
+  @Param({BenchmarkCorpus.EXTERNS, BenchmarkCorpus.GENERATED})
+  public String corpus;
+
+  private Compiler compiler;
+  private Node root;
+
+  @Setup
+  public void setUp() {
+    compiler = BenchmarkCorpus.parse(BenchmarkCorpus.get(corpus));
+    root = compiler.getRoot();
+  }
+
+  @Benchmark
+  public int traverse() {
+    NodeCounter counter = new NodeCounter();
+    NodeTraversal.traverseEs6(compiler, root, counter);
+    return counter.count;
+  }
+
+  @Benchmark
+  public int traverseWithScopes() {
+    ScopeCounter counter = new ScopeCounter();
+    new NodeTraversal(compiler, counter, new Es6SyntacticScopeCreator(compiler)).traverse(root);
+    return counter.count;
+  }
+
+  private static final class NodeCounter extends AbstractPostOrderCallback {
+    int count = 0;
+
+    @Override
+    public void visit(NodeTraversal t, Node n, Node parent) {
+      count++;
+    }
+  }
+
+  private static final class ScopeCounter extends AbstractScopedCallback {
+    int count = 0;
+
+    @Override
+    public void enterScope(NodeTraversal t) {
+      count += t.getScope().getVarCount();
+    }
+
+    @Override
+    public void visit(NodeTraversal t, Node n, Node parent) {}
+  }
+}
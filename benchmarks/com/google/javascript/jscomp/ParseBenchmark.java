@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.Config.JsDocParsing;
+import com.google.javascript.jscomp.parsing.Config.LanguageMode;
+import com.google.javascript.jscomp.parsing.Config.RunMode;
+import com.google.javascript.jscomp.parsing.Config.StrictMode;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Measures {@link ParserRunner#parse}, from source text to AST with JSDoc. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParseBenchmark {
+  @Param({BenchmarkCorpus.EXTERNS, BenchmarkCorpus.GENERATED})
+  public String corpus;
+
+  private List<SourceFile> files;
+  private List<String> code;
+  private Config config;
+
+  private static final ErrorReporter FAILING_REPORTER =
+      new ErrorReporter() {
+        @Override
+        public void warning(String message, String sourceName, int line, int lineOffset) {}
+
+        @Override
+        public void error(String message, String sourceName, int line, int lineOffset) {
+          throw new IllegalStateException(sourceName + ":" + line + ": " + message);
+        }
+      };
+
+  @Setup
+  public void setUp() {
+    files = BenchmarkCorpus.get(corpus);
+    code = BenchmarkCorpus.getCode(files);
+    config =
+        ParserRunner.createConfig(
+            LanguageMode.ECMASCRIPT5,
+            JsDocParsing.TYPES_ONLY,
+            RunMode.KEEP_GOING,
+            null,
+            false,
+            StrictMode.SLOPPY);
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (int i = 0; i < files.size(); i++) {
+      blackhole.consume(ParserRunner.parse(files.get(i), code.get(i), config, FAILING_REPORTER));
+    }
+  }
+}
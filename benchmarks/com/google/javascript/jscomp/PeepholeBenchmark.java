@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one run of the {@link PeepholeOptimizationsPass} with the optimizations of the main
+ * optimization loop, on a freshly parsed and normalized AST.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 40)
+@Fork(1)
+public class PeepholeBenchmark {
+  @Param({"10", "100"})
+  public int fileCount;
+
+  private List<SourceFile> files;
+  private Compiler compiler;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    files = BenchmarkCorpus.generate(fileCount);
+  }
+
+  /** The pass changes the AST, so every run starts from a new one. */
+  @Setup(Level.Iteration)
+  public void parse() {
+    compiler = BenchmarkCorpus.parse(files);
+    new Normalize(compiler, false).process(compiler.getExternsRoot(), compiler.getJsRoot());
+  }
+
+  @Benchmark
+  public void peephole() {
+    boolean late = false;
+    boolean useTypesForOptimization = false;
+    new PeepholeOptimizationsPass(
+            compiler,
+            "peepholeOptimizations",
+            new MinimizeExitPoints(compiler),
+            new PeepholeMinimizeConditions(late),
+            new PeepholeSubstituteAlternateSyntax(late),
+            new PeepholeReplaceKnownMethods(late, useTypesForOptimization),
+            new PeepholeRemoveDeadCode(),
+            new PeepholeFoldConstants(late, useTypesForOptimization),
+            new PeepholeCollectPropertyAssignments())
+        .process(compiler.getExternsRoot(), compiler.getJsRoot());
+  }
+}
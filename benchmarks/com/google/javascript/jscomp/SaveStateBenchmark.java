@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Compiler#saveState} and {@link Compiler#restoreState} of a parsed corpus. The
+ * size of the saved state is printed once per trial, since JMH has no metric for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SaveStateBenchmark {
+  @Param({BenchmarkCorpus.EXTERNS, BenchmarkCorpus.GENERATED})
+  public String corpus;
+
+  private CompilerOptions options;
+  private Compiler compiler;
+  private byte[] state;
+
+  @Setup(Level.Trial)
+  public void parse() throws IOException {
+    options = BenchmarkCorpus.createOptions();
+    compiler = BenchmarkCorpus.parse(BenchmarkCorpus.get(corpus));
+    state = save();
+    System.out.println("Saved state: " + state.length + " bytes");
+  }
+
+  @Benchmark
+  public byte[] save() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    compiler.saveState(out);
+    return out.toByteArray();
+  }
+
+  @Benchmark
+  public Compiler restore() throws Exception {
+    Compiler restored = new Compiler();
+    restored.options = options;
+    restored.restoreState(new ByteArrayInputStream(state));
+    return restored;
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Joiner;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates Closure-style code bases of any size, to measure how the cost of a compile grows with
+ * the size of the program.
+ *
+ * <p>Each file declares a namespace with {@code goog.provide} or {@code goog.module}, requires a
+ * few of the files before it, and defines a hierarchy of classes whose roots extend classes of the
+ * required files. Methods call into the required files, so that the files form a connected program
+ * rather than independent islands. Each file finally exports a value to {@code window}, so that
+ * ADVANCED optimizations cannot remove all of it.
+ *
+ * <p>The same parameters always generate the same code.
+ */
+final class SyntheticCodebase {
+  private static final String BASE_JS =
+      Joiner.on('\n').join(
+          "/** @provideGoog */",
+          "/** @const */",
+          "var goog = goog || {};",
+          "/** @param {string} name */",
+          "goog.provide = function(name) {};",
+          "/** @param {string} name */",
+          "goog.module = function(name) {};",
+          "/**",
+          " * @param {string} name",
+          " * @return {?}",
+          " */",
+          "goog.require = function(name) {};",
+          "/**",
+          " * @param {!Function} childCtor",
+          " * @param {!Function} parentCtor",
+          " */",
+          "goog.inherits = function(childCtor, parentCtor) {",
+          "  /** @constructor */",
+          "  function tempCtor() {}",
+          "  tempCtor.prototype = parentCtor.prototype;",
+          "  childCtor.superClass_ = parentCtor.prototype;",
+          "  childCtor.prototype = new tempCtor();",
+          "  childCtor.prototype.constructor = childCtor;",
+          "};");
+
+  private static final int MAX_REQUIRES = 3;
+  private static final int METHODS_PER_CLASS = 3;
+
+  private final int fileCount;
+  private final double moduleFraction;
+  private final int classesPerFile;
+  private final double jsDocDensity;
+  private final long seed;
+
+  /**
+   * @param fileCount the number of files, not counting the small base file that defines the
+   *     Closure primitives
+   * @param moduleFraction the fraction of the files that are {@code goog.module}s rather than
+   *     {@code goog.provide}d
+   * @param classesPerFile the number of classes of each file
+   * @param jsDocDensity the fraction of the methods and fields that have type annotations
+   */
+  SyntheticCodebase(
+      int fileCount, double moduleFraction, int classesPerFile, double jsDocDensity, long seed) {
+    checkArgument(fileCount > 0, fileCount);
+    checkArgument(moduleFraction >= 0 && moduleFraction <= 1, moduleFraction);
+    checkArgument(classesPerFile > 0, classesPerFile);
+    checkArgument(jsDocDensity >= 0 && jsDocDensity <= 1, jsDocDensity);
+    this.fileCount = fileCount;
+    this.moduleFraction = moduleFraction;
+    this.classesPerFile = classesPerFile;
+    this.jsDocDensity = jsDocDensity;
+    this.seed = seed;
+  }
+
+  /** Returns the files of the code base, in dependency order. */
+  List<SourceFile> generate() {
+    Random random = new Random(seed);
+    boolean[] isModule = new boolean[fileCount];
+    List<SourceFile> files = new ArrayList<>();
+    files.add(SourceFile.fromCode("base.js", BASE_JS));
+    for (int i = 0; i < fileCount; i++) {
+      isModule[i] = random.nextDouble() < moduleFraction;
+      Set<Integer> requires = new LinkedHashSet<>();
+      for (int r = 0; r < MAX_REQUIRES && i > 0; r++) {
+        int dep = random.nextInt(i);
+        // Only goog.modules can require goog.modules by name.
+        if (isModule[i] || !isModule[dep]) {
+          requires.add(dep);
+        }
+      }
+      String code =
+          isModule[i]
+              ? generateModule(i, requires, random)
+              : generateProvide(i, requires, random);
+      files.add(SourceFile.fromCode("file" + i + ".js", code));
+    }
+    return files;
+  }
+
+  private static String namespace(int fileIndex) {
+    return "app.f" + fileIndex;
+  }
+
+  private String generateProvide(int fileIndex, Set<Integer> requires, Random random) {
+    StringBuilder sb = new StringBuilder();
+    String ns = namespace(fileIndex);
+    sb.append("goog.provide('").append(ns).append("');\n\n");
+    List<String> requiredClasses = new ArrayList<>();
+    for (int dep : requires) {
+      sb.append("goog.require('").append(namespace(dep)).append("');\n");
+      requiredClasses.add(namespace(dep) + ".Class" + random.nextInt(classesPerFile));
+    }
+    sb.append("\n");
+    for (int c = 0; c < classesPerFile; c++) {
+      appendClass(sb, ns + ".", c, fileIndex, requiredClasses, random);
+    }
+    appendExport(sb, fileIndex, ns + ".", random);
+    return sb.toString();
+  }
+
+  private String generateModule(int fileIndex, Set<Integer> requires, Random random) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("goog.module('").append(namespace(fileIndex)).append("');\n\n");
+    List<String> requiredClasses = new ArrayList<>();
+    for (int dep : requires) {
+      String alias = "dep" + dep;
+      sb.append("var ").append(alias).append(" = goog.require('").append(namespace(dep))
+          .append("');\n");
+      requiredClasses.add(alias + ".Class" + random.nextInt(classesPerFile));
+    }
+    sb.append("\n");
+    for (int c = 0; c < classesPerFile; c++) {
+      appendClass(sb, "var ", c, fileIndex, requiredClasses, random);
+      sb.append("exports.Class").append(c).append(" = Class").append(c).append(";\n\n");
+    }
+    appendExport(sb, fileIndex, "", random);
+    return sb.toString();
+  }
+
+  /**
+   * Appends a class. The first class of a file extends one of the required classes, if any, and
+   * each of the next ones extends the one before it.
+   *
+   * @param declarationPrefix what comes before the class name in its declaration: the namespace
+   *     in a provided file, {@code var} in a module
+   */
+  private void appendClass(
+      StringBuilder sb,
+      String declarationPrefix,
+      int classIndex,
+      int fileIndex,
+      List<String> requiredClasses,
+      Random random) {
+    String className = "Class" + classIndex;
+    // Fields are private, so they must not collide with those of the superclasses.
+    String fieldSuffix = fileIndex + "_" + classIndex + "_";
+    String localPrefix = declarationPrefix.startsWith("var") ? "" : declarationPrefix;
+    String qualifiedName = localPrefix + className;
+    String superClass =
+        classIndex > 0
+            ? localPrefix + "Class" + (classIndex - 1)
+            : requiredClasses.isEmpty()
+                ? null
+                : requiredClasses.get(random.nextInt(requiredClasses.size()));
+
+    sb.append("/**\n * @param {number} x\n * @constructor\n");
+    if (superClass != null) {
+      sb.append(" * @extends {").append(superClass).append("}\n");
+    }
+    sb.append(" */\n").append(declarationPrefix).append(className).append(" = function(x) {\n");
+    if (superClass != null) {
+      sb.append("  ").append(superClass).append(".call(this, x + 1);\n");
+    }
+    if (hasJsDoc(random)) {
+      sb.append("  /** @private {number} */\n");
+    }
+    sb.append("  this.value").append(fieldSuffix).append(" = x;\n");
+    if (hasJsDoc(random)) {
+      sb.append("  /** @private {!Array<string>} */\n");
+    }
+    sb.append("  this.log").append(fieldSuffix).append(" = [];\n");
+    sb.append("};\n");
+    if (superClass != null) {
+      sb.append("goog.inherits(").append(qualifiedName).append(", ").append(superClass)
+          .append(");\n");
+    }
+    sb.append("\n");
+
+    for (int m = 0; m < METHODS_PER_CLASS; m++) {
+      if (hasJsDoc(random)) {
+        sb.append("/**\n * @param {number} a\n * @param {string} b\n * @return {string}\n */\n");
+      }
+      sb.append(qualifiedName).append(".prototype.m").append(classIndex).append("_").append(m)
+          .append(" = function(a, b) {\n");
+      sb.append("  for (var i = 0; i < a; i++) {\n");
+      sb.append("    this.log").append(fieldSuffix).append(".push(b + i);\n");
+      sb.append("  }\n");
+      sb.append("  if (a > ").append(random.nextInt(100)).append(") {\n");
+      if (!requiredClasses.isEmpty() && random.nextBoolean()) {
+        String callee = requiredClasses.get(random.nextInt(requiredClasses.size()));
+        sb.append("    b = new ").append(callee).append("(a).toString() + b;\n");
+      } else {
+        sb.append("    b = b + (a * ").append(random.nextInt(100)).append(" + 1);\n");
+      }
+      sb.append("  }\n");
+      sb.append("  return b + this.value").append(fieldSuffix).append(";\n");
+      sb.append("};\n\n");
+    }
+  }
+
+  /** Appends a use of the last class of the file, exported so that it is kept. */
+  private void appendExport(StringBuilder sb, int fileIndex, String prefix, Random random) {
+    int c = classesPerFile - 1;
+    sb.append("window['f").append(fileIndex).append("'] = new ").append(prefix).append("Class")
+        .append(c).append("(").append(random.nextInt(10)).append(").m").append(c).append("_0(")
+        .append(random.nextInt(10)).append(", 'f").append(fileIndex).append("');\n");
+  }
+
+  private boolean hasJsDoc(Random random) {
+    return random.nextDouble() < jsDocDensity;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the flow-sensitive {@link TypeInference} of the old type checker over every function,
+ * once the global typed scope has been built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class TypeInferenceBenchmark {
+  @Param({"10", "100"})
+  public int fileCount;
+
+  private List<SourceFile> externs;
+  private List<SourceFile> files;
+  private Compiler compiler;
+  private MemoizedTypedScopeCreator scopeCreator;
+  private TypedScope topScope;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    externs = BenchmarkCorpus.getExterns();
+    files = BenchmarkCorpus.generate(fileCount);
+  }
+
+  /** Inference annotates the AST with types, so every run starts from a new one. */
+  @Setup(Level.Iteration)
+  public void createScope() {
+    CompilerOptions options = BenchmarkCorpus.createOptions();
+    options.setCheckTypes(true);
+    compiler = BenchmarkCorpus.parse(options, externs, files);
+    scopeCreator = new MemoizedTypedScopeCreator(new TypedScopeCreator(compiler));
+    topScope = scopeCreator.createScope(compiler.getRoot(), null);
+  }
+
+  @Benchmark
+  public void inferTypes() {
+    new TypeInferencePass(
+            compiler, compiler.getReverseAbstractInterpreter(), topScope, scopeCreator)
+        .process(compiler.getExternsRoot(), compiler.getJsRoot());
+  }
+}
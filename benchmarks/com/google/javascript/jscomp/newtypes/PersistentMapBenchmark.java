@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the implementations of {@link PersistentMap} and {@link PersistentSet} on the
+ * operations of NTI: building a type environment, and joining two environments derived from the
+ * same one, as at the merge points of the control flow graph.
+ *
+ * <p>The "clojure" implementation needs Clojure in the class path. The implementation used by NTI
+ * itself is selected with {@code -Djscomp.newtypes.persistentCollections=...}, so that {@code
+ * NewTypeInferenceBenchmark} can compare them too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PersistentMapBenchmark {
+  /** How many variables change in each branch before a join. */
+  private static final int CHANGES_PER_BRANCH = 3;
+
+  @Param({"champ", "naive"})
+  public String implementation;
+
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  private String[] keys;
+  private PersistentMap<String, Integer> map;
+  private PersistentMap<String, Integer> branch1;
+  private PersistentMap<String, Integer> branch2;
+
+  @Setup
+  public void setUp() {
+    keys = new String[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = "var" + i;
+    }
+    map = build();
+    branch1 = map;
+    branch2 = map;
+    for (int i = 0; i < CHANGES_PER_BRANCH; i++) {
+      branch1 = branch1.with(keys[i], -i);
+      branch2 = branch2.with(keys[size - 1 - i], -i);
+    }
+  }
+
+  private PersistentMap<String, Integer> build() {
+    PersistentMap<String, Integer> result = PersistentMap.createEmpty(implementation);
+    for (int i = 0; i < size; i++) {
+      result = result.with(keys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public PersistentMap<String, Integer> with() {
+    return build();
+  }
+
+  @Benchmark
+  public PersistentMap<String, Integer> without() {
+    PersistentMap<String, Integer> result = map;
+    for (String key : keys) {
+      result = result.without(key);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int get() {
+    int sum = 0;
+    for (String key : keys) {
+      sum += map.get(key);
+    }
+    return sum;
+  }
+
+  /** Joins the two branches like {@link TypeEnv#join}, taking the larger value. */
+  @Benchmark
+  public PersistentMap<String, Integer> join() {
+    PersistentMap<String, Integer> result = branch1;
+    for (Map.Entry<String, Integer> entry : branch2.entriesNotSharedWith(branch1)) {
+      Integer current = result.get(entry.getKey());
+      if (!current.equals(entry.getValue())) {
+        result = result.with(entry.getKey(), Math.max(current, entry.getValue()));
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public boolean equalBranches() {
+    return branch1.equals(branch2);
+  }
+
+  @Benchmark
+  public PersistentSet<String> setWith() {
+    PersistentSet<String> result = PersistentSet.createEmpty(implementation);
+    for (String key : keys) {
+      result = result.with(key);
+    }
+    return result;
+  }
+}
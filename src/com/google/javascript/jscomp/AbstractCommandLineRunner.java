@@ -38,6 +38,7 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import com.google.javascript.jscomp.CompilerOptions.JsonStreamMode;
 import com.google.javascript.jscomp.CompilerOptions.OutputJs;
+import com.google.javascript.jscomp.CompilerOptions.TracerMode;
 import com.google.javascript.jscomp.CompilerOptions.TweakProcessing;
 import com.google.javascript.jscomp.deps.ModuleLoader;
 import com.google.javascript.jscomp.deps.SourceCodeEscapers;
@@ -352,6 +353,11 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
           ShowByPathWarningsGuard.ShowType.EXCLUDE));
     }
 
+    if (!config.optimizationLoopProfileFile.isEmpty()) {
+      options.setOptimizationLoopProfile(
+          LoopPassProfile.load(config.optimizationLoopProfileFile));
+    }
+
     createDefineOrTweakReplacements(config.define, options, false);
 
     options.setTweakProcessing(config.tweakProcessing);
@@ -366,6 +372,13 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     options.devMode = config.jscompDevMode;
     options.setCodingConvention(config.codingConvention);
     options.setSummaryDetailLevel(config.summaryDetailLevel);
+    if (!config.tracerTraceEventsOutputFile.isEmpty()) {
+      options.setRecordTraceEvents(true);
+    }
+    if ((!config.tracerJsonOutputFile.isEmpty() || !config.tracerTraceEventsOutputFile.isEmpty())
+        && !options.getTracerMode().isOn()) {
+      options.setTracerMode(TracerMode.TIMING_ONLY);
+    }
     options.setTrustedStrings(true);
 
     legacyOutputCharset = options.outputCharset = getLegacyOutputCharset();
@@ -1318,6 +1331,24 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       // Output the variable and property name maps if requested.
       outputNameMaps();
 
+      // Output the profile of the optimization loops if requested.
+      if (!config.optimizationLoopProfileFile.isEmpty()
+          && options.getOptimizationLoopProfile() != null) {
+        options.getOptimizationLoopProfile().save(config.optimizationLoopProfileFile);
+      }
+
+      // Output the tracer report as JSON if requested.
+      if (!config.tracerJsonOutputFile.isEmpty() && compiler.tracker != null) {
+        try (Writer writer = fileNameToOutputWriter2(config.tracerJsonOutputFile)) {
+          compiler.tracker.outputTracerJson(writer);
+        }
+      }
+      if (!config.tracerTraceEventsOutputFile.isEmpty() && compiler.tracker != null) {
+        try (Writer writer = fileNameToOutputWriter2(config.tracerTraceEventsOutputFile)) {
+          compiler.tracker.outputTraceEvents(writer);
+        }
+      }
+
       // Output the ReplaceStrings map if requested
       outputStringMap();
 
@@ -2276,6 +2307,36 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       return this;
     }
 
+    private String optimizationLoopProfileFile = "";
+
+    /**
+     * File where the profile of the optimization loop passes is kept across compilations.
+     */
+    public CommandLineConfig setOptimizationLoopProfileFile(String optimizationLoopProfileFile) {
+      this.optimizationLoopProfileFile = optimizationLoopProfileFile;
+      return this;
+    }
+
+    private String tracerJsonOutputFile = "";
+
+    /**
+     * File where the tracer report is written as JSON.
+     */
+    public CommandLineConfig setTracerJsonOutputFile(String tracerJsonOutputFile) {
+      this.tracerJsonOutputFile = tracerJsonOutputFile;
+      return this;
+    }
+
+    private String tracerTraceEventsOutputFile = "";
+
+    /**
+     * File where the tracer writes trace events, for trace viewers.
+     */
+    public CommandLineConfig setTracerTraceEventsOutputFile(String tracerTraceEventsOutputFile) {
+      this.tracerTraceEventsOutputFile = tracerTraceEventsOutputFile;
+      return this;
+    }
+
     private boolean createNameMapFiles = false;
 
     /**
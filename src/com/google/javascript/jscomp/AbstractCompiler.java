@@ -29,6 +29,7 @@ import com.google.javascript.jscomp.parsing.parser.trees.Comment;
 import com.google.javascript.jscomp.type.ReverseAbstractInterpreter;
 import com.google.javascript.rhino.ErrorReporter;
 import com.google.javascript.rhino.InputId;
+import com.google.javascript.rhino.LazyJSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.TypeIRegistry;
 import com.google.javascript.rhino.jstype.JSTypeRegistry;
@@ -130,6 +131,12 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
   /** Sets the id generator for cross-module motion. */
   public abstract void setIdGeneratorMap(String serializedIdMappings);
 
+  /**
+   * Records the passes of an optimization loop that still had work to do when the loop stopped
+   * before reaching a fixpoint.
+   */
+  abstract void recordUnfinishedLoopPasses(List<String> passNames);
+
   /** Gets the id generator for cross-module motion. */
   public abstract IdGenerator getCrossModuleIdGenerator();
 
@@ -302,6 +309,12 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
    */
   abstract ErrorReporter getDefaultErrorReporter();
 
+  /**
+   * Records the JSDoc comments of a file that the parser attached unparsed, so that their
+   * diagnostics are reported when the compilation ends. May be called from the parse threads.
+   */
+  abstract void addLazyJsDocs(String sourceName, List<LazyJSDocInfo> lazyJsDocs);
+
   /**
    * Get an interpreter for type analysis.
    */
@@ -335,6 +348,29 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
    */
   abstract void removeChangeHandler(CodeChangeHandler handler);
 
+  /**
+   * Returns the runner that passes use to process change scopes in parallel, with up to {@link
+   * CompilerOptions#setNumParallelThreads} threads.
+   */
+  abstract ParallelScopeRunner getParallelScopeRunner();
+
+  /**
+   * Runs the given work, which may run concurrently with other work, without applying the changes
+   * and errors it reports. Returns what applies them, which the thread that runs the pass calls in
+   * a fixed order, so that the result does not depend on how the work was scheduled.
+   */
+  abstract Runnable runDeferringReports(Runnable work);
+
+  /**
+   * Returns the cache of the control flow graphs of functions, which the passes share, see {@link
+   * CompilerOptions#setCacheControlFlowGraphs}.
+   */
+  abstract ControlFlowGraphCache getControlFlowGraphCache();
+
+  /** Returns the recorder of trace events, or null if they are not recorded. */
+  @Nullable
+  abstract TraceEventRecorder getTraceEventRecorder();
+
   /** Register a provider for some type of index. */
   abstract void addIndexProvider(IndexProvider<?> indexProvider);
 
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.jscomp.parsing.parser.FeatureSet;
+import com.google.javascript.jscomp.parsing.parser.trees.Comment;
+import com.google.javascript.jscomp.parsing.parser.util.SourcePosition;
+import com.google.javascript.jscomp.parsing.parser.util.SourceRange;
+import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.Node;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * A content-addressed cache of parse results on disk. Entries are keyed by a hash of the source
+ * code and of the parser {@link Config}, so processes that start cold (new workers, CI runners)
+ * can reuse the ASTs, feature sets, comments and JSDoc of sources that did not change, instead of
+ * running the parser again.
+ *
+ * <p>An entry also holds the errors and warnings of its parse, which are reported again, against
+ * the file being parsed, when the entry is reused. JSDoc that is parsed lazily is stored unparsed,
+ * and is parsed and reported by the compilation that reads the entry. The cache is best effort:
+ * entries that cannot be read or written are treated as misses. It is safe to share a directory
+ * between threads and processes.
+ */
+@GwtIncompatible("java.nio.file")
+public final class AstCache {
+  /** Bump this whenever the entry format or the serialized form of the AST changes. */
+  private static final int FORMAT_VERSION = 2;
+
+  private static final String ENTRY_SUFFIX = ".ast";
+
+  private final Path directory;
+  private final AtomicInteger hitCount = new AtomicInteger();
+  private final AtomicInteger missCount = new AtomicInteger();
+
+  /** Creates a cache that stores its entries in the given directory, creating it if needed. */
+  public AstCache(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+  }
+
+  /** Returns the number of parses served from the cache. */
+  public int getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Returns the number of parses that had to run the parser. */
+  public int getMissCount() {
+    return missCount.get();
+  }
+
+  /** Returns a {@link SourceAst} for the given file that is parsed through this cache. */
+  SourceAst createAst(SourceFile sourceFile) {
+    return new CachedJsAst(sourceFile, this);
+  }
+
+  @VisibleForTesting
+  static String keyFor(CharSequence code, Config config) {
+    // Hashes the chars as they are, so that a mapped source is not copied into a String.
+    return Hashing.sha256()
+        .newHasher()
+        .putInt(FORMAT_VERSION)
+        .putString(config.toString(), UTF_8)
+        .putUnencodedChars(code)
+        .hash()
+        .toString();
+  }
+
+  private Path pathFor(String key) {
+    return directory.resolve(key + ENTRY_SUFFIX);
+  }
+
+  /**
+   * Returns the cached parse of {@code code} stored under {@code key}, with every reference to the
+   * source file resolved to {@code sourceFile}, or null if there is no usable entry. The
+   * diagnostics of the cached parse are reported to {@code reporter}, and its lazily parsed JSDoc
+   * will be parsed with {@code config} and reported to {@code reporter}.
+   */
+  @Nullable
+  ParserRunner.ParseResult get(
+      String key, SourceFile sourceFile, CharSequence code, Config config, ErrorReporter reporter) {
+    Path path = pathFor(key);
+    ParserRunner.ParseResult result = null;
+    List<Diagnostic> diagnostics = new ArrayList<>();
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+      result = read(new EntryInputStream(in, sourceFile), sourceFile, code, diagnostics);
+    } catch (NoSuchFileException e) {
+      // Not cached yet.
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      // A corrupt or stale entry; drop it so that it is rewritten.
+      deleteQuietly(path);
+    }
+    if (result == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    for (Diagnostic diagnostic : diagnostics) {
+      diagnostic.reportTo(reporter, sourceFile.getName());
+    }
+    if (result.ast == null) {
+      return result;
+    }
+    return new ParserRunner.ParseResult(
+        result.ast,
+        result.comments,
+        result.features,
+        result.sourceMapURL,
+        ParserRunner.bindLazyJsDocs(result.ast, config, reporter));
+  }
+
+  /** Stores a parse result and the diagnostics of its parse under {@code key}. */
+  void put(String key, ParserRunner.ParseResult result, List<Diagnostic> diagnostics) {
+    Path path = pathFor(key);
+    Path tmp = null;
+    try {
+      // Write to a temporary file first, so that concurrent readers never see a partial entry.
+      tmp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+        EntryOutputStream entryOut = new EntryOutputStream(out);
+        write(entryOut, result, diagnostics);
+        entryOut.flush();
+      }
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      if (tmp != null) {
+        deleteQuietly(tmp);
+      }
+    }
+  }
+
+  private static void write(
+      ObjectOutputStream out, ParserRunner.ParseResult result, List<Diagnostic> diagnostics)
+      throws IOException {
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(diagnostics.size());
+    for (Diagnostic diagnostic : diagnostics) {
+      out.writeBoolean(diagnostic.isError);
+      out.writeUTF(diagnostic.message);
+      out.writeInt(diagnostic.line);
+      out.writeInt(diagnostic.lineOffset);
+    }
+    out.writeObject(result.features);
+    out.writeObject(result.sourceMapURL);
+    out.writeInt(result.comments.size());
+    for (Comment comment : result.comments) {
+      out.writeObject(comment.value);
+      out.writeByte(comment.type.ordinal());
+      writePosition(out, comment.location.start);
+      writePosition(out, comment.location.end);
+    }
+    out.writeObject(result.ast);
+  }
+
+  private static ParserRunner.ParseResult read(
+      ObjectInputStream in, SourceFile sourceFile, CharSequence code, List<Diagnostic> diagnostics)
+      throws IOException, ClassNotFoundException {
+    if (in.readInt() != FORMAT_VERSION) {
+      throw new IOException("Unexpected AST cache format");
+    }
+    int numDiagnostics = in.readInt();
+    for (int i = 0; i < numDiagnostics; i++) {
+      boolean isError = in.readBoolean();
+      String message = in.readUTF();
+      int line = in.readInt();
+      int lineOffset = in.readInt();
+      diagnostics.add(new Diagnostic(isError, message, line, lineOffset));
+    }
+    FeatureSet features = (FeatureSet) in.readObject();
+    String sourceMapURL = (String) in.readObject();
+    int numComments = in.readInt();
+    List<Comment> comments = new ArrayList<>(numComments);
+    if (numComments > 0) {
+      com.google.javascript.jscomp.parsing.parser.SourceFile parserSourceFile =
+          new com.google.javascript.jscomp.parsing.parser.SourceFile(
+              sourceFile.getName(), code, sourceFile.getLineNumberTable());
+      for (int i = 0; i < numComments; i++) {
+        String value = (String) in.readObject();
+        Comment.Type type = Comment.Type.values()[in.readUnsignedByte()];
+        SourcePosition start = readPosition(in, parserSourceFile);
+        SourcePosition end = readPosition(in, parserSourceFile);
+        comments.add(new Comment(value, new SourceRange(start, end), type));
+      }
+    }
+    Node ast = (Node) in.readObject();
+    return new ParserRunner.ParseResult(ast, comments, features, sourceMapURL);
+  }
+
+  private static void writePosition(ObjectOutputStream out, SourcePosition position)
+      throws IOException {
+    out.writeInt(position.offset);
+    out.writeInt(position.line);
+    out.writeInt(position.column);
+  }
+
+  private static SourcePosition readPosition(
+      ObjectInputStream in, com.google.javascript.jscomp.parsing.parser.SourceFile source)
+      throws IOException {
+    int offset = in.readInt();
+    int line = in.readInt();
+    int column = in.readInt();
+    return new SourcePosition(source, offset, line, column);
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      // Best effort.
+    }
+  }
+
+  /** Stands in for the source file in serialized ASTs, which are shared by identical sources. */
+  private enum SourceFilePlaceholder {
+    INSTANCE
+  }
+
+  private static final class EntryOutputStream extends ObjectOutputStream {
+    EntryOutputStream(OutputStream out) throws IOException {
+      super(out);
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      return obj instanceof SourceFile ? SourceFilePlaceholder.INSTANCE : obj;
+    }
+  }
+
+  private static final class EntryInputStream extends ObjectInputStream {
+    private final SourceFile sourceFile;
+
+    EntryInputStream(InputStream in, SourceFile sourceFile) throws IOException {
+      super(in);
+      this.sourceFile = sourceFile;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) {
+      return obj == SourceFilePlaceholder.INSTANCE ? sourceFile : obj;
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      // Entries only ever hold compiler classes; resolve them with the compiler's class loader.
+      return Class.forName(desc.getName(), false, AstCache.class.getClassLoader());
+    }
+  }
+
+  /** A {@link JsAst} that is parsed through an {@link AstCache}. */
+  private static final class CachedJsAst extends JsAst {
+    private static final long serialVersionUID = 1L;
+
+    // Not needed once the AST is built, and not serializable.
+    private final transient AstCache cache;
+
+    CachedJsAst(SourceFile sourceFile, AstCache cache) {
+      super(sourceFile);
+      this.cache = cache;
+    }
+
+    @Override
+    ParserRunner.ParseResult parseSource(Config config, ErrorReporter reporter)
+        throws IOException {
+      if (cache == null) {
+        return super.parseSource(config, reporter);
+      }
+      SourceFile sourceFile = getSourceFile();
+      CharSequence code = sourceFile.getCodeCharSequence();
+      String key = keyFor(code, config);
+      ParserRunner.ParseResult result = cache.get(key, sourceFile, code, config, reporter);
+      if (result != null) {
+        return result;
+      }
+      RecordingErrorReporter recordingReporter = new RecordingErrorReporter(reporter);
+      result =
+          ParserRunner.parse(
+              sourceFile, code, sourceFile.getLineNumberTable(), config, recordingReporter);
+      cache.put(key, result, recordingReporter.diagnostics);
+      return result;
+    }
+  }
+
+  /** An error or warning of a cached parse. The file is the one that reads the entry. */
+  private static final class Diagnostic {
+    final boolean isError;
+    final String message;
+    final int line;
+    final int lineOffset;
+
+    Diagnostic(boolean isError, String message, int line, int lineOffset) {
+      this.isError = isError;
+      this.message = message;
+      this.line = line;
+      this.lineOffset = lineOffset;
+    }
+
+    void reportTo(ErrorReporter reporter, String sourceName) {
+      if (isError) {
+        reporter.error(message, sourceName, line, lineOffset);
+      } else {
+        reporter.warning(message, sourceName, line, lineOffset);
+      }
+    }
+  }
+
+  /** Forwards the diagnostics of a parse, and records them for its cache entry. */
+  private static final class RecordingErrorReporter implements ErrorReporter {
+    private final ErrorReporter delegate;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    RecordingErrorReporter(ErrorReporter delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void warning(String message, String sourceName, int line, int lineOffset) {
+      diagnostics.add(new Diagnostic(false, message, line, lineOffset));
+      delegate.warning(message, sourceName, line, lineOffset);
+    }
+
+    @Override
+    public void error(String message, String sourceName, int line, int lineOffset) {
+      diagnostics.add(new Diagnostic(true, message, line, lineOffset));
+      delegate.error(message, sourceName, line, lineOffset);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.javascript.jscomp.graph.LatticeElement;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A lattice element that is a set of small integers kept in a dense bit vector, such as the indices
+ * of a {@link LocalVariableIndex}. Copies, joins and comparisons are word operations, which makes
+ * these lattices much cheaper than maps for analyses that run on large functions.
+ *
+ * @param <L> the type of the subclass, so that copies keep it
+ */
+abstract class BitVectorLattice<L extends BitVectorLattice<L>> implements LatticeElement {
+  protected final BitSet bits;
+
+  /** @param size the expected number of bits, the vector grows as needed */
+  protected BitVectorLattice(int size) {
+    this.bits = new BitSet(size);
+  }
+
+  protected BitVectorLattice(BitVectorLattice<L> other) {
+    checkNotNull(other);
+    this.bits = (BitSet) other.bits.clone();
+  }
+
+  /** Returns a copy of this element, which can be modified without affecting this one. */
+  abstract L copy();
+
+  boolean get(int index) {
+    return bits.get(index);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    checkNotNull(other);
+    return other.getClass() == getClass() && bits.equals(((BitVectorLattice<?>) other).bits);
+  }
+
+  @Override
+  public int hashCode() {
+    return bits.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return bits.toString();
+  }
+
+  /** The join of may-analyses, which is the union of the sets. */
+  static final class UnionJoin<L extends BitVectorLattice<L>> implements JoinOp<L> {
+    @Override
+    public L apply(List<L> in) {
+      L result = in.get(0).copy();
+      for (int i = 1; i < in.size(); i++) {
+        result.bits.or(in.get(i).bits);
+      }
+      return result;
+    }
+  }
+}
@@ -63,13 +63,36 @@ final class CombinedCompilerPass implements HotSwapCompilerPass,
 
   CombinedCompilerPass(
       AbstractCompiler compiler, List<Callback> callbacks) {
+    this(compiler, callbacks, false);
+  }
+
+  private CombinedCompilerPass(
+      AbstractCompiler compiler, List<Callback> callbacks, boolean timed) {
     this.compiler = compiler;
     this.callbacks = new CallbackWrapper[callbacks.size()];
     for (int i = 0; i < callbacks.size(); i++) {
-      this.callbacks[i] = new CallbackWrapper(callbacks.get(i));
+      this.callbacks[i] = new CallbackWrapper(callbacks.get(i), timed);
     }
   }
 
+  /**
+   * Creates a combined compiler pass that also measures the time spent in
+   * each callback. See {@link #getCallbackRuntimeNanos(int)}.
+   */
+  static CombinedCompilerPass timed(
+      AbstractCompiler compiler, List<Callback> callbacks) {
+    return new CombinedCompilerPass(compiler, callbacks, true);
+  }
+
+  /**
+   * Returns the time spent so far in the callback at the given index, in
+   * nanoseconds. Always zero unless the pass was created by
+   * {@link #timed(AbstractCompiler, List)}.
+   */
+  long getCallbackRuntimeNanos(int index) {
+    return callbacks[index].runtimeNanos;
+  }
+
   static void traverse(AbstractCompiler compiler, Node root,
       List<Callback> callbacks) {
     if (callbacks.size() == 1) {
@@ -105,8 +128,13 @@ final class CombinedCompilerPass implements HotSwapCompilerPass,
      */
     private Node waiting = null;
 
-    private CallbackWrapper(Callback callback) {
+    /** Whether to measure the time spent in the wrapped callback. */
+    private final boolean timed;
+    private long runtimeNanos = 0;
+
+    private CallbackWrapper(Callback callback, boolean timed) {
       this.callback = callback;
+      this.timed = timed;
       if (callback instanceof ScopedCallback) {
         scopedCallback = (ScopedCallback) callback;
       } else {
@@ -120,27 +148,47 @@ final class CombinedCompilerPass implements HotSwapCompilerPass,
      */
     void visitOrMaybeActivate(NodeTraversal t, Node n, Node parent) {
       if (isActive()) {
+        long start = startTiming();
         callback.visit(t, n, parent);
+        stopTiming(start);
       } else if (waiting == n) {
         waiting = null;
       }
     }
 
     void shouldTraverseIfActive(NodeTraversal t, Node n, Node parent) {
-      if (isActive() && !callback.shouldTraverse(t, n, parent)) {
-        waiting = n;
+      if (isActive()) {
+        long start = startTiming();
+        if (!callback.shouldTraverse(t, n, parent)) {
+          waiting = n;
+        }
+        stopTiming(start);
       }
     }
 
     void enterScopeIfActive(NodeTraversal t) {
       if (isActive() && scopedCallback != null) {
+        long start = startTiming();
         scopedCallback.enterScope(t);
+        stopTiming(start);
       }
     }
 
     void exitScopeIfActive(NodeTraversal t) {
       if (isActive() && scopedCallback != null) {
+        long start = startTiming();
         scopedCallback.exitScope(t);
+        stopTiming(start);
+      }
+    }
+
+    private long startTiming() {
+      return timed ? System.nanoTime() : 0;
+    }
+
+    private void stopTiming(long start) {
+      if (timed) {
+        runtimeNanos += System.nanoTime() - start;
       }
     }
 
@@ -250,6 +250,20 @@ public class CommandLineRunner extends
         + "renaming map produced should be saved")
     private String variableMapOutputFile = "";
 
+    @Option(name = "--optimization_loop_profile",
+        hidden = true,
+        usage = "File where the compiler keeps a profile of the passes of its optimization "
+        + "loops. It is read before the compilation, to order the passes and skip the ones "
+        + "that never change the code, and updated after it. Builds that must be "
+        + "reproducible should not use it.")
+    private String optimizationLoopProfileFile = "";
+
+    @Option(name = "--optimization_time_budget_ms",
+        hidden = true,
+        usage = "If positive, the optimization loops stop early once the optimizations have "
+        + "run for this many milliseconds. The output is valid but may be larger.")
+    private long optimizationTimeBudgetMillis = 0;
+
     @Option(name = "--create_renaming_reports",
         hidden = true,
         handler = BooleanOptionHandler.class,
@@ -672,6 +686,21 @@ public class CommandLineRunner extends
     private CompilerOptions.TracerMode tracerMode =
         CompilerOptions.TracerMode.OFF;
 
+    @Option(name = "--tracer_json_output",
+        hidden = true,
+        usage = "File where the tracer report is also written as JSON, with the runtime, "
+        + "allocations, garbage collections and heap usage of each compiler pass. "
+        + "Implies --tracer_mode=TIMING_ONLY if no tracer mode is set.")
+    private String tracerJsonOutputFile = "";
+
+    @Option(name = "--tracer_trace_events_output",
+        hidden = true,
+        usage = "File where the compiler passes, optimization loop iterations and parse tasks "
+        + "are written as a Trace Event Format JSON file, which trace viewers such as "
+        + "chrome://tracing can open. "
+        + "Implies --tracer_mode=TIMING_ONLY if no tracer mode is set.")
+    private String tracerTraceEventsOutputFile = "";
+
     @Option(name = "--new_type_inf",
         handler = BooleanOptionHandler.class,
         usage = "Checks for type errors using the new type inference algorithm.")
@@ -1591,6 +1620,9 @@ public class CommandLineRunner extends
           .setContinueSavedCompilationFileName(flags.continueSavedCompilationFile)
           .setModule(flags.module)
           .setVariableMapOutputFile(flags.variableMapOutputFile)
+          .setOptimizationLoopProfileFile(flags.optimizationLoopProfileFile)
+          .setTracerJsonOutputFile(flags.tracerJsonOutputFile)
+          .setTracerTraceEventsOutputFile(flags.tracerTraceEventsOutputFile)
           .setCreateNameMapFiles(flags.createNameMapFiles)
           .setPropertyMapOutputFile(flags.propertyMapOutputFile)
           .setCodingConvention(conv)
@@ -1689,6 +1721,8 @@ public class CommandLineRunner extends
 
     options.setContinueAfterErrors(flags.continueAfterErrors);
 
+    options.setOptimizationLoopTimeBudget(flags.optimizationTimeBudgetMillis);
+
     if (flags.useTypesForOptimization) {
       level.setTypeBasedOptimizationOptions(options);
     }
@@ -27,6 +27,8 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.debugging.sourcemap.SourceMapConsumerV3;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.javascript.jscomp.CompilerOptions.DevMode;
@@ -51,6 +53,7 @@ import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.InputId;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.JSDocInfoBuilder;
+import com.google.javascript.rhino.LazyJSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import com.google.javascript.rhino.TypeIRegistry;
@@ -75,6 +78,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
@@ -229,6 +233,25 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   // running, or which functions have been changed by optimizations
   private PhaseOptimizer phaseOptimizer = null;
 
+  // Parses inputs in parallel when options.numParallelThreads > 1. Created lazily, and shared by
+  // every parse of this compiler so that the parse threads are reused.
+  private PrebuildAst astPrebuilder = null;
+
+  // Runs the work of passes on change scopes in parallel when options.numParallelThreads > 1.
+  // Created lazily, and shared by every pass of this compiler so that the threads are reused.
+  private ParallelScopeRunner parallelScopeRunner = null;
+
+  // The changes and errors reported by work running on the threads of the ParallelScopeRunner,
+  // which are applied later by the thread of the pass, in an order that does not depend on the
+  // scheduling of the work.
+  private final ThreadLocal<List<Runnable>> deferredReports = new ThreadLocal<>();
+
+  // The JSDoc comments that were parsed lazily, by source name, whose diagnostics are reported
+  // when the compilation ends. Guarded by the lock of this compiler.
+  private final Map<String, List<LazyJSDocInfo>> lazyJsDocs = new TreeMap<>();
+
+  private ControlFlowGraphCache controlFlowGraphCache = null;
+
   public PerformanceTracker tracker;
 
   // Types that have been forward declared
@@ -733,6 +756,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    */
   public void generateReport() {
     Tracer t = newTracer("generateReport");
+    reportLazyJsDocDiagnostics();
     errorManager.generateReport();
     stopTracer(t, "generateReport");
   }
@@ -890,6 +914,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    * Performs all the bookkeeping required at the end of a compilation.
    */
   private void performPostCompilationTasksInternal() {
+    reportLazyJsDocDiagnostics();
+
     if (options.recordFunctionInformation) {
       recordFunctionInformation();
     }
@@ -1154,6 +1180,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   @Override
   final void afterPass(String passName) {
+    if (controlFlowGraphCache != null) {
+      controlFlowGraphCache.releaseAnnotations();
+    }
     if (options.printSourceAfterEachPass) {
       String currentJsSource = getCurrentJsSource();
       if (!currentJsSource.equals(this.lastJsSource)) {
@@ -1263,7 +1292,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     return new Result(getErrors(), getWarnings(), debugLog.toString(),
         this.variableMap, this.propertyMap,
         this.anonymousFunctionNameMap, this.stringMap, this.functionInformationMap,
-        this.sourceMap, this.externExports, this.cssNames, this.idGeneratorMap, transpiledFiles);
+        this.sourceMap, this.externExports, this.cssNames, this.idGeneratorMap, transpiledFiles,
+        ImmutableSet.copyOf(unfinishedLoopPasses));
   }
 
   /**
@@ -1699,14 +1729,41 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       PrintStream tracerOutput =
           options.getTracerOutput() == null ? this.outStream : options.getTracerOutput();
       tracker = new PerformanceTracker(externsRoot, jsRoot, options.getTracerMode(), tracerOutput);
+      if (options.shouldRecordTraceEvents()) {
+        tracker.setTraceEventRecorder(new TraceEventRecorder());
+      }
+      tracker.setControlFlowGraphCache(getControlFlowGraphCache());
       addChangeHandler(tracker.getCodeChangeHandler());
     }
   }
 
+  @Override
+  TraceEventRecorder getTraceEventRecorder() {
+    return tracker == null ? null : tracker.getTraceEventRecorder();
+  }
+
   //------------------------------------------------------------------------
   // Parsing
   //------------------------------------------------------------------------
 
+  private PrebuildAst getAstPrebuilder() {
+    if (astPrebuilder == null) {
+      astPrebuilder = new PrebuildAst(this, options.numParallelThreads);
+    }
+    return astPrebuilder;
+  }
+
+  /**
+   * Returns whether the main inputs are final before the externs are parsed, in which case they
+   * can all be prebuilt in one parallel batch. Dependency management may prune inputs, and module
+   * processing may rewrite them before they are parsed.
+   */
+  private boolean canPrebuildInputsWithExterns() {
+    return !options.getDependencyOptions().needsManagement()
+        && !options.getLanguageIn().toFeatureSet().has(FeatureSet.Feature.MODULES)
+        && !options.processCommonJSModules;
+  }
+
   /**
    * Parses the externs and main inputs.
    *
@@ -1726,8 +1783,14 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
     try {
       // Parse externs sources.
+      boolean inputsPrebuilt = false;
       if (options.numParallelThreads > 1) {
-        new PrebuildAst(this, options.numParallelThreads).prebuild(externs);
+        if (canPrebuildInputsWithExterns()) {
+          getAstPrebuilder().prebuild(ImmutableList.copyOf(Iterables.concat(externs, inputs)));
+          inputsPrebuilt = true;
+        } else {
+          getAstPrebuilder().prebuild(externs);
+        }
       }
       for (CompilerInput input : externs) {
         Node n = input.getAstRoot(this);
@@ -1821,7 +1884,13 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
       // Build the AST.
       if (options.numParallelThreads > 1) {
-        new PrebuildAst(this, options.numParallelThreads).prebuild(inputs);
+        if (!inputsPrebuilt) {
+          getAstPrebuilder().prebuild(inputs);
+        }
+        // Prebuilding stops on the first halting error; don't parse the rest one by one.
+        if (hasErrors()) {
+          return null;
+        }
       }
 
       for (CompilerInput input : inputs) {
@@ -2149,7 +2218,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       }
     }
     if (options.numParallelThreads > 1) {
-      new PrebuildAst(this, options.numParallelThreads).prebuild(filteredInputs);
+      getAstPrebuilder().prebuild(filteredInputs);
     }
     for (CompilerInput input : filteredInputs) {
       input.setCompiler(this);
@@ -2229,6 +2298,50 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     return oldErrorReporter;
   }
 
+  @Override
+  synchronized void addLazyJsDocs(String sourceName, List<LazyJSDocInfo> fileLazyJsDocs) {
+    List<LazyJSDocInfo> existing = lazyJsDocs.get(sourceName);
+    if (existing == null) {
+      lazyJsDocs.put(sourceName, fileLazyJsDocs);
+    } else {
+      // The file was parsed again.
+      lazyJsDocs.put(sourceName, ImmutableList.copyOf(Iterables.concat(existing, fileLazyJsDocs)));
+    }
+  }
+
+  /** Binds the unparsed JSDoc of the deserialized scripts under {@code root} to this compiler. */
+  @GwtIncompatible("ObjectInputStream")
+  private void bindLazyJsDocs(@Nullable Node root, Config config) {
+    if (root == null) {
+      return;
+    }
+    for (Node script = root.getFirstChild(); script != null; script = script.getNext()) {
+      List<LazyJSDocInfo> scriptLazyJsDocs =
+          ParserRunner.bindLazyJsDocs(script, config, getDefaultErrorReporter());
+      if (!scriptLazyJsDocs.isEmpty()) {
+        addLazyJsDocs(script.getSourceFileName(), scriptLazyJsDocs);
+      }
+    }
+  }
+
+  /**
+   * Reports the diagnostics of the JSDoc comments that were parsed lazily, or not at all, file by
+   * file and in source order within each file. The diagnostics do not depend on which comments the
+   * passes read, nor on when or on which thread they read them.
+   */
+  private void reportLazyJsDocDiagnostics() {
+    List<List<LazyJSDocInfo>> toReport;
+    synchronized (this) {
+      toReport = new ArrayList<>(lazyJsDocs.values());
+      lazyJsDocs.clear();
+    }
+    for (List<LazyJSDocInfo> fileLazyJsDocs : toReport) {
+      for (LazyJSDocInfo lazyJsDoc : fileLazyJsDocs) {
+        lazyJsDoc.reportDiagnostics();
+      }
+    }
+  }
+
   //------------------------------------------------------------------------
   // Convert back to source code
   //------------------------------------------------------------------------
@@ -2599,6 +2712,27 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     codeChangeHandlers.remove(handler);
   }
 
+  @Override
+  ParallelScopeRunner getParallelScopeRunner() {
+    if (parallelScopeRunner == null) {
+      parallelScopeRunner = new ParallelScopeRunner(this, options.numParallelThreads);
+    }
+    return parallelScopeRunner;
+  }
+
+  @Override
+  ControlFlowGraphCache getControlFlowGraphCache() {
+    if (controlFlowGraphCache == null) {
+      controlFlowGraphCache =
+          new ControlFlowGraphCache(
+              options.shouldCacheControlFlowGraphs()
+                  ? ControlFlowGraphCache.DEFAULT_MAX_CACHED_NODES
+                  : 0,
+              options.devMode != DevMode.OFF);
+    }
+    return controlFlowGraphCache;
+  }
+
   @Override
   void addIndexProvider(IndexProvider<?> indexProvider) {
     Class<?> type = indexProvider.getType();
@@ -2706,15 +2840,65 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   }
 
   @Override
-  public void reportChangeToChangeScope(Node changeScopeRoot) {
+  Runnable runDeferringReports(Runnable work) {
+    final List<Runnable> reports = new ArrayList<>();
+    deferredReports.set(reports);
+    try {
+      work.run();
+    } finally {
+      deferredReports.remove();
+    }
+    return new Runnable() {
+      @Override
+      public void run() {
+        for (Runnable report : reports) {
+          report.run();
+        }
+      }
+    };
+  }
+
+  /**
+   * Records the given report to be applied later if the current thread defers its reports, see
+   * {@link #runDeferringReports}, and returns whether it did.
+   */
+  private boolean deferReport(Runnable report) {
+    List<Runnable> reports = deferredReports.get();
+    if (reports == null) {
+      return false;
+    }
+    reports.add(report);
+    return true;
+  }
+
+  @Override
+  public void reportChangeToChangeScope(final Node changeScopeRoot) {
     checkState(changeScopeRoot.isScript() || changeScopeRoot.isFunction());
+    if (deferReport(
+        new Runnable() {
+          @Override
+          public void run() {
+            reportChangeToChangeScope(changeScopeRoot);
+          }
+        })) {
+      return;
+    }
     recordChange(changeScopeRoot);
     notifyChangeHandlers();
   }
 
   @Override
-  public void reportFunctionDeleted(Node n) {
+  public void reportFunctionDeleted(final Node n) {
     checkState(n.isFunction());
+    if (deferReport(
+        new Runnable() {
+          @Override
+          public void run() {
+            reportFunctionDeleted(n);
+          }
+        })) {
+      return;
+    }
     n.setDeleted(true);
     changeTimeline.remove(n);
     deleteTimeline.add(n);
@@ -2722,7 +2906,18 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
   @Override
   public void reportChangeToEnclosingScope(Node n) {
-    recordChange(getChangeScopeForNode(n));
+    // The node may be detached by the time a deferred report is applied.
+    final Node changeScopeRoot = getChangeScopeForNode(n);
+    if (deferReport(
+        new Runnable() {
+          @Override
+          public void run() {
+            reportChangeToChangeScope(changeScopeRoot);
+          }
+        })) {
+      return;
+    }
+    recordChange(changeScopeRoot);
     notifyChangeHandlers();
   }
 
@@ -2799,7 +2994,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
                 : Config.RunMode.STOP_AFTER_ERROR,
             options.extraAnnotationNames,
             options.parseInlineSourceMaps,
-            strictMode);
+            strictMode,
+            options.shouldParseJsDocLazily());
     return config;
   }
 
@@ -2816,7 +3012,16 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   }
 
   @Override
-  public void report(JSError error) {
+  public void report(final JSError error) {
+    if (deferReport(
+        new Runnable() {
+          @Override
+          public void run() {
+            report(error);
+          }
+        })) {
+      return;
+    }
     CheckLevel level = error.getDefaultLevel();
     if (warningsGuard != null) {
       CheckLevel newLevel = warningsGuard.level(error);
@@ -3053,6 +3258,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   /** Id generator map */
   private String idGeneratorMap = null;
 
+  /** Optimization loop passes that were stopped before reaching a fixpoint. */
+  private final Set<String> unfinishedLoopPasses = new LinkedHashSet<>();
+
   /** Names exported by goog.exportSymbol. */
   private final Set<String> exportedNames = new LinkedHashSet<>();
 
@@ -3098,6 +3306,11 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     this.idGeneratorMap = serializedIdMappings;
   }
 
+  @Override
+  void recordUnfinishedLoopPasses(List<String> passNames) {
+    unfinishedLoopPasses.addAll(passNames);
+  }
+
   @Override
   public IdGenerator getCrossModuleIdGenerator() {
     return crossModuleIdGenerator;
@@ -3683,10 +3896,21 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     annotationMap = checkNotNull(compilerState.annotationMap);
     inputSourceMaps = compilerState.inputSourceMaps;
     changeStamp = compilerState.changeStamp;
+    if (controlFlowGraphCache != null) {
+      // The graphs are of the functions of the AST that was replaced.
+      controlFlowGraphCache.clear();
+    }
 
     // Reapply module names to deserialized modules
     renameModules(newModules, modules);
 
+    // The AST holds the lazily parsed JSDoc of the saved compilation; it is now this one's.
+    synchronized (this) {
+      lazyJsDocs.clear();
+    }
+    bindLazyJsDocs(externsRoot, getParserConfig(ConfigContext.EXTERNS));
+    bindLazyJsDocs(jsRoot, getParserConfig(ConfigContext.DEFAULT));
+
     // restore errors.
     if (compilerState.errors != null) {
       for (JSError error : compilerState.errors) {
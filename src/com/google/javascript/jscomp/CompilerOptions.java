@@ -207,6 +207,8 @@ public class CompilerOptions implements Serializable {
 
   private Config.JsDocParsing parseJsDocDocumentation = Config.JsDocParsing.TYPES_ONLY;
 
+  private boolean parseJsDocLazily = false;
+
   private boolean printExterns;
 
   void setPrintExterns(boolean printExterns) {
@@ -416,6 +418,37 @@ public class CompilerOptions implements Serializable {
     numParallelThreads = parallelism;
   }
 
+  private boolean cacheControlFlowGraphs = false;
+
+  /**
+   * Keeps the control flow graphs of functions from one pass to the next, and only rebuilds the
+   * graphs of the functions that changed. Off by default. The cached graphs are only correct if
+   * every pass reports the functions that it changes; in dev mode, each cached graph that is
+   * handed out is checked against a new one.
+   */
+  public void setCacheControlFlowGraphs(boolean cacheControlFlowGraphs) {
+    this.cacheControlFlowGraphs = cacheControlFlowGraphs;
+  }
+
+  boolean shouldCacheControlFlowGraphs() {
+    return cacheControlFlowGraphs;
+  }
+
+  private boolean parallelPeepholeOptimizations = false;
+
+  /**
+   * Runs the peephole optimizations of the change scopes on up to {@link #setNumParallelThreads}
+   * threads. Off by default. They still run serially when they use types, see {@link
+   * #setUseTypesForLocalOptimization}, since the types are not safe to query concurrently.
+   */
+  public void setParallelPeepholeOptimizations(boolean parallelPeepholeOptimizations) {
+    this.parallelPeepholeOptimizations = parallelPeepholeOptimizations;
+  }
+
+  boolean shouldRunPeepholeOptimizationsInParallel() {
+    return parallelPeepholeOptimizations && numParallelThreads > 1 && !useTypesForLocalOptimization;
+  }
+
   //--------------------------------
   // Optimizations
   //--------------------------------
@@ -584,6 +617,21 @@ public class CompilerOptions implements Serializable {
    */
   int optimizationLoopMaxIterations;
 
+  /**
+   * When {@link #useSizeHeuristicToStopOptimizationLoop} is on, the code-removing loops stop once
+   * two batches in a row shrink the AST by less than this percentage.
+   */
+  double optimizationLoopMinSizeGainPercent = 0.05;
+
+  /**
+   * If positive, the optimization loops stop at the end of their current iteration once the
+   * optimizations have run for this many milliseconds.
+   */
+  long optimizationLoopTimeBudgetMillis;
+
+  /** Where the optimization loops record how their passes behave, if anywhere. */
+  @Nullable private LoopPassProfile optimizationLoopProfile;
+
   //--------------------------------
   // Renaming
   //--------------------------------
@@ -1058,6 +1106,20 @@ public class CompilerOptions implements Serializable {
     tracerOutput = out;
   }
 
+  private boolean recordTraceEvents;
+
+  boolean shouldRecordTraceEvents() {
+    return recordTraceEvents;
+  }
+
+  /**
+   * When the tracer is on, also records the passes, the iterations of the optimization loops and
+   * the parsing of each input, on every thread, as events for trace viewers.
+   */
+  public void setRecordTraceEvents(boolean recordTraceEvents) {
+    this.recordTraceEvents = recordTraceEvents;
+  }
+
   private boolean colorizeErrorOutput;
 
   public ErrorFormat errorFormat;
@@ -2202,6 +2264,20 @@ public class CompilerOptions implements Serializable {
     return this.parseJsDocDocumentation;
   }
 
+  /**
+   * Defers parsing JSDoc comments until a pass first reads their JSDocInfo. The warnings about
+   * malformed JSDoc are the same as with eager parsing, but they are reported when the compilation
+   * ends, by {@link Compiler#performPostCompilationTasks} or {@link Compiler#generateReport}, file
+   * by file and in source order. The comments that no pass read are parsed at that point.
+   */
+  public void setParseJsDocLazily(boolean parseJsDocLazily) {
+    this.parseJsDocLazily = parseJsDocLazily;
+  }
+
+  boolean shouldParseJsDocLazily() {
+    return parseJsDocLazily;
+  }
+
   /**
    * Skip all passes (other than transpilation, if requested). Don't inject any
    * runtime libraries (unless explicitly requested) or do any checks/optimizations
@@ -2364,6 +2440,39 @@ public class CompilerOptions implements Serializable {
     return this.useTypesForLocalOptimization;
   }
 
+  /**
+   * Sets the size gain, as a percentage of the AST, under which the code-removing optimization
+   * loops stop before reaching a fixpoint. The default is 0.05%. Higher values give faster builds
+   * and larger output.
+   */
+  public void setOptimizationLoopMinSizeGain(double percent) {
+    this.optimizationLoopMinSizeGainPercent = percent;
+  }
+
+  /**
+   * Sets a budget for the optimizations, in milliseconds. Once it is spent, each optimization loop
+   * stops at the end of its current iteration, after running each of its passes at least once, and
+   * the passes that still had work to do are reported in {@link Result#unfinishedLoopPasses}. The
+   * output is valid but may be larger. Zero, the default, means no budget.
+   */
+  public void setOptimizationLoopTimeBudget(long millis) {
+    this.optimizationLoopTimeBudgetMillis = millis;
+  }
+
+  /**
+   * Sets a profile of the passes of the optimization loops, which earlier compiles of the same code
+   * base may have filled. The loops use it to order their passes and to stop repeating the passes
+   * that never change the code, and record their own runs in it.
+   */
+  public void setOptimizationLoopProfile(@Nullable LoopPassProfile optimizationLoopProfile) {
+    this.optimizationLoopProfile = optimizationLoopProfile;
+  }
+
+  @Nullable
+  public LoopPassProfile getOptimizationLoopProfile() {
+    return optimizationLoopProfile;
+  }
+
   @Deprecated
   public void setUseTypesForOptimization(boolean useTypesForOptimization) {
     if (useTypesForOptimization) {
@@ -2893,6 +3002,7 @@ public class CompilerOptions implements Serializable {
             .add("assumeClosuresOnlyCaptureReferences", assumeClosuresOnlyCaptureReferences)
             .add("assumeStrictThis", assumeStrictThis())
             .add("brokenClosureRequiresLevel", brokenClosureRequiresLevel)
+            .add("cacheControlFlowGraphs", cacheControlFlowGraphs)
             .add("chainCalls", chainCalls)
             .add("checkDeterminism", getCheckDeterminism())
             .add("checkGlobalNamesLevel", checkGlobalNamesLevel)
@@ -2996,7 +3106,9 @@ public class CompilerOptions implements Serializable {
             .add(
                 "parentModuleCanSeeSymbolsDeclaredInChildren",
                 parentModuleCanSeeSymbolsDeclaredInChildren)
+            .add("parallelPeepholeOptimizations", parallelPeepholeOptimizations)
             .add("parseJsDocDocumentation", isParseJsDocDocumentation())
+            .add("parseJsDocLazily", parseJsDocLazily)
             .add("polymerVersion", polymerVersion)
             .add("preferLineBreakAtEndOfFile", preferLineBreakAtEndOfFile)
             .add("preferSingleQuotes", preferSingleQuotes)
@@ -141,8 +141,21 @@ public final class ControlFlowAnalysis implements Callback, CompilerPass {
     this.edgeAnnotations = edgeAnnotations;
   }
 
+  /**
+   * Returns the control flow graph of a function or of the global scope, which doesn't traverse
+   * the inner functions and allows edge annotations. The graphs of functions come from the
+   * compiler's {@link ControlFlowGraphCache}, so they may be shared with other passes.
+   */
   public static ControlFlowGraph<Node> getCfg(AbstractCompiler compiler, Node cfgRoot) {
     checkArgument(NodeUtil.isValidCfgRoot(cfgRoot));
+    if (cfgRoot.isFunction()) {
+      return compiler.getControlFlowGraphCache().getCfg(compiler, cfgRoot);
+    }
+    return computeCfg(compiler, cfgRoot);
+  }
+
+  /** Builds the same graph as {@link #getCfg(AbstractCompiler, Node)}, without the cache. */
+  static ControlFlowGraph<Node> computeCfg(AbstractCompiler compiler, Node cfgRoot) {
     ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
     cfa.process(null, cfgRoot);
     return cfa.getCfg();
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.Sets;
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
+import com.google.javascript.rhino.Node;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the control flow graphs of functions from one pass to the next, so that the passes of the
+ * optimization loops don't rebuild the graph of a function that did not change since they last saw
+ * it.
+ *
+ * <p>A graph is valid as long as its function has the change time that it had when the graph was
+ * built. Passes must report their changes anyway, see {@link
+ * AbstractCompiler#reportChangeToChangeScope}, and the graph of a function only depends on the
+ * function itself, since inner functions are not traversed.
+ *
+ * <p>The graphs are built with edge annotations, so that they serve all the passes. The analyses
+ * that annotate a graph initialize its annotations first, so a cached graph needs no cleanup before
+ * it is handed out again. The annotations are still dropped at the end of each pass, so that the
+ * cache doesn't keep the results of the analyses alive.
+ *
+ * <p>The cache is bounded by the number of nodes of its graphs. Once it is full, the graphs of the
+ * functions that changed or were deleted are dropped, and if that is not enough, the new graphs are
+ * not cached. Unlike evicting the least recently used graphs, this keeps some graphs useful when
+ * the passes visit more functions than fit in the cache, in the same order each time.
+ *
+ * <p>A pass that changes a function without reporting it gets the stale graph of the function. In
+ * dev mode, the cache checks every graph that it hands out against a graph built anew.
+ *
+ * <p>Passes may ask for graphs from several threads.
+ */
+final class ControlFlowGraphCache {
+  /** The default bound of the cache, in graph nodes. */
+  static final int DEFAULT_MAX_CACHED_NODES = 1 << 20;
+
+  private final int maxCachedNodes;
+  private final boolean checkHits;
+  private final Map<Node, CachedGraph> graphs = new HashMap<>();
+  // The graphs that were handed out since the annotations were last released.
+  private final Set<ControlFlowGraph<Node>> annotatedGraphs = Sets.newIdentityHashSet();
+  private int cachedNodes = 0;
+  private long hits = 0;
+  private long misses = 0;
+
+  /** @param maxCachedNodes the most graph nodes to keep, zero to only count the lookups */
+  ControlFlowGraphCache(int maxCachedNodes) {
+    this(maxCachedNodes, false);
+  }
+
+  /**
+   * @param maxCachedNodes the most graph nodes to keep, zero to only count the lookups
+   * @param checkHits whether to check that the cached graphs are the same as new ones
+   */
+  ControlFlowGraphCache(int maxCachedNodes, boolean checkHits) {
+    checkArgument(maxCachedNodes >= 0, maxCachedNodes);
+    this.maxCachedNodes = maxCachedNodes;
+    this.checkHits = checkHits;
+  }
+
+  /**
+   * Returns the control flow graph of a function, which doesn't traverse the inner functions.
+   * Builds the graph unless the cache has a graph of the function as it is now.
+   */
+  ControlFlowGraph<Node> getCfg(AbstractCompiler compiler, Node function) {
+    checkArgument(function.isFunction(), function);
+    ControlFlowGraph<Node> cfg = lookUp(function);
+    if (cfg == null) {
+      int changeTime = function.getChangeTime();
+      cfg = ControlFlowAnalysis.computeCfg(compiler, function);
+      store(function, changeTime, cfg);
+    } else if (checkHits) {
+      checkState(
+          isSameGraph(cfg, ControlFlowAnalysis.computeCfg(compiler, function)),
+          "The cached control flow graph of %s is stale, was a change not reported?",
+          NodeUtil.getName(function));
+    }
+    return cfg;
+  }
+
+  /**
+   * Returns whether two graphs have the same nodes, and the same edges out of each node in the same
+   * order.
+   */
+  private static boolean isSameGraph(ControlFlowGraph<Node> cfg, ControlFlowGraph<Node> other) {
+    if (cfg.getNodes().size() != other.getNodes().size()) {
+      return false;
+    }
+    for (DiGraphNode<Node, Branch> node : cfg.getDirectedGraphNodes()) {
+      DiGraphNode<Node, Branch> otherNode = other.getDirectedGraphNode(node.getValue());
+      if (otherNode == null) {
+        return false;
+      }
+      List<DiGraphEdge<Node, Branch>> edges = node.getOutEdges();
+      List<DiGraphEdge<Node, Branch>> otherEdges = otherNode.getOutEdges();
+      if (edges.size() != otherEdges.size()) {
+        return false;
+      }
+      for (int i = 0; i < edges.size(); i++) {
+        if (edges.get(i).getValue() != otherEdges.get(i).getValue()
+            || edges.get(i).getDestination().getValue()
+                != otherEdges.get(i).getDestination().getValue()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private synchronized ControlFlowGraph<Node> lookUp(Node function) {
+    CachedGraph cached = graphs.get(function);
+    if (cached != null && cached.isValid()) {
+      hits++;
+      annotatedGraphs.add(cached.cfg);
+      return cached.cfg;
+    }
+    if (cached != null) {
+      graphs.remove(function);
+      cachedNodes -= cached.size;
+    }
+    misses++;
+    return null;
+  }
+
+  private synchronized void store(Node function, int changeTime, ControlFlowGraph<Node> cfg) {
+    if (function.getChangeTime() != changeTime) {
+      // The function changed while its graph was built.
+      return;
+    }
+    CachedGraph cached = new CachedGraph(function, changeTime, cfg);
+    if (cachedNodes + cached.size > maxCachedNodes) {
+      dropInvalidGraphs();
+      if (cachedNodes + cached.size > maxCachedNodes) {
+        return;
+      }
+    }
+    CachedGraph previous = graphs.put(function, cached);
+    if (previous != null) {
+      cachedNodes -= previous.size;
+    }
+    cachedNodes += cached.size;
+    annotatedGraphs.add(cfg);
+  }
+
+  private void dropInvalidGraphs() {
+    for (Iterator<CachedGraph> it = graphs.values().iterator(); it.hasNext(); ) {
+      CachedGraph cached = it.next();
+      if (!cached.isValid()) {
+        it.remove();
+        cachedNodes -= cached.size;
+      }
+    }
+  }
+
+  /**
+   * Drops the annotations that the analyses left on the graphs that were handed out since the last
+   * call. Called at the end of each pass.
+   */
+  synchronized void releaseAnnotations() {
+    for (ControlFlowGraph<Node> cfg : annotatedGraphs) {
+      cfg.clearNodeAnnotations();
+      cfg.clearEdgeAnnotations();
+    }
+    annotatedGraphs.clear();
+  }
+
+  /** Drops all the graphs, e.g. when the AST is replaced. The counters are kept. */
+  synchronized void clear() {
+    graphs.clear();
+    annotatedGraphs.clear();
+    cachedNodes = 0;
+  }
+
+  /** Returns how many graphs were found in the cache. */
+  synchronized long getHits() {
+    return hits;
+  }
+
+  /** Returns how many graphs had to be built. */
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  synchronized int getCachedNodeCount() {
+    return cachedNodes;
+  }
+
+  private static final class CachedGraph {
+    final Node function;
+    final int changeTime;
+    final ControlFlowGraph<Node> cfg;
+    final int size;
+
+    CachedGraph(Node function, int changeTime, ControlFlowGraph<Node> cfg) {
+      this.function = function;
+      this.changeTime = changeTime;
+      this.cfg = cfg;
+      this.size = cfg.getNodes().size();
+    }
+
+    boolean isValid() {
+      return !function.isDeleted() && function.getChangeTime() == changeTime;
+    }
+  }
+}
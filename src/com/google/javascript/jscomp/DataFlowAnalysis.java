@@ -28,15 +28,19 @@ import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.jscomp.parsing.parser.util.format.SimpleFormat;
 import com.google.javascript.rhino.Node;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * A framework to help writing static program analysis. A subclass of
@@ -90,7 +94,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
 
   private final ControlFlowGraph<N> cfg;
   final JoinOp<L> joinOp;
-  protected final Set<DiGraphNode<N, Branch>> orderedWorkSet;
+  protected PriorityWorklist<DiGraphNode<N, Branch>> orderedWorkSet;
 
   /*
    * Feel free to increase this to a reasonable number if you are finding that
@@ -124,12 +128,6 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
   DataFlowAnalysis(ControlFlowGraph<N> targetCfg, JoinOp<L> joinOp) {
     this.cfg = targetCfg;
     this.joinOp = joinOp;
-    Comparator<DiGraphNode<N, Branch>> nodeComparator = cfg.getOptionalNodeComparator(isForward());
-    if (nodeComparator != null) {
-      this.orderedWorkSet = new TreeSet<>(nodeComparator);
-    } else {
-      this.orderedWorkSet = new LinkedHashSet<>();
-    }
   }
 
   /**
@@ -209,8 +207,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
         throw new MaxIterationsExceededException(
             "Analysis did not terminate after " + maxSteps + " iterations");
       }
-      DiGraphNode<N, Branch> curNode = orderedWorkSet.iterator().next();
-      orderedWorkSet.remove(curNode);
+      DiGraphNode<N, Branch> curNode = orderedWorkSet.poll();
       joinInputs(curNode);
       if (flow(curNode)) {
         // If there is a change in the current node, we want to grab the list
@@ -249,10 +246,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
    * Initializes the work list and the control flow graph.
    */
   protected void initialize() {
-    // TODO(user): Calling clear doesn't deallocate the memory in a
-    // LinkedHashSet. Consider creating a new work set if we plan to repeatedly
-    // call analyze.
-    orderedWorkSet.clear();
+    orderedWorkSet = createWorklist();
     for (DiGraphNode<N, Branch> node : cfg.getDirectedGraphNodes()) {
       node.setAnnotation(new FlowState<>(createInitialEstimateLattice(),
           createInitialEstimateLattice()));
@@ -262,6 +256,71 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
     }
   }
 
+  /**
+   * Creates an empty work list, which numbers the nodes of the graph in the order in which the
+   * analysis should visit them: the order of the graph's comparator if it has one, and otherwise
+   * the reverse postorder of a depth-first search in the direction of the flow.
+   */
+  final PriorityWorklist<DiGraphNode<N, Branch>> createWorklist() {
+    Comparator<DiGraphNode<N, Branch>> nodeComparator = cfg.getOptionalNodeComparator(isForward());
+    List<DiGraphNode<N, Branch>> order;
+    if (nodeComparator != null) {
+      order = new ArrayList<>();
+      for (DiGraphNode<N, Branch> node : cfg.getDirectedGraphNodes()) {
+        // The implicit return is never in the work list, and comparators may not handle it.
+        if (node != cfg.getImplicitReturn()) {
+          order.add(node);
+        }
+      }
+      Collections.sort(order, nodeComparator);
+    } else {
+      order = computeReversePostorder();
+    }
+    return new PriorityWorklist<>(order);
+  }
+
+  /**
+   * Returns the nodes in the reverse postorder of a depth-first search that starts at the entry of
+   * the flow, followed by the nodes that the search doesn't reach. In that order, a node comes
+   * after its predecessors in the flow, except along back edges.
+   */
+  private List<DiGraphNode<N, Branch>> computeReversePostorder() {
+    boolean isForward = isForward();
+    DiGraphNode<N, Branch> start = isForward ? cfg.getEntry() : cfg.getImplicitReturn();
+    Set<DiGraphNode<N, Branch>> visited = new HashSet<>();
+    List<DiGraphNode<N, Branch>> postorder = new ArrayList<>();
+    Deque<DiGraphNode<N, Branch>> stack = new ArrayDeque<>();
+    Deque<Iterator<DiGraphNode<N, Branch>>> successors = new ArrayDeque<>();
+    visited.add(start);
+    stack.push(start);
+    successors.push(nextInFlow(start, isForward).iterator());
+    while (!stack.isEmpty()) {
+      Iterator<DiGraphNode<N, Branch>> it = successors.peek();
+      if (it.hasNext()) {
+        DiGraphNode<N, Branch> next = it.next();
+        if (visited.add(next)) {
+          stack.push(next);
+          successors.push(nextInFlow(next, isForward).iterator());
+        }
+      } else {
+        postorder.add(stack.pop());
+        successors.pop();
+      }
+    }
+    Collections.reverse(postorder);
+    for (DiGraphNode<N, Branch> node : cfg.getDirectedGraphNodes()) {
+      if (visited.add(node)) {
+        postorder.add(node);
+      }
+    }
+    return postorder;
+  }
+
+  private List<DiGraphNode<N, Branch>> nextInFlow(
+      DiGraphNode<N, Branch> node, boolean isForward) {
+    return isForward ? cfg.getDirectedSuccNodes(node) : cfg.getDirectedPredNodes(node);
+  }
+
   /**
    * Performs a single flow through a node.
    *
@@ -387,6 +446,53 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
     }
   }
 
+  /**
+   * A set of the nodes that are waiting to be processed, which always gives out the node that comes
+   * first in a fixed order. The nodes are numbered by their position in the order, so that adding
+   * a node and taking the first one are operations on a bit set, rather than on a sorted set that
+   * compares the nodes.
+   *
+   * @param <T> The node type.
+   */
+  static final class PriorityWorklist<T> {
+    private final Map<T, Integer> indices;
+    private final List<T> nodes;
+    private final BitSet pending;
+    // No index below this one is pending.
+    private int lowestPending = 0;
+
+    /** @param nodes All the nodes that can be added, in the order in which they are taken. */
+    PriorityWorklist(List<T> nodes) {
+      this.nodes = nodes;
+      this.indices = new HashMap<>();
+      for (int i = 0; i < nodes.size(); i++) {
+        indices.put(nodes.get(i), i);
+      }
+      this.pending = new BitSet(nodes.size());
+    }
+
+    /** Adds a node, unless it is already waiting. */
+    void add(T node) {
+      Integer index = indices.get(node);
+      checkArgument(index != null, "Unknown node %s", node);
+      pending.set(index);
+      lowestPending = Math.min(lowestPending, index);
+    }
+
+    /** Removes and returns the waiting node that comes first. */
+    T poll() {
+      int index = pending.nextSetBit(lowestPending);
+      checkState(index >= 0, "The work list is empty");
+      pending.clear(index);
+      lowestPending = index + 1;
+      return nodes.get(index);
+    }
+
+    boolean isEmpty() {
+      return pending.isEmpty();
+    }
+  }
+
   /**
    * The exception to be thrown if the analysis has been running for a long
    * number of iterations. Chances are the analysis is not monotonic, a
@@ -404,7 +510,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
 
     @Override
     protected void initialize() {
-      orderedWorkSet.clear();
+      orderedWorkSet = createWorklist();
       for (DiGraphNode<N, Branch> node : getCfg().getDirectedGraphNodes()) {
         int outEdgeCount = getCfg().getOutEdges(node.getValue()).size();
         List<L> outLattices = new ArrayList<>();
@@ -552,14 +658,17 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
    *       foo in the dataflow.
    *
    * @param jsScope Must be a function scope
+   * @param vars The variables of {@code jsScope}
    */
   static void computeEscaped(
       final Scope jsScope,
       final Set<Var> escaped,
       AbstractCompiler compiler,
-      Es6SyntacticScopeCreator scopeCreator) {
+      Es6SyntacticScopeCreator scopeCreator,
+      LocalVariableIndex vars) {
 
     checkArgument(jsScope.isFunctionScope());
+    checkArgument(vars.getFunctionScope() == jsScope);
 
     AbstractPostOrderCallback finder =
         new AbstractPostOrderCallback() {
@@ -583,16 +692,12 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
           }
         };
 
-    Map<String, Var> allVarsInFn = new HashMap<>();
-    List<Var> orderedVars = new ArrayList<>();
-    NodeUtil.getAllVarsDeclaredInFunction(
-        allVarsInFn, orderedVars, compiler, scopeCreator, jsScope);
     NodeTraversal t = new NodeTraversal(compiler, finder, scopeCreator);
     t.traverseAtScope(jsScope);
 
     // TODO (simranarora) catch variables should not be considered escaped in ES6. Getting rid of
     // the catch check is causing breakages however
-    for (Var var : allVarsInFn.values()) {
+    for (Var var : vars.getVarsByName().values()) {
       if (var.getParentNode().isCatch()
           || compiler.getCodingConvention().isExported(var.getName())) {
         escaped.add(var);
@@ -16,7 +16,6 @@
 
 package com.google.javascript.jscomp;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.javascript.jscomp.PassFactory.createEmptyPass;
@@ -31,6 +30,7 @@ import static com.google.javascript.jscomp.parsing.parser.FeatureSet.TYPESCRIPT;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
 import com.google.javascript.jscomp.AbstractCompiler.MostRecentTypechecker;
 import com.google.javascript.jscomp.CompilerOptions.ExtractPrototypeMemberDeclarationsMode;
@@ -40,6 +40,7 @@ import com.google.javascript.jscomp.CoverageInstrumentationPass.InstrumentOption
 import com.google.javascript.jscomp.ExtractPrototypeMemberDeclarations.Pattern;
 import com.google.javascript.jscomp.NodeTraversal.Callback;
 import com.google.javascript.jscomp.PassFactory.HotSwapPassFactory;
+import com.google.javascript.jscomp.PassFactory.TraversalCheckFactory;
 import com.google.javascript.jscomp.lint.CheckArrayWithGoogObject;
 import com.google.javascript.jscomp.lint.CheckDuplicateCase;
 import com.google.javascript.jscomp.lint.CheckEmptyStatements;
@@ -292,6 +293,10 @@ public final class DefaultPassConfig extends PassConfig {
       checks.add(checkRequiresAndProvidesSorted);
     }
 
+    // Shares the traversal of the checks above. The module and class rewriting below does not
+    // change ES6 classes.
+    checks.add(checkMissingSuper);
+
     if (options.enables(DiagnosticGroups.MISSING_REQUIRE)
         || options.enables(DiagnosticGroups.STRICT_MISSING_REQUIRE)
         || options.enables(DiagnosticGroups.EXTRA_REQUIRE)) {
@@ -314,8 +319,6 @@ public final class DefaultPassConfig extends PassConfig {
       checks.add(declaredGlobalExternsOnWindow);
     }
 
-    checks.add(checkMissingSuper);
-
     if (options.closurePass) {
       checks.add(closureGoogScopeAliases);
       checks.add(closureRewriteClass);
@@ -355,10 +358,16 @@ public final class DefaultPassConfig extends PassConfig {
       checks.add(suspiciousCode);
     }
 
+    // These checks only read the AST and share one traversal with suspiciousCode, so keep them
+    // next to it.
     if (options.closurePass && options.checkMissingGetCssNameLevel.isOn()) {
       checks.add(closureCheckGetCssName);
     }
 
+    if (options.computeFunctionSideEffects) {
+      checks.add(checkRegExp);
+    }
+
     if (options.syntheticBlockStartMarker != null) {
       // This pass must run before the first fold constants pass.
       checks.add(createSyntheticBlocks);
@@ -370,10 +379,6 @@ public final class DefaultPassConfig extends PassConfig {
       checks.add(inferConsts);
     }
 
-    if (options.computeFunctionSideEffects) {
-      checks.add(checkRegExp);
-    }
-
     // This pass should run before types are assigned.
     if (options.processObjectPropertyString) {
       checks.add(objectPropertyStringPreprocess);
@@ -1086,10 +1091,10 @@ public final class DefaultPassConfig extends PassConfig {
       };
 
   /** Checks for code that is probably wrong (such as stray expressions). */
-  private final HotSwapPassFactory suspiciousCode =
-      new HotSwapPassFactory("suspiciousCode") {
+  private final TraversalCheckFactory suspiciousCode =
+      new TraversalCheckFactory("suspiciousCode") {
         @Override
-        protected HotSwapCompilerPass create(final AbstractCompiler compiler) {
+        protected List<Callback> createCallbacks(AbstractCompiler compiler) {
           List<Callback> sharedCallbacks = new ArrayList<>();
           if (options.checkSuspiciousCode) {
             sharedCallbacks.add(new CheckSuspiciousCode());
@@ -1104,7 +1109,7 @@ public final class DefaultPassConfig extends PassConfig {
             sharedCallbacks.add(new CheckDebuggerStatement(compiler));
           }
 
-          return combineChecks(compiler, sharedCallbacks);
+          return sharedCallbacks;
         }
 
         @Override
@@ -1259,15 +1264,11 @@ public final class DefaultPassConfig extends PassConfig {
           "Exports can only be generated if export symbol/property functions are set.");
 
   /** Verifies JSDoc annotations are used properly and checks for ES6 modules. */
-  private final HotSwapPassFactory checkJsDocAndEs6Modules =
-      new HotSwapPassFactory("checkJsDocAndEs6Modules") {
+  private final TraversalCheckFactory checkJsDocAndEs6Modules =
+      new TraversalCheckFactory("checkJsDocAndEs6Modules") {
         @Override
-        protected HotSwapCompilerPass create(AbstractCompiler compiler) {
-          ImmutableList.Builder<Callback> callbacks =
-              ImmutableList.<Callback>builder()
-                  .add(new CheckJSDoc(compiler))
-                  .add(new Es6CheckModule(compiler));
-          return combineChecks(compiler, callbacks.build());
+        protected List<Callback> createCallbacks(AbstractCompiler compiler) {
+          return ImmutableList.<Callback>of(new CheckJSDoc(compiler), new Es6CheckModule(compiler));
         }
 
         @Override
@@ -1631,14 +1632,15 @@ public final class DefaultPassConfig extends PassConfig {
       };
 
   /** Checks that CSS class names are wrapped in goog.getCssName */
-  private final PassFactory closureCheckGetCssName =
-      new PassFactory("closureCheckGetCssName", true) {
+  private final TraversalCheckFactory closureCheckGetCssName =
+      new TraversalCheckFactory("closureCheckGetCssName") {
         @Override
-        protected CompilerPass create(AbstractCompiler compiler) {
-          return new CheckMissingGetCssName(
-              compiler,
-              options.checkMissingGetCssNameLevel,
-              options.checkMissingGetCssNameBlacklist);
+        protected List<Callback> createCallbacks(AbstractCompiler compiler) {
+          return ImmutableList.<Callback>of(
+              new CheckMissingGetCssName(
+                  compiler,
+                  options.checkMissingGetCssNameLevel,
+                  options.checkMissingGetCssNameBlacklist));
         }
 
         @Override
@@ -1836,19 +1838,17 @@ public final class DefaultPassConfig extends PassConfig {
       };
 
   /** Checks for RegExp references. */
-  private final PassFactory checkRegExp =
-      new PassFactory(PassNames.CHECK_REG_EXP, true) {
+  private final TraversalCheckFactory checkRegExp =
+      new TraversalCheckFactory(PassNames.CHECK_REG_EXP) {
         @Override
-        protected CompilerPass create(final AbstractCompiler compiler) {
-          final CheckRegExp pass = new CheckRegExp(compiler);
+        protected List<Callback> createCallbacks(AbstractCompiler compiler) {
+          return ImmutableList.<Callback>of(new CheckRegExp(compiler));
+        }
 
-          return new CompilerPass() {
-            @Override
-            public void process(Node externs, Node root) {
-              pass.process(externs, root);
-              compiler.setHasRegExpGlobalReferences(pass.isGlobalRegExpPropertiesUsed());
-            }
-          };
+        @Override
+        protected void afterTraversal(AbstractCompiler compiler, List<Callback> callbacks) {
+          CheckRegExp check = (CheckRegExp) Iterables.getOnlyElement(callbacks);
+          compiler.setHasRegExpGlobalReferences(check.isGlobalRegExpPropertiesUsed());
         }
 
         @Override
@@ -1886,11 +1886,11 @@ public final class DefaultPassConfig extends PassConfig {
       };
 
   /** Checks that references to variables look reasonable. */
-  private final HotSwapPassFactory checkMissingSuper =
-      new HotSwapPassFactory("checkMissingSuper") {
+  private final TraversalCheckFactory checkMissingSuper =
+      new TraversalCheckFactory("checkMissingSuper") {
         @Override
-        protected HotSwapCompilerPass create(AbstractCompiler compiler) {
-          return new CheckMissingSuper(compiler);
+        protected List<Callback> createCallbacks(AbstractCompiler compiler) {
+          return ImmutableList.<Callback>of(new CheckMissingSuper(compiler));
         }
 
         @Override
@@ -2053,10 +2053,10 @@ public final class DefaultPassConfig extends PassConfig {
    * Checks possible execution paths of the program for problems: missing return
    * statements and dead code.
    */
-  private final HotSwapPassFactory checkControlFlow =
-      new HotSwapPassFactory("checkControlFlow") {
+  private final TraversalCheckFactory checkControlFlow =
+      new TraversalCheckFactory("checkControlFlow") {
     @Override
-    protected HotSwapCompilerPass create(AbstractCompiler compiler) {
+    protected List<Callback> createCallbacks(AbstractCompiler compiler) {
       List<Callback> callbacks = new ArrayList<>();
       if (!options.disables(DiagnosticGroups.CHECK_USELESS_CODE)) {
         callbacks.add(new CheckUnreachableCode(compiler));
@@ -2064,7 +2064,7 @@ public final class DefaultPassConfig extends PassConfig {
       if (!options.getNewTypeInference() && !options.disables(DiagnosticGroups.MISSING_RETURN)) {
         callbacks.add(new CheckMissingReturn(compiler));
       }
-      return combineChecks(compiler, callbacks);
+      return callbacks;
     }
 
     @Override
@@ -2088,10 +2088,10 @@ public final class DefaultPassConfig extends PassConfig {
     }
   };
 
-  private final HotSwapPassFactory lintChecks =
-      new HotSwapPassFactory(PassNames.LINT_CHECKS) {
+  private final TraversalCheckFactory lintChecks =
+      new TraversalCheckFactory(PassNames.LINT_CHECKS) {
         @Override
-        protected HotSwapCompilerPass create(AbstractCompiler compiler) {
+        protected List<Callback> createCallbacks(AbstractCompiler compiler) {
           ImmutableList.Builder<Callback> callbacks =
               ImmutableList.<Callback>builder()
                   .add(new CheckEmptyStatements(compiler))
@@ -2103,7 +2103,7 @@ public final class DefaultPassConfig extends PassConfig {
                   .add(new CheckPrototypeProperties(compiler))
                   .add(new CheckUnusedLabels(compiler))
                   .add(new CheckUselessBlocks(compiler));
-          return combineChecks(compiler, callbacks.build());
+          return callbacks.build();
         }
 
         @Override
@@ -2112,10 +2112,10 @@ public final class DefaultPassConfig extends PassConfig {
         }
       };
 
-  private final HotSwapPassFactory analyzerChecks =
-      new HotSwapPassFactory(PassNames.ANALYZER_CHECKS) {
+  private final TraversalCheckFactory analyzerChecks =
+      new TraversalCheckFactory(PassNames.ANALYZER_CHECKS) {
         @Override
-        protected HotSwapCompilerPass create(AbstractCompiler compiler) {
+        protected List<Callback> createCallbacks(AbstractCompiler compiler) {
           ImmutableList.Builder<Callback> callbacks = ImmutableList.<Callback>builder();
           if (options.enables(DiagnosticGroups.ANALYZER_CHECKS_INTERNAL)) {
             callbacks
@@ -2127,7 +2127,7 @@ public final class DefaultPassConfig extends PassConfig {
           if (options.enables(DiagnosticGroups.UNUSED_PRIVATE_PROPERTY)) {
             callbacks.add(new CheckUnusedPrivateProperties(compiler));
           }
-          return combineChecks(compiler, callbacks.build());
+          return callbacks.build();
         }
 
         @Override
@@ -2136,11 +2136,11 @@ public final class DefaultPassConfig extends PassConfig {
         }
       };
 
-  private final HotSwapPassFactory checkRequiresAndProvidesSorted =
-      new HotSwapPassFactory("checkRequiresAndProvidesSorted") {
+  private final TraversalCheckFactory checkRequiresAndProvidesSorted =
+      new TraversalCheckFactory("checkRequiresAndProvidesSorted") {
         @Override
-        protected HotSwapCompilerPass create(AbstractCompiler compiler) {
-          return new CheckRequiresAndProvidesSorted(compiler);
+        protected List<Callback> createCallbacks(AbstractCompiler compiler) {
+          return ImmutableList.<Callback>of(new CheckRequiresAndProvidesSorted(compiler));
         }
 
         @Override
@@ -2149,13 +2149,6 @@ public final class DefaultPassConfig extends PassConfig {
         }
       };
 
-  /** Executes the given callbacks with a {@link CombinedCompilerPass}. */
-  private static HotSwapCompilerPass combineChecks(AbstractCompiler compiler,
-      List<Callback> callbacks) {
-    checkArgument(!callbacks.isEmpty());
-    return new CombinedCompilerPass(compiler, callbacks);
-  }
-
   /** A compiler pass that resolves types in the global scope. */
   class GlobalTypeResolver implements HotSwapCompilerPass {
     private final AbstractCompiler compiler;
@@ -144,13 +144,12 @@ class FlowSensitiveInlineVariables implements CompilerPass, ScopedCallback {
     Es6SyntacticScopeCreator scopeCreator = (Es6SyntacticScopeCreator) t.getScopeCreator();
 
     // Compute the forward reaching definition.
-    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
+    cfg = ControlFlowAnalysis.getCfg(compiler, functionScopeRoot);
 
-    // Process the body of the function.
-    cfa.process(null, functionScopeRoot);
-    cfg = cfa.getCfg();
-
-    reachingDef = new MustBeReachingVariableDef(cfg, t.getScope(), compiler, scopeCreator);
+    // Both analyses number the variables of the function the same way.
+    LocalVariableIndex vars =
+        new LocalVariableIndex(compiler, scopeCreator, t.getScope().getParent());
+    reachingDef = new MustBeReachingVariableDef(cfg, compiler, scopeCreator, vars);
     reachingDef.analyze();
     candidates = new LinkedHashSet<>();
 
@@ -158,7 +157,7 @@ class FlowSensitiveInlineVariables implements CompilerPass, ScopedCallback {
     // candidates
     NodeTraversal.traverseEs6(compiler, t.getScopeRoot(), new GatherCandidates());
     // Compute the backward reaching use. The CFG can be reused.
-    reachingUses = new MaybeReachingVariableUse(cfg, t.getScope(), compiler, scopeCreator);
+    reachingUses = new MaybeReachingVariableUse(cfg, compiler, scopeCreator, vars);
     reachingUses.analyze();
     while (!candidates.isEmpty()) {
       Candidate c = candidates.iterator().next();
@@ -245,10 +245,7 @@ class InstrumentFunctions implements CompilerPass {
      */
     private boolean allPathsReturn(Node function) {
       // Computes the control flow graph.
-      ControlFlowAnalysis cfa = new ControlFlowAnalysis(
-          compiler, false, false);
-      cfa.process(null, function);
-      ControlFlowGraph<Node> cfg = cfa.getCfg();
+      ControlFlowGraph<Node> cfg = ControlFlowAnalysis.getCfg(compiler, function);
 
       Node returnPathsParent = cfg.getImplicitReturn().getValue();
       for (DiGraphNode<Node, Branch> pred :
@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.parsing.Config;
 import com.google.javascript.jscomp.parsing.ParserRunner;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
 import com.google.javascript.rhino.ErrorReporter;
@@ -145,19 +146,22 @@ public class JsAst implements SourceAst {
   }
 
   private void parse(AbstractCompiler compiler) {
+    TraceEventRecorder traceEvents = compiler.getTraceEventRecorder();
+    long startMicros = traceEvents == null ? 0 : traceEvents.now();
     RecordingReporterProxy reporter = new RecordingReporterProxy(
         compiler.getDefaultErrorReporter());
 
     try {
-      ParserRunner.ParseResult result = ParserRunner.parse(
-          sourceFile,
-          sourceFile.getCode(),
+      ParserRunner.ParseResult result = parseSource(
           compiler.getParserConfig(sourceFile.isExtern()
               ? AbstractCompiler.ConfigContext.EXTERNS
               : AbstractCompiler.ConfigContext.DEFAULT),
           reporter);
       root = result.ast;
       features = result.features;
+      if (!result.lazyJsDocs.isEmpty()) {
+        compiler.addLazyJsDocs(sourceFile.getName(), result.lazyJsDocs);
+      }
 
       if (compiler.getOptions().preservesDetailedSourceInfo()) {
         compiler.addComments(sourceFile.getName(), result.comments);
@@ -191,6 +195,23 @@ public class JsAst implements SourceAst {
     // Set the source name so that the compiler passes can track
     // the source file and module.
     root.setStaticSourceFile(sourceFile);
+
+    if (traceEvents != null) {
+      traceEvents.addSlice(sourceFile.getName(), "parse", startMicros);
+    }
+  }
+
+  /**
+   * Runs the parser over the code of the source file. Subclasses may instead return the results
+   * of an earlier parse of the same code with the same config.
+   */
+  ParserRunner.ParseResult parseSource(Config config, ErrorReporter reporter) throws IOException {
+    return ParserRunner.parse(
+        sourceFile,
+        sourceFile.getCodeCharSequence(),
+        sourceFile.getLineNumberTable(),
+        config,
+        reporter);
   }
 
   @GwtIncompatible("ObjectinputStream")
@@ -17,16 +17,28 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.annotations.GwtIncompatible;
-
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
 import java.io.PrintStream;
 import java.lang.management.CompilationMXBean;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.WeakHashMap;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
 
 /**
  * A class to report jvm/jmx statistics.
@@ -250,6 +262,150 @@ class JvmMetrics {
     }
   }
 
+  /**
+   * Returns the number of bytes allocated so far by the current thread, or -1 if the JVM cannot
+   * tell.
+   */
+  static long getCurrentThreadAllocatedBytes() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threadBean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /** Returns the number of garbage collections so far, for all collectors. */
+  static long getGcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gcBean.getCollectionCount());
+    }
+    return count;
+  }
+
+  /** Returns the time spent in garbage collection so far, in milliseconds, for all collectors. */
+  static long getGcTimeMillis() {
+    long time = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(0, gcBean.getCollectionTime());
+    }
+    return time;
+  }
+
+  /**
+   * The highest total heap usage seen since an instance was created or last restarted. The heap
+   * usage is polled whenever an instance is restarted or asked for its peak, and sampled right
+   * before every garbage collection, when the heap is at its fullest.
+   *
+   * <p>Unlike the peak usage of the memory pools, this peak belongs to the instance: restarting it
+   * does not reset anything that other monitoring in the JVM may read. Garbage collections are
+   * reported asynchronously, so a collection that happens right before a restart may be counted
+   * after it.
+   */
+  static final class HeapPeak {
+    private long peakBytes;
+
+    HeapPeak() {
+      registerGcListener();
+      synchronized (openHeapPeaks) {
+        openHeapPeaks.add(this);
+      }
+      restart();
+    }
+
+    /** Forgets the peak so far. */
+    synchronized void restart() {
+      peakBytes = getHeapUsedBytes();
+    }
+
+    synchronized long getPeakBytes() {
+      sample(getHeapUsedBytes());
+      return peakBytes;
+    }
+
+    private synchronized void sample(long usedBytes) {
+      peakBytes = Math.max(peakBytes, usedBytes);
+    }
+  }
+
+  /** The heap peaks that are sampled at each garbage collection, until they are collected. */
+  private static final Set<HeapPeak> openHeapPeaks =
+      Collections.newSetFromMap(new WeakHashMap<HeapPeak, Boolean>());
+
+  private static boolean gcListenerRegistered = false;
+
+  private static synchronized void registerGcListener() {
+    if (gcListenerRegistered) {
+      return;
+    }
+    gcListenerRegistered = true;
+    NotificationListener listener =
+        new NotificationListener() {
+          @Override
+          public void handleNotification(Notification notification, Object handback) {
+            if (!notification
+                .getType()
+                .equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+              return;
+            }
+            GcInfo gcInfo =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData())
+                    .getGcInfo();
+            long usedBytes = getHeapUsedBytes(gcInfo.getMemoryUsageBeforeGc());
+            List<HeapPeak> heapPeaks;
+            synchronized (openHeapPeaks) {
+              heapPeaks = new ArrayList<>(openHeapPeaks);
+            }
+            for (HeapPeak heapPeak : heapPeaks) {
+              heapPeak.sample(usedBytes);
+            }
+          }
+        };
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (gcBean instanceof NotificationEmitter) {
+        ((NotificationEmitter) gcBean).addNotificationListener(listener, null, null);
+      }
+    }
+  }
+
+  /** Returns the heap in use by the whole JVM at this time. */
+  private static long getHeapUsedBytes() {
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /** Returns the sum of the usages of the heap pools among the given usages by pool name. */
+  private static long getHeapUsedBytes(Map<String, MemoryUsage> usageByPool) {
+    long used = 0;
+    for (MemoryPoolMXBean mpBean : ManagementFactory.getMemoryPoolMXBeans()) {
+      MemoryUsage usage = usageByPool.get(mpBean.getName());
+      if (mpBean.getType() == MemoryType.HEAP && usage != null) {
+        used += usage.getUsed();
+      }
+    }
+    return used;
+  }
+
+  /**
+   * Returns the heap in use right after the last garbage collection, that is the heap retained by
+   * live objects at that time, or 0 if the JVM cannot tell.
+   */
+  static long getHeapRetainedBytes() {
+    GcInfo lastGc = null;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (gcBean instanceof com.sun.management.GarbageCollectorMXBean) {
+        GcInfo gcInfo = ((com.sun.management.GarbageCollectorMXBean) gcBean).getLastGcInfo();
+        if (gcInfo != null && (lastGc == null || gcInfo.getEndTime() > lastGc.getEndTime())) {
+          lastGc = gcInfo;
+        }
+      }
+    }
+    if (lastGc == null) {
+      return 0;
+    }
+    return getHeapUsedBytes(lastGc.getMemoryUsageAfterGc());
+  }
+
   private static String normalizeName(String name) {
     return name.replace(' ', '_').toLowerCase();
   }
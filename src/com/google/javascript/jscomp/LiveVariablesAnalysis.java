@@ -15,15 +15,11 @@
  */
 package com.google.javascript.jscomp;
 
-import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
-import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.Node;
-import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -52,57 +48,31 @@ class LiveVariablesAnalysis
 
   public static final String ARGUMENT_ARRAY_ALIAS = "arguments";
 
-  private static class LiveVariableJoinOp implements JoinOp<LiveVariableLattice> {
-    @Override
-    public LiveVariableLattice apply(List<LiveVariableLattice> in) {
-      LiveVariableLattice result = new LiveVariableLattice(in.get(0));
-      for (int i = 1; i < in.size(); i++) {
-        result.liveSet.or(in.get(i).liveSet);
-      }
-      return result;
-    }
-  }
-
   /**
    * The lattice that stores the liveness of all local variables at a given point in the program.
    * The whole lattice is the power set of all local variables and a variable is live if it is in
    * the set.
    */
-  static class LiveVariableLattice implements LatticeElement {
-    private final BitSet liveSet;
-
+  static class LiveVariableLattice extends BitVectorLattice<LiveVariableLattice> {
     /** @param numVars Number of all local variables. */
     private LiveVariableLattice(int numVars) {
-      this.liveSet = new BitSet(numVars);
+      super(numVars);
     }
 
     private LiveVariableLattice(LiveVariableLattice other) {
-      checkNotNull(other);
-      this.liveSet = (BitSet) other.liveSet.clone();
+      super(other);
     }
 
     @Override
-    public boolean equals(Object other) {
-      checkNotNull(other);
-      return (other instanceof LiveVariableLattice)
-          && this.liveSet.equals(((LiveVariableLattice) other).liveSet);
+    LiveVariableLattice copy() {
+      return new LiveVariableLattice(this);
     }
 
     // There is only a version of this function with index since var.index will
     // return the wrong one. Use an instantiation of
     // LiveVariablesAnalysis and getVarIndex(var) to get the right index.
     public boolean isLive(int index) {
-      return liveSet.get(index);
-    }
-
-    @Override
-    public String toString() {
-      return liveSet.toString();
-    }
-
-    @Override
-    public int hashCode() {
-      return liveSet.hashCode();
+      return get(index);
     }
   }
 
@@ -113,15 +83,9 @@ class LiveVariablesAnalysis
   private final Scope jsScopeChild;
   private final Set<Var> escaped;
 
-  // Maps the variable name to it's position
-  // in this jsScope were we to combine the function and function body scopes. The Integer
-  // represents the equivalent of the variable index property within a scope
-  private final Map<String, Integer> scopeVariables;
-
-  // obtain variables in the order in which they appear in the code
-  private final List<Var> orderedVars;
+  // Numbers the variables of the function and of its body as if they were in one scope.
+  private final LocalVariableIndex vars;
 
-  private final Map<String, Var> allVarsInFn;
   /**
    * Live Variables Analysis using the ES6 scope creator. This analysis should only be done on
    * function where jsScope is the function scope. If we call LiveVariablesAnalysis from the
@@ -144,34 +108,18 @@ class LiveVariablesAnalysis
       @Nullable Scope jsScopeChild,
       AbstractCompiler compiler,
       Es6SyntacticScopeCreator scopeCreator) {
-    super(cfg, new LiveVariableJoinOp());
+    super(cfg, new BitVectorLattice.UnionJoin<LiveVariableLattice>());
     checkState(jsScope.isFunctionScope(), jsScope);
 
     this.jsScope = jsScope;
     this.jsScopeChild = jsScopeChild;
     this.escaped = new HashSet<>();
-    this.scopeVariables = new HashMap<>();
-    this.allVarsInFn = new HashMap<>();
-    this.orderedVars = new ArrayList<>();
+    // Parameters belong to the function scope, but variables defined in the function body belong
+    // to the function body scope. The index gives each variable a unique index, regardless of which
+    // scope it's in.
+    this.vars = new LocalVariableIndex(compiler, scopeCreator, jsScope);
 
-    computeEscaped(jsScope, escaped, compiler, scopeCreator);
-
-    NodeUtil.getAllVarsDeclaredInFunction(
-        allVarsInFn, orderedVars, compiler, scopeCreator, jsScope);
-    addScopeVariables();
-  }
-
-  /**
-   * Parameters belong to the function scope, but variables defined in the function body belong to
-   * the function body scope. Assign a unique index to each variable, regardless of which scope it's
-   * in.
-   */
-  private void addScopeVariables() {
-    int num = 0;
-    for (Var v : orderedVars) {
-      scopeVariables.put(v.getName(), num);
-      num++;
-    }
+    computeEscaped(jsScope, escaped, compiler, scopeCreator, vars);
   }
 
   public Set<? extends Var> getEscapedLocals() {
@@ -179,15 +127,15 @@ class LiveVariablesAnalysis
   }
 
   public Map<String, Var> getAllVariables() {
-    return allVarsInFn;
+    return vars.getVarsByName();
   }
 
   public List<Var> getAllVariablesInOrder() {
-    return orderedVars;
+    return vars.getOrderedVars();
   }
 
   public int getVarIndex(String var) {
-    return scopeVariables.get(var);
+    return vars.getIndex(var);
   }
 
   @Override
@@ -197,18 +145,18 @@ class LiveVariablesAnalysis
 
   @Override
   LiveVariableLattice createEntryLattice() {
-    return new LiveVariableLattice(orderedVars.size());
+    return new LiveVariableLattice(vars.size());
   }
 
   @Override
   LiveVariableLattice createInitialEstimateLattice() {
-    return new LiveVariableLattice(orderedVars.size());
+    return new LiveVariableLattice(vars.size());
   }
 
   @Override
   LiveVariableLattice flowThrough(Node node, LiveVariableLattice input) {
-    final BitSet gen = new BitSet(input.liveSet.size());
-    final BitSet kill = new BitSet(input.liveSet.size());
+    final BitSet gen = new BitSet(input.bits.size());
+    final BitSet kill = new BitSet(input.bits.size());
 
     // Make kills conditional if the node can end abruptly by an exception.
     boolean conditional = false;
@@ -221,8 +169,8 @@ class LiveVariablesAnalysis
     computeGenKill(node, gen, kill, conditional);
     LiveVariableLattice result = new LiveVariableLattice(input);
     // L_in = L_out - Kill + Gen
-    result.liveSet.andNot(kill);
-    result.liveSet.or(gen);
+    result.bits.andNot(kill);
+    result.bits.or(gen);
     return result;
   }
 
@@ -340,7 +288,7 @@ class LiveVariablesAnalysis
     checkState(node.isName(), node);
     String name = node.getString();
 
-    Var var = allVarsInFn.get(name);
+    Var var = vars.getVar(name);
     if (var == null) {
       return;
     }
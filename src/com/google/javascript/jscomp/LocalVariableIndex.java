@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Numbers the variables declared in a function, in its parameters and in all its block scopes, so
+ * that data flow analyses can keep their facts about the variables in dense vectors, see {@link
+ * BitVectorLattice}.
+ *
+ * <p>Variables are identified by name, as in {@link NodeUtil#getAllVarsDeclaredInFunction}: if an
+ * inner block scope redeclares a name, the name gets the index of its last declaration.
+ *
+ * <p>The analyses of the same function can share an index.
+ */
+final class LocalVariableIndex {
+  private final Scope functionScope;
+  private final Map<String, Var> varsByName = new HashMap<>();
+  private final List<Var> orderedVars = new ArrayList<>();
+  private final Map<String, Integer> indices = new HashMap<>();
+
+  /** @param functionScope the scope of the function, not of its body */
+  LocalVariableIndex(
+      AbstractCompiler compiler, Es6SyntacticScopeCreator scopeCreator, Scope functionScope) {
+    this.functionScope = functionScope;
+    NodeUtil.getAllVarsDeclaredInFunction(
+        varsByName, orderedVars, compiler, scopeCreator, functionScope);
+    for (int i = 0; i < orderedVars.size(); i++) {
+      indices.put(orderedVars.get(i).getName(), i);
+    }
+  }
+
+  Scope getFunctionScope() {
+    return functionScope;
+  }
+
+  /** Returns the number of indices, which is the size of the vectors of the analyses. */
+  int size() {
+    return orderedVars.size();
+  }
+
+  /** Returns the variable with the given name, or null if the function doesn't declare it. */
+  @Nullable
+  Var getVar(String name) {
+    return varsByName.get(name);
+  }
+
+  /** Returns the index of the variable with the given name, or -1 if it is not declared. */
+  int getIndex(String name) {
+    Integer index = indices.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /** Returns the variables by name. */
+  Map<String, Var> getVarsByName() {
+    return varsByName;
+  }
+
+  /** Returns the variables in the order in which they are declared. */
+  List<Var> getOrderedVars() {
+    return orderedVars;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A record of how the passes of the optimization loops behaved on a code base: how many times each
+ * pass ran, how many of those runs changed the code, and how long they took.
+ *
+ * <p>When a profile is set with {@link CompilerOptions#setOptimizationLoopProfile}, the {@link
+ * PhaseOptimizer} adds the runs of the current compile to it, and uses what earlier compiles
+ * recorded to order the passes of each loop and to stop running the passes that never change this
+ * code base. Saving the profile after a compile and loading it before the next one lets the builds
+ * of a project learn from each other.
+ *
+ * <p>A profile only changes the order and the number of pass runs, so the output of a compile
+ * depends on the profile it started with. Builds that must be reproducible should not use one.
+ */
+public final class LoopPassProfile implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private static final String HEADER = "# loop pass profile v1";
+
+  /**
+   * The number of runs that a pass must have made without ever changing the code before the loops
+   * stop repeating it.
+   */
+  @VisibleForTesting
+  static final int MIN_RUNS_TO_BE_DORMANT = 20;
+
+  private final Map<String, PassStats> statsByName = new TreeMap<>();
+
+  /** Records one run of a loop pass. */
+  void recordRun(String passName, boolean madeChanges, long nanos) {
+    PassStats stats = statsByName.get(passName);
+    if (stats == null) {
+      stats = new PassStats();
+      statsByName.put(passName, stats);
+    }
+    stats.runs++;
+    if (madeChanges) {
+      stats.runsWithChanges++;
+    }
+    stats.nanos += nanos;
+  }
+
+  /**
+   * Returns the fraction of its runs in which the pass changed the code, or 1 if it never ran, so
+   * that new passes are not penalized.
+   */
+  double getChangeRate(String passName) {
+    PassStats stats = statsByName.get(passName);
+    return stats == null || stats.runs == 0 ? 1.0 : (double) stats.runsWithChanges / stats.runs;
+  }
+
+  /** Returns the average duration of a run of the pass, or 0 if it never ran. */
+  long getAverageNanos(String passName) {
+    PassStats stats = statsByName.get(passName);
+    return stats == null || stats.runs == 0 ? 0 : stats.nanos / stats.runs;
+  }
+
+  /** Whether the pass ran often enough, and never changed the code, to be worth repeating. */
+  boolean isDormant(String passName) {
+    PassStats stats = statsByName.get(passName);
+    return stats != null && stats.runs >= MIN_RUNS_TO_BE_DORMANT && stats.runsWithChanges == 0;
+  }
+
+  /**
+   * Reads a profile written by {@link #save}. Returns an empty profile if the file does not exist
+   * yet, or if it cannot be understood, so that a stale profile never breaks a build.
+   */
+  @GwtIncompatible("java.nio.file")
+  public static LoopPassProfile load(String filename) throws IOException {
+    Path path = Paths.get(filename);
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(path, UTF_8);
+    } catch (NoSuchFileException e) {
+      return new LoopPassProfile();
+    }
+    LoopPassProfile profile = new LoopPassProfile();
+    if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+      return profile;
+    }
+    for (String line : lines.subList(1, lines.size())) {
+      List<String> fields = Splitter.on('\t').splitToList(line);
+      if (fields.size() != 4) {
+        return new LoopPassProfile();
+      }
+      PassStats stats = new PassStats();
+      try {
+        stats.runs = Long.parseLong(fields.get(1));
+        stats.runsWithChanges = Long.parseLong(fields.get(2));
+        stats.nanos = Long.parseLong(fields.get(3));
+      } catch (NumberFormatException e) {
+        return new LoopPassProfile();
+      }
+      profile.statsByName.put(fields.get(0), stats);
+    }
+    return profile;
+  }
+
+  /** Writes the profile to a file, one line per pass. */
+  @GwtIncompatible("java.nio.file")
+  public void save(String filename) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add(HEADER);
+    for (Map.Entry<String, PassStats> entry : statsByName.entrySet()) {
+      PassStats stats = entry.getValue();
+      lines.add(
+          entry.getKey() + "\t" + stats.runs + "\t" + stats.runsWithChanges + "\t" + stats.nanos);
+    }
+    Files.write(Paths.get(filename), lines, UTF_8);
+  }
+
+  private static final class PassStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    long runs;
+    long runsWithChanges;
+    long nanos;
+  }
+}
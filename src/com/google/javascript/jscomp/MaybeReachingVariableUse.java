@@ -19,15 +19,13 @@ package com.google.javascript.jscomp;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
 import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.Node;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -49,24 +47,44 @@ class MaybeReachingVariableUse extends
 
   // The scope of the function that we are analyzing.
   private final Set<Var> escaped;
-  private final Map<String, Var> allVarsInFn;
-  private final List<Var> orderedVars;
+  private final LocalVariableIndex vars;
+
+  // The uses are numbered so that the lattice can be a bit vector. A use is a pair of a variable
+  // and a CFG node that reads it, numbered when the analysis first sees it.
+  private final List<Node> useNodes = new ArrayList<>();
+  // The numbers of the uses of each variable, by the node of the use and by the variable index.
+  private final List<Map<Node, Integer>> useIndices;
+  private final BitSet[] usesOfVar;
 
   MaybeReachingVariableUse(
       ControlFlowGraph<Node> cfg,
       Scope jsScope,
       AbstractCompiler compiler,
       Es6SyntacticScopeCreator scopeCreator) {
-    super(cfg, new ReachingUsesJoinOp());
+    this(cfg, compiler, scopeCreator,
+        new LocalVariableIndex(compiler, scopeCreator, jsScope.getParent()));
+  }
+
+  /** @param vars the index of the variables of the function, which may be shared */
+  MaybeReachingVariableUse(
+      ControlFlowGraph<Node> cfg,
+      AbstractCompiler compiler,
+      Es6SyntacticScopeCreator scopeCreator,
+      LocalVariableIndex vars) {
+    // The join is a simple union because of the "may be" nature of the analysis. Consider:
+    // A = 1; if (x) { A = 2 }; alert(A); The read of A "may be" exposed to A = 1 in the beginning.
+    super(cfg, new BitVectorLattice.UnionJoin<ReachingUses>());
     this.escaped = new HashSet<>();
-    this.allVarsInFn = new HashMap<>();
-    this.orderedVars = new ArrayList<>();
+    this.vars = vars;
+    this.useIndices = new ArrayList<>(vars.size());
+    for (int i = 0; i < vars.size(); i++) {
+      useIndices.add(new HashMap<Node, Integer>());
+    }
+    this.usesOfVar = new BitSet[vars.size()];
 
     // TODO(user): Maybe compute it somewhere else and re-use the escape
     // local set here.
-    computeEscaped(jsScope.getParent(), escaped, compiler, scopeCreator);
-    NodeUtil.getAllVarsDeclaredInFunction(
-        allVarsInFn, orderedVars, compiler, scopeCreator, jsScope.getParent());
+    computeEscaped(vars.getFunctionScope(), escaped, compiler, scopeCreator, vars);
   }
 
   /**
@@ -91,12 +109,13 @@ class MaybeReachingVariableUse extends
    * N_7: print(A);
    *
    * At N_3, reads of A in {N_4, N_5} are said to be upward exposed.
+   *
+   * <p>Each pair of a variable and a node is a bit of the vector, see
+   * {@link #getUseIndex}.
    */
-  static final class ReachingUses implements LatticeElement {
-    final Multimap<Var, Node> mayUseMap;
-
+  static final class ReachingUses extends BitVectorLattice<ReachingUses> {
     public ReachingUses() {
-      mayUseMap = HashMultimap.create();
+      super(0);
     }
 
     /**
@@ -105,36 +124,12 @@ class MaybeReachingVariableUse extends
      * @param other The constructed object is a replicated copy of this element.
      */
     public ReachingUses(ReachingUses other) {
-      mayUseMap = MultimapBuilder.hashKeys().hashSetValues().build(other.mayUseMap);
+      super(other);
     }
 
     @Override
-    public boolean equals(Object other) {
-      return (other instanceof ReachingUses)
-          && ((ReachingUses) other).mayUseMap.equals(this.mayUseMap);
-    }
-
-    @Override
-    public int hashCode() {
-      return mayUseMap.hashCode();
-    }
-  }
-
-  /**
-   * The join is a simple union because of the "may be" nature of the analysis.
-   *
-   * Consider: A = 1; if (x) { A = 2 }; alert(A);
-   *
-   * The read of A "may be" exposed to A = 1 in the beginning.
-   */
-  private static class ReachingUsesJoinOp implements JoinOp<ReachingUses> {
-    @Override
-    public ReachingUses apply(List<ReachingUses> from) {
-      ReachingUses result = new ReachingUses();
-      for (ReachingUses uses : from) {
-        result.mayUseMap.putAll(uses.mayUseMap);
-      }
-      return result;
+    ReachingUses copy() {
+      return new ReachingUses(this);
     }
   }
 
@@ -268,12 +263,12 @@ class MaybeReachingVariableUse extends
    * variable.
    */
   private void addToUseIfLocal(String name, Node node, ReachingUses use) {
-    Var var = allVarsInFn.get(name);
-    if (var == null) {
+    int index = vars.getIndex(name);
+    if (index == -1) {
       return;
     }
-    if (!escaped.contains(var)) {
-      use.mayUseMap.put(var, node);
+    if (!escaped.contains(vars.getVar(name))) {
+      use.bits.set(getUseIndex(index, node));
     }
   }
 
@@ -283,15 +278,31 @@ class MaybeReachingVariableUse extends
    * variable.
    */
   private void removeFromUseIfLocal(String name, ReachingUses use) {
-    Var var = allVarsInFn.get(name);
-    if (var == null) {
+    int index = vars.getIndex(name);
+    if (index == -1) {
       return;
     }
-    if (!escaped.contains(var)) {
-      use.mayUseMap.removeAll(var);
+    if (!escaped.contains(vars.getVar(name)) && usesOfVar[index] != null) {
+      use.bits.andNot(usesOfVar[index]);
     }
   }
 
+  /** Returns the number of the use of the variable with the given index in the given node. */
+  private int getUseIndex(int varIndex, Node node) {
+    Map<Node, Integer> indices = useIndices.get(varIndex);
+    Integer useIndex = indices.get(node);
+    if (useIndex == null) {
+      useIndex = useNodes.size();
+      useNodes.add(node);
+      indices.put(node, useIndex);
+      if (usesOfVar[varIndex] == null) {
+        usesOfVar[varIndex] = new BitSet();
+      }
+      usesOfVar[varIndex].set(useIndex);
+    }
+    return useIndex;
+  }
+
   /**
    * Gets a list of nodes that may be using the value assigned to {@code name}
    * in {@code defNode}. {@code defNode} must be one of the control flow graph
@@ -306,6 +317,16 @@ class MaybeReachingVariableUse extends
     GraphNode<Node, Branch> n = getCfg().getNode(defNode);
     checkNotNull(n);
     FlowState<ReachingUses> state = n.getAnnotation();
-    return state.getOut().mayUseMap.get(allVarsInFn.get(name));
+    int index = vars.getIndex(name);
+    if (index == -1 || usesOfVar[index] == null) {
+      return ImmutableList.of();
+    }
+    BitSet uses = (BitSet) state.getOut().bits.clone();
+    uses.and(usesOfVar[index]);
+    List<Node> result = new ArrayList<>(uses.cardinality());
+    for (int i = uses.nextSetBit(0); i >= 0; i = uses.nextSetBit(i + 1)) {
+      result.add(useNodes.get(i));
+    }
+    return result;
   }
 }
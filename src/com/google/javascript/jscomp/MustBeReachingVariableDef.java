@@ -24,13 +24,11 @@ import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.GraphNode;
 import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.Node;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -48,22 +46,38 @@ final class MustBeReachingVariableDef extends
   // The scope of the function that we are analyzing.
   private final AbstractCompiler compiler;
   private final Set<Var> escaped;
-  private final Map<String, Var> allVarsInFn;
-  private final List<Var> orderedVars;
+  private final LocalVariableIndex vars;
+  // The indices of the parameters.
+  private final BitSet parameters = new BitSet();
+  // The definitions by the name node that they define, so that the dependencies of a definition
+  // are only computed once.
+  private final Map<Node, Definition> definitions = new HashMap<>();
 
   MustBeReachingVariableDef(
       ControlFlowGraph<Node> cfg,
       Scope jsScope,
       AbstractCompiler compiler,
       Es6SyntacticScopeCreator scopeCreator) {
+    this(cfg, compiler, scopeCreator,
+        new LocalVariableIndex(compiler, scopeCreator, jsScope.getParent()));
+  }
+
+  /** @param vars the index of the variables of the function, which may be shared */
+  MustBeReachingVariableDef(
+      ControlFlowGraph<Node> cfg,
+      AbstractCompiler compiler,
+      Es6SyntacticScopeCreator scopeCreator,
+      LocalVariableIndex vars) {
     super(cfg, new MustDefJoin());
     this.compiler = compiler;
     this.escaped = new HashSet<>();
-    this.allVarsInFn = new HashMap<>();
-    this.orderedVars = new ArrayList<>();
-    computeEscaped(jsScope.getParent(), escaped, compiler, scopeCreator);
-    NodeUtil.getAllVarsDeclaredInFunction(
-        allVarsInFn, orderedVars, compiler, scopeCreator, jsScope.getParent());
+    this.vars = vars;
+    computeEscaped(vars.getFunctionScope(), escaped, compiler, scopeCreator, vars);
+    for (Var v : vars.getVarsByName().values()) {
+      if (isParameter(v)) {
+        parameters.set(vars.getIndex(v.getName()));
+      }
+    }
   }
 
   /**
@@ -73,8 +87,13 @@ final class MustBeReachingVariableDef extends
    * definition node will be N, the depending set would be {b,c}.
    */
   static class Definition {
+    // The BOTTOM element of the variable sub-lattices, see MustDef.
+    private static final Definition BOTTOM = new Definition(null);
+
     final Node node;
     final Set<Var> depends = new HashSet<>();
+    // The indices of the variables in depends.
+    private final BitSet dependIndices = new BitSet();
     private boolean unknownDependencies = false;
 
     Definition(Node node) {
@@ -99,7 +118,7 @@ final class MustBeReachingVariableDef extends
 
     @Override
     public int hashCode() {
-      return node.hashCode();
+      return node == null ? 0 : node.hashCode();
     }
   }
 
@@ -121,24 +140,14 @@ final class MustBeReachingVariableDef extends
    *
    */
   static final class MustDef implements LatticeElement {
-
-    // TODO(user): Use bit vector instead of maps might get better
-    // performance. Change it after this is tested to be fully functional.
-
-    // When a Var "A" = "TOP", "A" does not exist in reachingDef's keySet.
-    // When a Var "A" = Node N, "A" maps to that node.
-    // When a Var "A" = "BOTTOM", "A" maps to null.
-    final Map<Var, Definition> reachingDef;
-
-    public MustDef() {
-      reachingDef = new HashMap<>();
-    }
-
-    public MustDef(Collection<Var> vars) {
-      this();
-      for (Var var : vars) {
-        reachingDef.put(var, new Definition(var.scope.getRootNode()));
-      }
+    // The definitions of the variables by their indices in the LocalVariableIndex.
+    // When a Var "A" = "TOP", its definition is null.
+    // When a Var "A" = Node N, its definition is the definition of that node.
+    // When a Var "A" = "BOTTOM", its definition is Definition.BOTTOM.
+    final Definition[] reachingDef;
+
+    MustDef(int size) {
+      reachingDef = new Definition[size];
     }
 
     /**
@@ -146,59 +155,36 @@ final class MustBeReachingVariableDef extends
      *
      * @param other The constructed object is a replicated copy of this element.
      */
-    public MustDef(MustDef other) {
-      reachingDef = new HashMap<>(other.reachingDef);
+    MustDef(MustDef other) {
+      reachingDef = other.reachingDef.clone();
     }
 
     @Override
     public boolean equals(Object other) {
-      return (other instanceof MustDef) && ((MustDef) other).reachingDef.equals(this.reachingDef);
+      return (other instanceof MustDef)
+          && Arrays.equals(((MustDef) other).reachingDef, this.reachingDef);
     }
 
     @Override
     public int hashCode() {
-      return reachingDef.hashCode();
+      return Arrays.hashCode(reachingDef);
     }
   }
 
   private static class MustDefJoin extends JoinOp.BinaryJoinOp<MustDef> {
     @Override
     public MustDef apply(MustDef a, MustDef b) {
-      MustDef result = new MustDef();
-      Map<Var, Definition> resultMap = result.reachingDef;
-
-      // Take the join of all variables that are not TOP in this.
-      for (Map.Entry<Var, Definition> varEntry : a.reachingDef.entrySet()) {
-        Var var = varEntry.getKey();
-        Definition aDef = varEntry.getValue();
-
-        if (aDef == null) {
-          // "a" is BOTTOM implies that the variable has more than one possible
-          // definition. We set the join of this to be BOTTOM regardless of what
-          // "b" might be.
-          resultMap.put(var, null);
-          continue;
-        }
-
-        if (b.reachingDef.containsKey(var)) {
-          Definition bDef = b.reachingDef.get(var);
-
-          if (aDef.equals(bDef)) {
-            resultMap.put(var, aDef);
-          } else {
-            resultMap.put(var, null);
-          }
-        } else {
-          resultMap.put(var, aDef);
-        }
-      }
-
-      // Take the join of all variables that are not TOP in other but it is TOP
-      // in this.
-      for (Map.Entry<Var, Definition> entry : b.reachingDef.entrySet()) {
-        Var var = entry.getKey();
-        if (!a.reachingDef.containsKey(var)) {
-          resultMap.put(var, entry.getValue());
+      MustDef result = new MustDef(a);
+      Definition[] resultDefs = result.reachingDef;
+      for (int i = 0; i < resultDefs.length; i++) {
+        Definition bDef = b.reachingDef[i];
+        if (resultDefs[i] == null) {
+          // The variable is TOP in "a".
+          resultDefs[i] = bDef;
+        } else if (bDef != null && !resultDefs[i].equals(bDef)) {
+          // The variable has more than one possible definition, or is already
+          // BOTTOM in "a" or "b".
+          resultDefs[i] = Definition.BOTTOM;
         }
       }
       return result;
@@ -212,12 +198,16 @@ final class MustBeReachingVariableDef extends
 
   @Override
   MustDef createEntryLattice() {
-    return new MustDef(allVarsInFn.values());
+    MustDef entry = new MustDef(vars.size());
+    for (Var var : vars.getVarsByName().values()) {
+      entry.reachingDef[vars.getIndex(var.getName())] = new Definition(var.scope.getRootNode());
+    }
+    return entry;
   }
 
   @Override
   MustDef createInitialEstimateLattice() {
-    return new MustDef();
+    return new MustDef(vars.size());
   }
 
   @Override
@@ -265,7 +255,7 @@ final class MustBeReachingVariableDef extends
           lhs = lhs.getLastChild(); // for(var x in y) {...}
         }
         if (lhs.isName()) {
-          addToDefIfLocal(lhs.getString(), cfgNode, rhs, output);
+          addToDefIfLocal(lhs, cfgNode, rhs, output);
         }
         return;
 
@@ -288,8 +278,7 @@ final class MustBeReachingVariableDef extends
           if (c.hasChildren()) {
             computeMustDef(c.getFirstChild(), cfgNode, output, conditional);
             if (c.isName()) {
-              addToDefIfLocal(c.getString(), conditional ? null : cfgNode,
-                  c.getFirstChild(), output);
+              addToDefIfLocal(c, conditional ? null : cfgNode, c.getFirstChild(), output);
             } else {
               checkState(c.isDestructuringLhs(), c);
               return;
@@ -303,8 +292,7 @@ final class MustBeReachingVariableDef extends
           if (n.getFirstChild().isName()) {
             Node name = n.getFirstChild();
             computeMustDef(name.getNext(), cfgNode, output, conditional);
-            addToDefIfLocal(
-                name.getString(), conditional ? null : cfgNode, n.getLastChild(), output);
+            addToDefIfLocal(name, conditional ? null : cfgNode, n.getLastChild(), output);
             return;
           } else if (NodeUtil.isGet(n.getFirstChild())) {
             // Treat all assignments to arguments as redefining the
@@ -327,7 +315,7 @@ final class MustBeReachingVariableDef extends
         if (n.isDec() || n.isInc()) {
           Node target = n.getFirstChild();
           if (target.isName()) {
-            addToDefIfLocal(target.getString(), conditional ? null : cfgNode, null, output);
+            addToDefIfLocal(target, conditional ? null : cfgNode, null, output);
             return;
           }
         }
@@ -342,61 +330,56 @@ final class MustBeReachingVariableDef extends
    * Set the variable lattice for the given name to the node value in the def
    * lattice. Do nothing if the variable name is one of the escaped variable.
    *
+   * @param name The NAME node that is defined.
    * @param node The CFG node where the definition should be record to.
    *     {@code null} if this is a conditional define.
    */
-  private void addToDefIfLocal(String name, @Nullable Node node,
+  private void addToDefIfLocal(Node name, @Nullable Node node,
       @Nullable Node rValue, MustDef def) {
-    Var var = allVarsInFn.get(name);
+    int index = vars.getIndex(name.getString());
 
     // var might be null because the variable might be defined in the extern
     // that we might not traverse.
-    if (var == null) {
+    if (index == -1) {
       return;
     }
 
-    for (Var other : def.reachingDef.keySet()) {
-      Definition otherDef = def.reachingDef.get(other);
-      if (otherDef == null) {
-        continue;
-      }
-      if (otherDef.depends.contains(var)) {
-        def.reachingDef.put(other, null);
+    Definition[] defs = def.reachingDef;
+    for (int i = 0; i < defs.length; i++) {
+      if (defs[i] != null && defs[i].dependIndices.get(index)) {
+        defs[i] = Definition.BOTTOM;
       }
     }
 
-    if (!escaped.contains(var)) {
+    if (!escaped.contains(vars.getVar(name.getString()))) {
       if (node == null) {
-        def.reachingDef.put(var, null);
+        defs[index] = Definition.BOTTOM;
       } else {
-        Definition definition = new Definition(node);
-        if (rValue != null) {
-          computeDependence(definition, rValue);
+        Definition definition = definitions.get(name);
+        if (definition == null) {
+          definition = new Definition(node);
+          if (rValue != null) {
+            computeDependence(definition, rValue);
+          }
+          definitions.put(name, definition);
         }
-        def.reachingDef.put(var, definition);
+        defs[index] = definition;
       }
     }
   }
 
   private void escapeParameters(MustDef output) {
-    for (Var v : allVarsInFn.values()) {
-      if (isParameter(v)) {
-        // Assume we no longer know where the parameter comes from
-        // anymore.
-        output.reachingDef.put(v, null);
-      }
+    Definition[] defs = output.reachingDef;
+    for (int i = parameters.nextSetBit(0); i >= 0; i = parameters.nextSetBit(i + 1)) {
+      // Assume we no longer know where the parameter comes from
+      // anymore.
+      defs[i] = Definition.BOTTOM;
     }
 
     // Also, assume we no longer know anything that depends on a parameter.
-    for (Entry<Var, Definition> pair : output.reachingDef.entrySet()) {
-      Definition value = pair.getValue();
-      if (value == null) {
-        continue;
-      }
-      for (Var dep : value.depends) {
-        if (isParameter(dep)) {
-          output.reachingDef.put(pair.getKey(), null);
-        }
+    for (int i = 0; i < defs.length; i++) {
+      if (defs[i] != null && defs[i].dependIndices.intersects(parameters)) {
+        defs[i] = Definition.BOTTOM;
       }
     }
   }
@@ -417,11 +400,12 @@ final class MustBeReachingVariableDef extends
           @Override
           public void visit(NodeTraversal t, Node n, Node parent) {
             if (n.isName()) {
-              Var dep = allVarsInFn.get(n.getString());
+              Var dep = vars.getVar(n.getString());
               if (dep == null) {
                 def.unknownDependencies = true;
               } else {
                 def.depends.add(dep);
+                def.dependIndices.set(vars.getIndex(n.getString()));
               }
             }
           }
@@ -440,7 +424,12 @@ final class MustBeReachingVariableDef extends
     checkArgument(getCfg().hasNode(useNode));
     GraphNode<Node, Branch> n = getCfg().getNode(useNode);
     FlowState<MustDef> state = n.getAnnotation();
-    return state.getIn().reachingDef.get(allVarsInFn.get(name));
+    int index = vars.getIndex(name);
+    if (index == -1) {
+      return null;
+    }
+    Definition def = state.getIn().reachingDef[index];
+    return def == Definition.BOTTOM ? null : def;
   }
 
   Node getDefNode(String name, Node useNode) {
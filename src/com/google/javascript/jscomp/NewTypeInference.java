@@ -794,9 +794,7 @@ final class NewTypeInference implements CompilerPass {
     if (NodeUtil.isUnannotatedCallback(scopeRoot)) {
       computeFnDeclaredTypeForCallback(scope);
     }
-    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, false);
-    cfa.process(null, scopeRoot);
-    this.cfg = cfa.getCfg();
+    this.cfg = ControlFlowAnalysis.getCfg(compiler, scopeRoot);
     println(this.cfg);
     // The size is > 1 when multiple files are compiled
     // Preconditions.checkState(cfg.getEntry().getOutEdges().size() == 1);
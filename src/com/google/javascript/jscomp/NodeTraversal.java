@@ -80,6 +80,13 @@ public class NodeTraversal {
   /** Possible callback for scope entry and exist **/
   private ScopedCallback scopeCallback;
 
+  /**
+   * The stack of nodes being traversed; see {@link #traverseBranch}. Frames above {@code depth}
+   * are kept for reuse.
+   */
+  private final ArrayList<Frame> frames = new ArrayList<>();
+  private int depth = 0;
+
   /** Callback for passes that iterate over a list of change scope roots (FUNCTIONs and SCRIPTs) */
   public interface ChangeScopeRootCallback {
     void enterChangeScopeRoot(AbstractCompiler compiler, Node root);
@@ -712,124 +719,212 @@ public class NodeTraversal {
     t.traverseRoots(externs, root);
   }
 
-  private void handleScript(Node n, Node parent) {
-    setChangeScope(n);
-    setInputId(n.getInputId(), getSourceName(n));
-
-    curNode = n;
-    if (callback.shouldTraverse(this, n, parent)) {
-      traverseChildren(n);
-      curNode = n;
-      callback.visit(this, n, parent);
+  /**
+   * Traverses a branch.
+   *
+   * <p>The traversal keeps its position in an explicit stack of {@link Frame}s instead of
+   * recursing on the Java stack, so that deeply nested code does not need a large thread stack.
+   * Callbacks may start nested traversals (e.g. {@link #traverseInnerNode}); each call runs until
+   * the frames it pushed are done.
+   */
+  private void traverseBranch(Node n, Node parent) {
+    int base = depth;
+    pushFrame(n, parent);
+    try {
+      while (depth > base) {
+        step(frames.get(depth - 1));
+      }
+    } finally {
+      // Only needed when a callback throws.
+      while (depth > base) {
+        popFrame();
+      }
     }
-    setChangeScope(null);
   }
 
-  private void handleFunction(Node n, Node parent) {
-    Node changeScope = this.currentChangeScope;
-    setChangeScope(n);
-    curNode = n;
-    if (callback.shouldTraverse(this, n, parent)) {
-      traverseFunction(n, parent);
-      curNode = n;
-      callback.visit(this, n, parent);
+  /** Runs the next step of the traversal of the node of the given frame. */
+  private void step(Frame f) {
+    Node n = f.node;
+    switch (f.state) {
+      case Frame.ENTER:
+        enter(f);
+        return;
+      case Frame.CHILDREN:
+        Node child = f.next;
+        if (child == null) {
+          f.state = Frame.VISIT;
+        } else {
+          // child could be replaced, in which case our child node
+          // would no longer point to the true next
+          f.next = child.getNext();
+          pushFrame(child, n);
+        }
+        return;
+      case Frame.FUNCTION_SCOPE:
+        curNode = n;
+        pushScope(n);
+        f.state = Frame.FUNCTION_PARAMS;
+        if (!f.isDeclaration) {
+          // Function expression names are only accessible within the function
+          // scope.
+          pushFrame(f.next, n);
+        }
+        return;
+      case Frame.FUNCTION_PARAMS:
+        Node params = f.next.getNext();
+        // ES6 "arrow" function may not have a block as a body.
+        f.next = params.getNext();
+        f.state = Frame.LAST_CHILD;
+        pushFrame(params, n);
+        return;
+      case Frame.CLASS_SCOPE:
+        curNode = n;
+        pushScope(n);
+        f.state = Frame.CLASS_EXTENDS;
+        if (!f.isDeclaration) {
+          // Class expression names are only accessible within the function
+          // scope.
+          pushFrame(f.next, n);
+        }
+        return;
+      case Frame.CLASS_EXTENDS:
+        Node extendsClause = n.getSecondChild();
+        f.next = extendsClause.getNext();
+        f.state = Frame.LAST_CHILD;
+        pushFrame(extendsClause, n);
+        return;
+      case Frame.LAST_CHILD:
+        f.state = Frame.VISIT;
+        pushFrame(f.next, n);
+        return;
+      case Frame.VISIT:
+        if (f.hasScope) {
+          popScope();
+        }
+        curNode = n;
+        callback.visit(this, n, f.parent);
+        leave(f);
+        return;
+      default:
+        throw new IllegalStateException("Unexpected traversal state: " + f.state);
     }
-    setChangeScope(changeScope);
   }
 
-  /**
-   * Traverses a branch.
-   */
-  private void traverseBranch(Node n, Node parent) {
+  /** Calls shouldTraverse for the node of the given frame and prepares to traverse its children. */
+  private void enter(Frame f) {
+    Node n = f.node;
+    Node parent = f.parent;
     Token type = n.getToken();
     if (type == Token.SCRIPT) {
-      handleScript(n, parent);
-      return;
+      setChangeScope(n);
+      setInputId(n.getInputId(), getSourceName(n));
     } else if (type == Token.FUNCTION) {
-      handleFunction(n, parent);
-      return;
+      f.changeScope = this.currentChangeScope;
+      setChangeScope(n);
     }
 
     curNode = n;
     if (!callback.shouldTraverse(this, n, parent)) {
+      leave(f);
       return;
     }
 
-    if (type == Token.CLASS) {
-      traverseClass(n);
-    } else if (type == Token.MODULE_BODY) {
-      traverseModule(n);
-    } else if (useBlockScope && NodeUtil.createsBlockScope(n)) {
-      traverseBlockScope(n);
+    if (type == Token.FUNCTION) {
+      Node fnName = n.getFirstChild();
+      f.next = fnName;
+      f.isDeclaration = parent != null && NodeUtil.isFunctionDeclaration(n);
+      f.hasScope = true;
+      f.state = Frame.FUNCTION_SCOPE;
+      if (f.isDeclaration) {
+        // Function declarations are in the scope containing the declaration.
+        pushFrame(fnName, n);
+      }
+    } else if (type == Token.CLASS) {
+      Node className = n.getFirstChild();
+      f.next = className;
+      f.isDeclaration = !NodeUtil.isClassExpression(n);
+      f.hasScope = true;
+      f.state = Frame.CLASS_SCOPE;
+      if (f.isDeclaration) {
+        // Class declarations are in the scope containing the declaration.
+        pushFrame(className, n);
+      }
     } else {
-      traverseChildren(n);
+      if (type == Token.MODULE_BODY
+          || (type != Token.SCRIPT && useBlockScope && NodeUtil.createsBlockScope(n))) {
+        pushScope(n);
+        f.hasScope = true;
+      }
+      f.next = n.getFirstChild();
+      f.state = Frame.CHILDREN;
     }
-
-    curNode = n;
-    callback.visit(this, n, parent);
   }
 
-  /** Traverses a function. */
-  private void traverseFunction(Node n, Node parent) {
-    final Node fnName = n.getFirstChild();
-    boolean isFunctionDeclaration = parent != null && NodeUtil.isFunctionDeclaration(n);
-
-    if (isFunctionDeclaration) {
-      // Function declarations are in the scope containing the declaration.
-      traverseBranch(fnName, n);
-    }
-
-    curNode = n;
-    pushScope(n);
-
-    if (!isFunctionDeclaration) {
-      // Function expression names are only accessible within the function
-      // scope.
-      traverseBranch(fnName, n);
+  /** Finishes the traversal of the node of the given frame. */
+  private void leave(Frame f) {
+    Token type = f.node.getToken();
+    if (type == Token.SCRIPT) {
+      setChangeScope(null);
+    } else if (type == Token.FUNCTION) {
+      setChangeScope(f.changeScope);
     }
-
-    final Node args = fnName.getNext();
-    final Node body = args.getNext();
-
-    // Args
-    traverseBranch(args, n);
-
-    // Body
-    // ES6 "arrow" function may not have a block as a body.
-    traverseBranch(body, n);
-
-    popScope();
+    popFrame();
   }
 
-  /** Traverses a class. */
-  private void traverseClass(Node n) {
-    final Node className = n.getFirstChild();
-    boolean isClassExpression = NodeUtil.isClassExpression(n);
-
-    if (!isClassExpression) {
-      // Class declarations are in the scope containing the declaration.
-      traverseBranch(className, n);
-    }
-
-    curNode = n;
-    pushScope(n);
-
-    if (isClassExpression) {
-      // Class expression names are only accessible within the function
-      // scope.
-      traverseBranch(className, n);
+  private void pushFrame(Node n, Node parent) {
+    Frame f;
+    if (depth < frames.size()) {
+      f = frames.get(depth);
+    } else {
+      f = new Frame();
+      frames.add(f);
     }
-
-    final Node extendsClause = n.getSecondChild();
-    final Node body = extendsClause.getNext();
-
-    // Extends
-    traverseBranch(extendsClause, n);
-
-    // Body
-    traverseBranch(body, n);
-
-    popScope();
+    f.node = n;
+    f.parent = parent;
+    f.state = Frame.ENTER;
+    depth++;
+  }
+
+  private void popFrame() {
+    Frame f = frames.get(--depth);
+    // Don't keep parts of the AST reachable from a finished traversal.
+    f.node = null;
+    f.parent = null;
+    f.next = null;
+    f.changeScope = null;
+    f.hasScope = false;
+    f.isDeclaration = false;
+  }
+
+  /** The traversal state of a node whose traversal has started but not finished. */
+  private static final class Frame {
+    /** shouldTraverse has not been called yet. */
+    static final int ENTER = 0;
+    /** Traversing the children; {@code next} is the next child. */
+    static final int CHILDREN = 1;
+    /** The function name has been traversed if it is a declaration. */
+    static final int FUNCTION_SCOPE = 2;
+    /** The function name has been traversed; {@code next} is the name. */
+    static final int FUNCTION_PARAMS = 3;
+    /** The class name has been traversed if it is a declaration. */
+    static final int CLASS_SCOPE = 4;
+    /** The class name has been traversed. */
+    static final int CLASS_EXTENDS = 5;
+    /** Only {@code next}, the last child, is left to traverse. */
+    static final int LAST_CHILD = 6;
+    /** All children have been traversed. */
+    static final int VISIT = 7;
+
+    Node node;
+    Node parent;
+    int state;
+    Node next;
+    /** The change scope to restore when leaving a function. */
+    Node changeScope;
+    /** Whether the node created a scope that has to be popped before the visit. */
+    boolean hasScope;
+    /** Whether a function or class is a declaration, rather than an expression. */
+    boolean isDeclaration;
   }
 
   private void traverseChildren(Node n) {
@@ -842,20 +937,6 @@ public class NodeTraversal {
     }
   }
 
-  /** Traverses a module. */
-  private void traverseModule(Node n) {
-    pushScope(n);
-    traverseChildren(n);
-    popScope();
-  }
-
-  /** Traverses a non-function block. */
-  private void traverseBlockScope(Node n) {
-    pushScope(n);
-    traverseChildren(n);
-    popScope();
-  }
-
   /** Examines the functions stack for the last instance of a function node. When possible, prefer
    *  this method over NodeUtil.getEnclosingFunction() because this in general looks at less nodes.
    */
@@ -973,9 +1054,7 @@ public class NodeTraversal {
     Object o = cfgs.peek();
     if (o instanceof Node) {
       Node cfgRoot = (Node) o;
-      ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
-      cfa.process(null, cfgRoot);
-      result = cfa.getCfg();
+      result = ControlFlowAnalysis.getCfg(compiler, cfgRoot);
       cfgs.pop();
       cfgs.push(result);
     } else {
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+
+import com.google.common.collect.Lists;
+import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the work of a pass on many change scopes (SCRIPTs and FUNCTIONs) on several threads, for
+ * passes whose work on a scope only reads and changes that scope, like the peephole optimizations.
+ *
+ * <p>Scopes are processed in waves, from the most deeply nested to the outermost, so that no two
+ * scopes of a wave contain one another. The contents of the scopes of a wave are processed
+ * concurrently. The scope roots themselves, which are children of their parent scope, are
+ * processed on the calling thread once the wave is done, in the order in which they were given.
+ *
+ * <p>Work running concurrently may report errors and changes through the compiler, which holds
+ * them until the wave is done and then applies them scope by scope, in the order in which the
+ * scopes were given. The result is the same whatever the number of threads. The work must not use
+ * any other state shared between scopes.
+ *
+ * <p>Like {@link PrebuildAst}, a single instance is meant to live as long as its compiler, and its
+ * threads time out when idle.
+ */
+class ParallelScopeRunner {
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  /** The number of batches each thread gets per wave, to even out scopes of different sizes. */
+  private static final int BATCHES_PER_THREAD = 4;
+
+  /** The work of a pass on a change scope. */
+  interface ScopeWork {
+    /**
+     * Processes everything under a change scope root, except for the scope roots nested in it. May
+     * run concurrently with the work on other scopes.
+     */
+    void processContents(Node scopeRoot);
+
+    /** Processes a change scope root node itself. Always runs on the thread that called run. */
+    void processRoot(Node scopeRoot);
+  }
+
+  private final AbstractCompiler compiler;
+  private final int numThreads;
+  private ThreadPoolExecutor poolExecutor = null;
+
+  ParallelScopeRunner(AbstractCompiler compiler, int numThreads) {
+    this.compiler = compiler;
+    this.numThreads = numThreads;
+  }
+
+  /** Does the given work on each of the given change scope roots. */
+  void run(List<Node> scopeRoots, ScopeWork work) {
+    for (List<Node> wave : groupByDepth(scopeRoots)) {
+      if (numThreads <= 1 || wave.size() == 1) {
+        for (Node scopeRoot : wave) {
+          work.processContents(scopeRoot);
+        }
+      } else {
+        processContentsInParallel(wave, work);
+      }
+      for (Node scopeRoot : wave) {
+        work.processRoot(scopeRoot);
+      }
+    }
+  }
+
+  /** Returns the scope roots grouped by nesting depth, the most deeply nested first. */
+  private static Iterable<List<Node>> groupByDepth(List<Node> scopeRoots) {
+    TreeMap<Integer, List<Node>> waves = new TreeMap<>();
+    for (Node scopeRoot : scopeRoots) {
+      int depth = 0;
+      for (Node n = scopeRoot.getParent(); n != null; n = n.getParent()) {
+        if (NodeUtil.isChangeScopeRoot(n)) {
+          depth++;
+        }
+      }
+      List<Node> wave = waves.get(depth);
+      if (wave == null) {
+        wave = new ArrayList<>();
+        waves.put(depth, wave);
+      }
+      wave.add(scopeRoot);
+    }
+    return waves.descendingMap().values();
+  }
+
+  private void processContentsInParallel(List<Node> wave, final ScopeWork work) {
+    int batchSize = Math.max(1, wave.size() / (numThreads * BATCHES_PER_THREAD));
+    List<Future<List<Runnable>>> futures = new ArrayList<>();
+    for (final List<Node> batch : Lists.partition(wave, batchSize)) {
+      futures.add(
+          getPoolExecutor()
+              .submit(
+                  new Callable<List<Runnable>>() {
+                    @Override
+                    public List<Runnable> call() {
+                      List<Runnable> reports = new ArrayList<>(batch.size());
+                      for (final Node scopeRoot : batch) {
+                        reports.add(
+                            compiler.runDeferringReports(
+                                new Runnable() {
+                                  @Override
+                                  public void run() {
+                                    work.processContents(scopeRoot);
+                                  }
+                                }));
+                      }
+                      return reports;
+                    }
+                  }));
+    }
+    try {
+      // The batches are in the order of the wave, and so are the reports.
+      List<Runnable> reports = new ArrayList<>(wave.size());
+      for (Future<List<Runnable>> future : futures) {
+        reports.addAll(future.get());
+      }
+      for (Runnable report : reports) {
+        report.run();
+      }
+    } catch (InterruptedException e) {
+      cancelAll(futures);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      cancelAll(futures);
+      throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private static void cancelAll(List<? extends Future<?>> futures) {
+    for (Future<?> future : futures) {
+      future.cancel(false);
+    }
+  }
+
+  private ThreadPoolExecutor getPoolExecutor() {
+    if (poolExecutor == null) {
+      ThreadFactory threadFactory = new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(
+                null, r, "jscompiler-ParallelScopeRunner", CompilerExecutor.COMPILER_STACK_SIZE);
+            t.setDaemon(true);  // Do not prevent the JVM from exiting.
+            return t;
+          }
+      };
+      poolExecutor = new ThreadPoolExecutor(
+          numThreads,
+          numThreads,
+          KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          threadFactory);
+      poolExecutor.allowCoreThreadTimeOut(true);
+    }
+    return poolExecutor;
+  }
+}
@@ -16,8 +16,10 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.javascript.jscomp.NodeTraversal.Callback;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
 import com.google.javascript.rhino.Node;
+import java.util.List;
 
 /**
  * A factory for creating JSCompiler passes based on the Options
@@ -125,4 +127,45 @@ public abstract class PassFactory {
       return this.create(compiler);
     }
   }
+
+  /**
+   * A pass-factory for checks that consist of a single traversal of the main AST by callbacks
+   * that do not change the AST. The {@link PhaseOptimizer} runs adjacent checks of this kind in
+   * one shared traversal.
+   */
+  public abstract static class TraversalCheckFactory extends HotSwapPassFactory {
+
+    TraversalCheckFactory(String name) {
+      super(name);
+    }
+
+    /** Creates the callbacks of this check, in the order in which they visit each node. */
+    protected abstract List<Callback> createCallbacks(AbstractCompiler compiler);
+
+    /**
+     * Called once the callbacks have traversed the whole AST, for checks that record what they
+     * found. Not called when a single script is hot-swapped.
+     *
+     * @param callbacks the callbacks that {@link #createCallbacks} returned for the traversal
+     */
+    protected void afterTraversal(AbstractCompiler compiler, List<Callback> callbacks) {}
+
+    @Override
+    protected HotSwapCompilerPass create(final AbstractCompiler compiler) {
+      final List<Callback> callbacks = createCallbacks(compiler);
+      final CombinedCompilerPass pass = new CombinedCompilerPass(compiler, callbacks);
+      return new HotSwapCompilerPass() {
+        @Override
+        public void process(Node externs, Node root) {
+          pass.process(externs, root);
+          afterTraversal(compiler, callbacks);
+        }
+
+        @Override
+        public void hotSwapScript(Node scriptRoot, Node originalRoot) {
+          pass.hotSwapScript(scriptRoot, originalRoot);
+        }
+      };
+    }
+  }
 }
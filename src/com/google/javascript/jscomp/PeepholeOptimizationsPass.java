@@ -17,10 +17,13 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * A compiler pass to run various peephole optimizations (e.g. constant folding,
@@ -64,8 +67,12 @@ class PeepholeOptimizationsPass implements CompilerPass {
     for (List<Node> changedScopeNodes = compiler.getChangedScopeNodesForPass(passName);
         changedScopeNodes == null || !changedScopeNodes.isEmpty();
         changedScopeNodes = compiler.getChangedScopeNodesForPass(passName)) {
-      NodeTraversal.traverseEs6ScopeRoots(
-          compiler, root, changedScopeNodes, new PeepCallback(), false);
+      if (compiler.getOptions().shouldRunPeepholeOptimizationsInParallel()) {
+        processInParallel(root, changedScopeNodes);
+      } else {
+        NodeTraversal.traverseEs6ScopeRoots(
+            compiler, root, changedScopeNodes, new PeepCallback(null), false);
+      }
 
       // Cancel the fixed point if requested.
       if (!retraverseOnChange) {
@@ -74,15 +81,70 @@ class PeepholeOptimizationsPass implements CompilerPass {
     }
   }
 
+  /**
+   * Optimizes the given change scopes, or all of them if null, on the threads of the compiler's
+   * {@link ParallelScopeRunner}. The optimizations only look at a node and its immediate
+   * surroundings, so the contents of disjoint scopes can be optimized concurrently.
+   */
+  private void processInParallel(Node root, @Nullable List<Node> scopeRoots) {
+    if (scopeRoots == null) {
+      final List<Node> allScopeRoots = new ArrayList<>();
+      NodeUtil.visitPreOrder(
+          root,
+          new NodeUtil.Visitor() {
+            @Override
+            public void visit(Node n) {
+              if (NodeUtil.isChangeScopeRoot(n)) {
+                allScopeRoots.add(n);
+              }
+            }
+          });
+      scopeRoots = allScopeRoots;
+    }
+    compiler
+        .getParallelScopeRunner()
+        .run(
+            scopeRoots,
+            new ParallelScopeRunner.ScopeWork() {
+              @Override
+              public void processContents(Node scopeRoot) {
+                NodeTraversal.traverseEs6ScopeRoots(
+                    compiler,
+                    null,
+                    ImmutableList.of(scopeRoot),
+                    new PeepCallback(scopeRoot),
+                    false);
+              }
+
+              @Override
+              public void processRoot(Node scopeRoot) {
+                optimize(scopeRoot);
+              }
+            });
+  }
+
+  private void optimize(Node n) {
+    Node currentNode = n;
+    for (AbstractPeepholeOptimization optim : peepholeOptimizations) {
+      currentNode = optim.optimizeSubtree(currentNode);
+      if (currentNode == null) {
+        return;
+      }
+    }
+  }
+
   private class PeepCallback extends AbstractPostOrderCallback {
+    /** A scope root that is optimized separately, or null. */
+    @Nullable private final Node skippedRoot;
+
+    PeepCallback(@Nullable Node skippedRoot) {
+      this.skippedRoot = skippedRoot;
+    }
+
     @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
-      Node currentNode = n;
-      for (AbstractPeepholeOptimization optim : peepholeOptimizations) {
-        currentNode = optim.optimizeSubtree(currentNode);
-        if (currentNode == null) {
-          return;
-        }
+      if (n != skippedRoot) {
+        optimize(n);
       }
     }
   }
@@ -19,16 +19,20 @@ package com.google.javascript.jscomp;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.gson.stream.JsonWriter;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
 import com.google.javascript.jscomp.parsing.parser.util.format.SimpleFormat;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.StaticSourceFile;
+import com.google.javascript.rhino.StringInterner;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Writer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -37,6 +41,7 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import javax.annotation.Nullable;
 
 /**
  * A PerformanceTracker collects statistics about the runtime of each pass, and
@@ -66,6 +71,13 @@ public final class PerformanceTracker {
   private long endTime;
   private int passesRuntime = 0;
   private int maxMem = 0;
+  private int maxPeakHeapMem = 0;
+  private int maxRetainedHeapMem = 0;
+  private long allocatedBytes = 0;
+  private long gcCount = 0;
+  private long gcTime = 0;
+  private long cfgCacheHits = 0;
+  private long cfgCacheMisses = 0;
   private int runs = 0;
   private int changes = 0;
   private int loopRuns = 0;
@@ -76,6 +88,10 @@ public final class PerformanceTracker {
   private int externLines = 0;
   private int externSources = 0;
 
+  // The interning counters are process-wide; only report what was interned since this tracker
+  // was created.
+  private final StringInterner.Stats initialInternerStats = StringInterner.getStats();
+
   // The following fields for tracking size changes are just estimates.
   // They do not take into account preserved license blocks, newline padding,
   // or pretty printing (if enabled), since they don't use CodePrinter.
@@ -89,12 +105,21 @@ public final class PerformanceTracker {
 
   private final Deque<Stats> currentPass = new ArrayDeque<>();
 
+  // The highest heap usage since the last pass started.
+  private final JvmMetrics.HeapPeak heapPeak = new JvmMetrics.HeapPeak();
+
   /** Cumulative stats for each compiler pass. */
   private ImmutableMap<String, Stats> summary;
 
   /** Stats a single run of a compiler pass. */
   private final List<Stats> log = new ArrayList<>();
 
+  /** Records the passes as trace events too, if set. */
+  private TraceEventRecorder traceEvents = null;
+
+  /** The cache of control flow graphs whose lookups are counted for each pass, if set. */
+  private ControlFlowGraphCache cfgCache = null;
+
   PerformanceTracker(Node externsRoot, Node jsRoot, TracerMode mode, PrintStream printStream) {
     checkArgument(mode != TracerMode.OFF, "PerformanceTracker can't work without tracer data.");
     this.startTime = System.currentTimeMillis();
@@ -108,8 +133,41 @@ public final class PerformanceTracker {
     return this.codeChange;
   }
 
+  void setTraceEventRecorder(TraceEventRecorder traceEvents) {
+    this.traceEvents = traceEvents;
+  }
+
+  /** Returns the recorder of trace events, or null if they are not recorded. */
+  @Nullable
+  TraceEventRecorder getTraceEventRecorder() {
+    return this.traceEvents;
+  }
+
+  void setControlFlowGraphCache(ControlFlowGraphCache cfgCache) {
+    this.cfgCache = cfgCache;
+  }
+
   void recordPassStart(String passName, boolean isOneTime) {
-    this.currentPass.push(new Stats(passName, isOneTime));
+    Stats stats = new Stats(passName, isOneTime);
+    stats.startAllocatedBytes = JvmMetrics.getCurrentThreadAllocatedBytes();
+    stats.startGcCount = JvmMetrics.getGcCount();
+    stats.startGcTime = JvmMetrics.getGcTimeMillis();
+    if (this.cfgCache != null) {
+      stats.startCfgCacheHits = this.cfgCache.getHits();
+      stats.startCfgCacheMisses = this.cfgCache.getMisses();
+    }
+    // The peak heap usage is measured from the last restart. Credit the peak so far to the pass
+    // that is already running, if any, before restarting it for the new pass.
+    Stats runningPass = this.currentPass.peek();
+    if (runningPass != null) {
+      runningPass.peakHeapMem =
+          Math.max(runningPass.peakHeapMem, bytesToMB(this.heapPeak.getPeakBytes()));
+    }
+    this.heapPeak.restart();
+    if (this.traceEvents != null) {
+      stats.startMicros = this.traceEvents.now();
+    }
+    this.currentPass.push(stats);
     // In Compiler, toSource may be called after every pass X. We don't want it
     // to reset the handler, because recordPassStop for pass X has not been
     // called, so we are falsely logging that pass X didn't make changes.
@@ -151,11 +209,21 @@ public final class PerformanceTracker {
     int allocMem = getAllocatedMegabytes();
     Stats logStats = this.currentPass.pop();
     checkState(passName.equals(logStats.pass));
+    for (Stats fusedCheck : logStats.fusedChecks) {
+      fusedCheck.allocMem = allocMem;
+      this.log.add(fusedCheck);
+    }
     this.log.add(logStats);
 
     // Update fields that aren't related to code size
-    logStats.runtime = runtime;
+    // The time of fused checks has already been logged under their own names.
+    logStats.runtime = Math.max(0, runtime - logStats.fusedChecksRuntime);
     logStats.allocMem = allocMem;
+    recordMemoryStop(logStats);
+    if (this.cfgCache != null) {
+      logStats.cfgCacheHits = this.cfgCache.getHits() - logStats.startCfgCacheHits;
+      logStats.cfgCacheMisses = this.cfgCache.getMisses() - logStats.startCfgCacheMisses;
+    }
     logStats.runs = 1;
     if (this.codeChange.hasCodeChanged()) {
       logStats.changes = 1;
@@ -165,6 +233,57 @@ public final class PerformanceTracker {
     } else if (this.codeChange.hasCodeChanged() && tracksAstSize()) {
       recordOtherPassStop(logStats);
     }
+    if (this.traceEvents != null) {
+      this.traceEvents.addSlice(passName, "pass", logStats.startMicros);
+      this.traceEvents.addCounter("heap (MB)", allocMem);
+      if (this.astSize != DEFAULT_WHEN_SIZE_UNTRACKED) {
+        this.traceEvents.addCounter("AST size (#nodes)", this.astSize);
+      }
+    }
+  }
+
+  /**
+   * Records the time that the running pass spent in one of the checks that it runs in a shared
+   * traversal. The check gets its own entry, as if it had run by itself, and the time is not
+   * counted again for the running pass.
+   *
+   * <p>The memory of the traversal is not measured per check: the allocations, collections and
+   * peak heap stay with the running pass. The entry is logged when the running pass stops, with
+   * the heap in use at that point as its {@code allocMem}, the same as the running pass.
+   *
+   * @param checkName name of the fused check
+   * @param runtime execution time in milliseconds
+   */
+  void recordFusedCheck(String checkName, long runtime) {
+    Stats fusedPass = this.currentPass.peek();
+    checkState(fusedPass != null, "No pass is running");
+    fusedPass.fusedChecksRuntime += runtime;
+    Stats logStats = new Stats(checkName, fusedPass.isOneTime);
+    logStats.runtime = runtime;
+    logStats.runs = 1;
+    fusedPass.fusedChecks.add(logStats);
+  }
+
+  /**
+   * Records what the pass allocated, the garbage collections that happened while it ran, and the
+   * heap that it used.
+   */
+  private void recordMemoryStop(Stats logStats) {
+    long allocated = JvmMetrics.getCurrentThreadAllocatedBytes();
+    if (allocated >= 0 && logStats.startAllocatedBytes >= 0) {
+      logStats.allocatedBytes = allocated - logStats.startAllocatedBytes;
+    }
+    logStats.gcCount = JvmMetrics.getGcCount() - logStats.startGcCount;
+    logStats.gcTime = JvmMetrics.getGcTimeMillis() - logStats.startGcTime;
+    logStats.peakHeapMem =
+        Math.max(logStats.peakHeapMem, bytesToMB(this.heapPeak.getPeakBytes()));
+    if (logStats.gcCount > 0) {
+      logStats.retainedHeapMem = bytesToMB(JvmMetrics.getHeapRetainedBytes());
+    }
+    Stats runningPass = this.currentPass.peek();
+    if (runningPass != null) {
+      runningPass.peakHeapMem = Math.max(runningPass.peakHeapMem, logStats.peakHeapMem);
+    }
   }
 
   private void recordParsingStop(Stats logStats) {
@@ -307,6 +426,13 @@ public final class PerformanceTracker {
       Stats stats = entry.getValue();
       this.passesRuntime += stats.runtime;
       this.maxMem = Math.max(this.maxMem, stats.allocMem);
+      this.maxPeakHeapMem = Math.max(this.maxPeakHeapMem, stats.peakHeapMem);
+      this.maxRetainedHeapMem = Math.max(this.maxRetainedHeapMem, stats.retainedHeapMem);
+      this.allocatedBytes += stats.allocatedBytes;
+      this.gcCount += stats.gcCount;
+      this.gcTime += stats.gcTime;
+      this.cfgCacheHits += stats.cfgCacheHits;
+      this.cfgCacheMisses += stats.cfgCacheMisses;
       this.runs += stats.runs;
       this.changes += stats.changes;
       if (!stats.isOneTime) {
@@ -334,6 +460,13 @@ public final class PerformanceTracker {
       }
       entry.runtime += logStat.runtime;
       entry.allocMem = Math.max(entry.allocMem, logStat.allocMem);
+      entry.allocatedBytes += logStat.allocatedBytes;
+      entry.gcCount += logStat.gcCount;
+      entry.gcTime += logStat.gcTime;
+      entry.cfgCacheHits += logStat.cfgCacheHits;
+      entry.cfgCacheMisses += logStat.cfgCacheMisses;
+      entry.peakHeapMem = Math.max(entry.peakHeapMem, logStat.peakHeapMem);
+      entry.retainedHeapMem = Math.max(entry.retainedHeapMem, logStat.retainedHeapMem);
       entry.runs++;
       entry.changes += logStat.changes;
       entry.astDiff += logStat.astDiff;
@@ -355,16 +488,7 @@ public final class PerformanceTracker {
     JvmMetrics.maybeWriteJvmMetrics(this.output, "verbose:pretty:all");
     calcTotalStats();
 
-    ArrayList<Entry<String, Stats>> statEntries = new ArrayList<>();
-    statEntries.addAll(this.summary.entrySet());
-    Collections.sort(
-        statEntries,
-        new Comparator<Entry<String, Stats>>() {
-          @Override
-          public int compare(Entry<String, Stats> e1, Entry<String, Stats> e2) {
-            return Long.compare(e1.getValue().runtime, e2.getValue().runtime);
-          }
-        });
+    List<Entry<String, Stats>> statEntries = getSummaryByRuntime();
 
     this.output.print(Joiner.on("\n").join(
         "\nTOTAL:",
@@ -373,6 +497,13 @@ public final class PerformanceTracker {
         "Wall time(ms): " + (this.endTime - this.startTime),
         "Passes runtime(ms): " + this.passesRuntime,
         "Max mem usage (measured after each pass)(MB): " + this.maxMem,
+        "Max heap usage (peak during a pass)(MB): " + this.maxPeakHeapMem,
+        "Max retained heap (after GC during a pass)(MB): " + this.maxRetainedHeapMem,
+        "Allocated by the compiler thread(bytes): " + this.allocatedBytes,
+        "#GCs: " + this.gcCount,
+        "GC time(ms): " + this.gcTime,
+        "Control flow graph cache hits: " + this.cfgCacheHits,
+        "Control flow graph cache misses: " + this.cfgCacheMisses,
         "#Runs: " + this.runs,
         "#Changing runs: " + this.changes,
         "#Loopable runs: " + this.loopRuns,
@@ -391,23 +522,37 @@ public final class PerformanceTracker {
         "Extern lines:   " + this.externLines,
         "Extern sources: " + this.externSources + "\n\n"));
 
+    StringInterner.Stats internerStats = StringInterner.getStats().since(initialInternerStats);
+    this.output.print(Joiner.on("\n").join(
+        "Interned strings:",
+        "Lookups: " + internerStats.getLookups(),
+        "Duplicates dropped: " + internerStats.getDuplicates(),
+        "Estimated savings(bytes): " + internerStats.getSavedBytes() + "\n\n"));
+
     this.output.print("Summary:\n"
-        + "pass,runtime,allocMem,runs,changingRuns,astReduction,reduction,gzReduction\n");
+        + "pass,runtime,allocMem,runs,changingRuns,astReduction,reduction,gzReduction,"
+        + "allocatedBytes,gcs,gcTime,peakHeapMem,retainedHeapMem,cfgCacheHits,cfgCacheMisses\n");
     for (Entry<String, Stats> entry : statEntries) {
       String key = entry.getKey();
       Stats stats = entry.getValue();
-      this.output.print(SimpleFormat.format("%s,%d,%d,%d,%d,%d,%d,%d\n", key, stats.runtime,
-            stats.allocMem, stats.runs, stats.changes, stats.astDiff, stats.diff, stats.gzDiff));
+      this.output.print(SimpleFormat.format("%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d\n", key,
+            stats.runtime, stats.allocMem, stats.runs, stats.changes, stats.astDiff, stats.diff,
+            stats.gzDiff, stats.allocatedBytes, stats.gcCount, stats.gcTime, stats.peakHeapMem,
+            stats.retainedHeapMem, stats.cfgCacheHits, stats.cfgCacheMisses));
     }
     this.output.print("\n");
 
     this.output.print(Joiner.on("\n").join(
         "Log:",
-        "pass,runtime,allocMem,codeChanged,astReduction,reduction,gzReduction,astSize,size,gzSize\n"));
+        "pass,runtime,allocMem,codeChanged,astReduction,reduction,gzReduction,astSize,size,gzSize,"
+            + "allocatedBytes,gcs,gcTime,peakHeapMem,retainedHeapMem,"
+            + "cfgCacheHits,cfgCacheMisses\n"));
     for (Stats stats : this.log) {
-      this.output.print(SimpleFormat.format("%s,%d,%d,%b,%d,%d,%d,%d,%d,%d\n",
+      this.output.print(SimpleFormat.format("%s,%d,%d,%b,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d\n",
           stats.pass, stats.runtime, stats.allocMem, stats.changes == 1,
-          stats.astDiff, stats.diff, stats.gzDiff, stats.astSize, stats.size, stats.gzSize));
+          stats.astDiff, stats.diff, stats.gzDiff, stats.astSize, stats.size, stats.gzSize,
+          stats.allocatedBytes, stats.gcCount, stats.gcTime, stats.peakHeapMem,
+          stats.retainedHeapMem, stats.cfgCacheHits, stats.cfgCacheMisses));
     }
     this.output.print("\n");
     // this.output can be System.out, so don't close it to not lose subsequent
@@ -421,6 +566,105 @@ public final class PerformanceTracker {
     }
   }
 
+  /** Returns the cumulative stats of each pass, from the fastest pass to the slowest. */
+  private List<Entry<String, Stats>> getSummaryByRuntime() {
+    List<Entry<String, Stats>> statEntries = new ArrayList<>(this.summary.entrySet());
+    Collections.sort(
+        statEntries,
+        new Comparator<Entry<String, Stats>>() {
+          @Override
+          public int compare(Entry<String, Stats> e1, Entry<String, Stats> e2) {
+            return Long.compare(e1.getValue().runtime, e2.getValue().runtime);
+          }
+        });
+    return statEntries;
+  }
+
+  /**
+   * Writes the same data as {@link #outputTracerReport}, except for the JVM metrics, as a JSON
+   * object, for tools that track the cost of the passes over time.
+   */
+  @GwtIncompatible("com.google.gson")
+  public void outputTracerJson(Writer writer) throws IOException {
+    calcTotalStats();
+    JsonWriter json = new JsonWriter(writer);
+    json.setIndent("  ");
+    json.beginObject();
+    json.name("startTime").value(this.startTime);
+    json.name("endTime").value(this.endTime);
+    json.name("wallTime").value(this.endTime - this.startTime);
+    json.name("passesRuntime").value(this.passesRuntime);
+    json.name("maxMem").value(this.maxMem);
+    json.name("maxPeakHeapMem").value(this.maxPeakHeapMem);
+    json.name("maxRetainedHeapMem").value(this.maxRetainedHeapMem);
+    json.name("allocatedBytes").value(this.allocatedBytes);
+    json.name("gcs").value(this.gcCount);
+    json.name("gcTime").value(this.gcTime);
+    json.name("cfgCacheHits").value(this.cfgCacheHits);
+    json.name("cfgCacheMisses").value(this.cfgCacheMisses);
+    json.name("runs").value(this.runs);
+    json.name("changingRuns").value(this.changes);
+    json.name("loopableRuns").value(this.loopRuns);
+    json.name("changingLoopableRuns").value(this.loopChanges);
+    json.name("astReduction").value(this.astDiff);
+    json.name("reduction").value(this.diff);
+    json.name("gzReduction").value(this.gzDiff);
+    json.name("astSize").value(this.astSize);
+    json.name("size").value(this.codeSize);
+    json.name("gzSize").value(this.gzCodeSize);
+    json.name("summary").beginArray();
+    for (Entry<String, Stats> entry : getSummaryByRuntime()) {
+      Stats stats = entry.getValue();
+      json.beginObject();
+      writeJsonStats(json, stats);
+      json.name("runs").value(stats.runs);
+      json.name("changingRuns").value(stats.changes);
+      json.endObject();
+    }
+    json.endArray();
+    json.name("log").beginArray();
+    for (Stats stats : this.log) {
+      json.beginObject();
+      writeJsonStats(json, stats);
+      json.name("codeChanged").value(stats.changes == 1);
+      json.name("astSize").value(stats.astSize);
+      json.name("size").value(stats.size);
+      json.name("gzSize").value(stats.gzSize);
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  /**
+   * Writes the recorded trace events in the Trace Event Format, for trace viewers. Only works if
+   * trace events were recorded, see {@link CompilerOptions#setRecordTraceEvents}.
+   */
+  @GwtIncompatible("com.google.gson")
+  public void outputTraceEvents(Writer writer) throws IOException {
+    checkState(this.traceEvents != null, "Trace events were not recorded");
+    this.traceEvents.write(writer);
+  }
+
+  @GwtIncompatible("com.google.gson")
+  private static void writeJsonStats(JsonWriter json, Stats stats) throws IOException {
+    json.name("pass").value(stats.pass);
+    json.name("isOneTime").value(stats.isOneTime);
+    json.name("runtime").value(stats.runtime);
+    json.name("allocMem").value(stats.allocMem);
+    json.name("allocatedBytes").value(stats.allocatedBytes);
+    json.name("gcs").value(stats.gcCount);
+    json.name("gcTime").value(stats.gcTime);
+    json.name("peakHeapMem").value(stats.peakHeapMem);
+    json.name("retainedHeapMem").value(stats.retainedHeapMem);
+    json.name("cfgCacheHits").value(stats.cfgCacheHits);
+    json.name("cfgCacheMisses").value(stats.cfgCacheMisses);
+    json.name("astReduction").value(stats.astDiff);
+    json.name("reduction").value(stats.diff);
+    json.name("gzReduction").value(stats.gzDiff);
+  }
+
   /**
    * A Stats object contains statistics about a pass run, such as running time,
    * size changes, etc
@@ -442,5 +686,27 @@ public final class PerformanceTracker {
     public int gzSize = 0;
     public int astDiff = 0;
     public int astSize = 0;
+    /** Bytes allocated by the compiler thread. Other threads, e.g. parse workers, are not seen. */
+    public long allocatedBytes = 0;
+    /** Garbage collections that happened while the pass ran, and their duration in ms. */
+    public long gcCount = 0;
+    public long gcTime = 0;
+    /** The highest heap usage while the pass ran, in MB, garbage included. */
+    public int peakHeapMem = 0;
+    /** The heap retained after the last garbage collection during the pass, in MB, if any. */
+    public int retainedHeapMem = 0;
+    /** Control flow graphs of functions that the pass found in the cache, or had to build. */
+    public long cfgCacheHits = 0;
+    public long cfgCacheMisses = 0;
+    // Part of the runtime that was recorded for fused checks, and their entries.
+    private long fusedChecksRuntime = 0;
+    private final List<Stats> fusedChecks = new ArrayList<>();
+    // Counters at the start of the pass.
+    private long startMicros = 0;
+    private long startAllocatedBytes = -1;
+    private long startGcCount = 0;
+    private long startGcTime = 0;
+    private long startCfgCacheHits = 0;
+    private long startCfgCacheMisses = 0;
   }
 }
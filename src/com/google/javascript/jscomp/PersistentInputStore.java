@@ -15,6 +15,8 @@
  */
 package com.google.javascript.jscomp;
 
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import java.util.HashMap;
@@ -39,7 +41,47 @@ import java.util.Map;
 public class PersistentInputStore {
   Map<String, CacheEntry> store = new HashMap<>();
 
-  private static class CacheEntry {
+  private final Function<SourceFile, SourceAst> astFactory;
+
+  public PersistentInputStore() {
+    this(
+        new Function<SourceFile, SourceAst>() {
+          @Override
+          public SourceAst apply(SourceFile file) {
+            return new JsAst(file);
+          }
+        });
+  }
+
+  /**
+   * Creates a store whose inputs are parsed through the given on-disk cache, so that a worker that
+   * starts cold does not parse again the sources that were already cached by an earlier process.
+   */
+  @GwtIncompatible("AstCache")
+  public PersistentInputStore(final AstCache astCache) {
+    this(
+        new Function<SourceFile, SourceAst>() {
+          @Override
+          public SourceAst apply(SourceFile file) {
+            return astCache.createAst(file);
+          }
+        });
+  }
+
+  private PersistentInputStore(Function<SourceFile, SourceAst> astFactory) {
+    this.astFactory = astFactory;
+  }
+
+  /**
+   * Using the RecoverableJsAst, creates a CompilerInput that can be reset() to be safe to reuse in
+   * multiple compiler invocations.
+   */
+  private CompilerInput makePersistentInput(SourceFile file) {
+    SourceAst ast = new RecoverableJsAst(astFactory.apply(file), true);
+    return new CompilerInput(ast, file.isExtern());
+  }
+
+  private class CacheEntry {
     String digest;
     CompilerInput input;
 
@@ -56,7 +98,7 @@ public class PersistentInputStore {
         zipEntries = new HashMap<>();
       }
       if (!zipEntries.containsKey(originalPath)) {
-        zipEntries.put(originalPath, CompilerInput.makePersistentInput(zipEntry));
+        zipEntries.put(originalPath, makePersistentInput(zipEntry));
       }
       return zipEntries.get(originalPath);
     }
@@ -103,7 +145,7 @@ public class PersistentInputStore {
     if (store.containsKey(originalPath)) {
       CacheEntry cacheEntry = store.get(originalPath);
       if (cacheEntry.input == null) {
-        cacheEntry.input = CompilerInput.makePersistentInput(source);
+        cacheEntry.input = makePersistentInput(source);
       }
       return cacheEntry.input;
     }
@@ -19,10 +19,18 @@ package com.google.javascript.jscomp;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.NodeTraversal.Callback;
+import com.google.javascript.jscomp.PassFactory.HotSwapPassFactory;
+import com.google.javascript.jscomp.PassFactory.TraversalCheckFactory;
+import com.google.javascript.jscomp.parsing.parser.FeatureSet;
 import com.google.javascript.rhino.Node;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -64,6 +72,18 @@ class PhaseOptimizer implements CompilerPass {
 
   private final boolean useSizeHeuristicToStopOptimizationLoop;
 
+  /** @see CompilerOptions#setOptimizationLoopProfile */
+  private final LoopPassProfile loopProfile;
+
+  /** @see CompilerOptions#setOptimizationLoopMinSizeGain */
+  private final double minSizeGainPercent;
+
+  /** @see CompilerOptions#setOptimizationLoopTimeBudget */
+  private final long timeBudgetMillis;
+
+  // The time after which loops stop at the end of their current iteration, or 0 if there is none.
+  private long deadlineMillis = 0;
+
   // Checks that passes have reported code changes correctly.
   private ChangeVerifier changeVerifier;
 
@@ -124,6 +144,9 @@ class PhaseOptimizer implements CompilerPass {
     this.lastChange = START_TIME;
     this.useSizeHeuristicToStopOptimizationLoop =
         comp.getOptions().useSizeHeuristicToStopOptimizationLoop;
+    this.loopProfile = comp.getOptions().getOptimizationLoopProfile();
+    this.minSizeGainPercent = comp.getOptions().optimizationLoopMinSizeGainPercent;
+    this.timeBudgetMillis = comp.getOptions().optimizationLoopTimeBudgetMillis;
     int maxIterations = comp.getOptions().optimizationLoopMaxIterations;
     if (maxIterations > 0 && maxIterations <= MAX_LOOPS) {
       this.optimizationLoopMaxIterations = maxIterations;
@@ -147,10 +170,13 @@ class PhaseOptimizer implements CompilerPass {
    * <p>
    * The PhaseOptimizer is free to tweak the order and frequency of multi-run
    * passes in a fixed-point loop.
+   * <p>
+   * Adjacent {@link TraversalCheckFactory} checks run together in a single
+   * traversal of the AST.
    */
   void consume(List<PassFactory> factories) {
     Loop currentLoop = new Loop();
-    for (PassFactory factory : factories) {
+    for (PassFactory factory : fuseAdjacentChecks(factories)) {
       if (factory.isOneTimePass()) {
         if (currentLoop.isPopulated()) {
           passes.add(currentLoop);
@@ -167,6 +193,36 @@ class PhaseOptimizer implements CompilerPass {
     }
   }
 
+  /**
+   * Replaces each run of adjacent {@link TraversalCheckFactory} checks by a
+   * single pass that runs all of their callbacks in one traversal.
+   */
+  @VisibleForTesting
+  List<PassFactory> fuseAdjacentChecks(List<PassFactory> factories) {
+    List<PassFactory> result = new ArrayList<>();
+    List<TraversalCheckFactory> checks = new ArrayList<>();
+    for (PassFactory factory : factories) {
+      if (factory instanceof TraversalCheckFactory) {
+        checks.add((TraversalCheckFactory) factory);
+      } else {
+        addFusedChecks(result, checks);
+        result.add(factory);
+      }
+    }
+    addFusedChecks(result, checks);
+    return result;
+  }
+
+  private void addFusedChecks(
+      List<PassFactory> factories, List<TraversalCheckFactory> checks) {
+    if (checks.size() == 1) {
+      factories.add(checks.get(0));
+    } else if (checks.size() > 1) {
+      factories.add(new FusedChecks(ImmutableList.copyOf(checks)));
+    }
+    checks.clear();
+  }
+
   /**
    * Add the pass generated by the given factory to the compile sequence.
    * This pass will be run once.
@@ -215,6 +271,9 @@ class PhaseOptimizer implements CompilerPass {
           / passes.size();
       progress = progressRange.initialValue;
     }
+    if (timeBudgetMillis > 0) {
+      deadlineMillis = System.currentTimeMillis() + timeBudgetMillis;
+    }
 
     // When looking at this code, one can mistakenly think that the instance of
     // PhaseOptimizer keeps all compiler passes live. This would be undesirable. A pass can
@@ -331,6 +390,75 @@ class PhaseOptimizer implements CompilerPass {
     }
   }
 
+  /**
+   * Runs the callbacks of several checks in one traversal. When a tracker is
+   * present, the time spent in the callbacks of each check is recorded under
+   * the name of the check.
+   */
+  private final class FusedChecks extends HotSwapPassFactory {
+    private final ImmutableList<TraversalCheckFactory> checks;
+
+    FusedChecks(ImmutableList<TraversalCheckFactory> checks) {
+      super(Joiner.on('+').join(checks));
+      this.checks = checks;
+    }
+
+    @Override
+    protected HotSwapCompilerPass create(final AbstractCompiler compiler) {
+      final List<TraversalCheckFactory> enabledChecks = new ArrayList<>();
+      final List<Integer> firstCallbacks = new ArrayList<>();
+      final List<Callback> callbacks = new ArrayList<>();
+      for (TraversalCheckFactory check : checks) {
+        // Each check keeps its own feature set, as if it ran in a NamedPass.
+        if (!check.featureSet().contains(compiler.getFeatureSet())) {
+          logger.warning("Skipping pass " + check.getName());
+          continue;
+        }
+        enabledChecks.add(check);
+        firstCallbacks.add(callbacks.size());
+        callbacks.addAll(check.createCallbacks(compiler));
+      }
+      firstCallbacks.add(callbacks.size());
+
+      final CombinedCompilerPass pass =
+          tracker == null
+              ? new CombinedCompilerPass(compiler, callbacks)
+              : CombinedCompilerPass.timed(compiler, callbacks);
+      return new HotSwapCompilerPass() {
+        @Override
+        public void process(Node externs, Node root) {
+          pass.process(externs, root);
+          for (int i = 0; i < enabledChecks.size(); i++) {
+            enabledChecks
+                .get(i)
+                .afterTraversal(
+                    compiler, callbacks.subList(firstCallbacks.get(i), firstCallbacks.get(i + 1)));
+          }
+          if (tracker != null) {
+            for (int i = 0; i < enabledChecks.size(); i++) {
+              long runtimeNanos = 0;
+              for (int j = firstCallbacks.get(i); j < firstCallbacks.get(i + 1); j++) {
+                runtimeNanos += pass.getCallbackRuntimeNanos(j);
+              }
+              tracker.recordFusedCheck(enabledChecks.get(i).getName(), runtimeNanos / 1000000);
+            }
+          }
+        }
+
+        @Override
+        public void hotSwapScript(Node scriptRoot, Node originalRoot) {
+          pass.hotSwapScript(scriptRoot, originalRoot);
+        }
+      };
+    }
+
+    @Override
+    protected FeatureSet featureSet() {
+      // The feature sets of the fused checks are applied one by one in create.
+      return FeatureSet.latest();
+    }
+  }
+
   boolean hasScopeChanged(Node n) {
     // Outside loops we don't track changed scopes, so we visit them all.
     if (!inLoop) {
@@ -410,11 +538,16 @@ class PhaseOptimizer implements CompilerPass {
       Set<NamedPass> madeChanges = new HashSet<>();
       // Contains a pass iff it was run during the last inner loop.
       Set<NamedPass> runInPrevIter = new HashSet<>();
+      // Contains a pass iff it was run at least once during this loop.
+      Set<NamedPass> runInThisLoop = new HashSet<>();
+      // Contains a pass iff it made changes at least once during this loop.
+      Set<NamedPass> changedInThisLoop = new HashSet<>();
       State state = State.RUN_PASSES_NOT_RUN_IN_PREV_ITER;
       boolean lastIterMadeChanges;
       int count = 1;
       int astSize = NodeUtil.countAstSize(root);
       int previousAstSize = astSize;
+      TraceEventRecorder traceEvents = tracker == null ? null : tracker.getTraceEventRecorder();
 
       // The loop starts at state RUN_PASSES_NOT_RUN_IN_PREV_ITER and runs all passes.
       // After that, it goes to state RUN_PASSES_THAT_CHANGED_STH_IN_PREV_ITER, and
@@ -429,6 +562,13 @@ class PhaseOptimizer implements CompilerPass {
       try {
         while (true) {
           if (count > optimizationLoopMaxIterations && this.isCodeRemovalLoop) {
+            recordUnfinishedPasses(state, madeChanges, runInPrevIter);
+            return;
+          }
+          // Every pass of the loop runs at least once, even over budget.
+          if (count > 1 && deadlineMillis > 0 && System.currentTimeMillis() > deadlineMillis) {
+            logger.info("Optimization time budget exceeded, stopping the loop early");
+            recordUnfinishedPasses(state, madeChanges, runInPrevIter);
             return;
           }
           if (count > MAX_LOOPS) {
@@ -436,20 +576,37 @@ class PhaseOptimizer implements CompilerPass {
           }
           count++;
           lastIterMadeChanges = false;
+          long iterationStartMicros = traceEvents == null ? 0 : traceEvents.now();
           for (NamedPass pass : myPasses) {
             if ((state == State.RUN_PASSES_NOT_RUN_IN_PREV_ITER
                     && !runInPrevIter.contains(pass))
                 || (state == State.RUN_PASSES_THAT_CHANGED_STH_IN_PREV_ITER
                         && madeChanges.contains(pass))) {
+              if (runInThisLoop.contains(pass)
+                  && !changedInThisLoop.contains(pass)
+                  && loopProfile != null
+                  && loopProfile.isDormant(pass.name)) {
+                // The pass never changes this code base; running it once per loop is enough.
+                runInPrevIter.remove(pass);
+                continue;
+              }
               compiler.incrementChangeStamp();
               currentPass = pass;
+              long start = loopProfile != null ? System.nanoTime() : 0;
               pass.process(externs, root);
               runInPrevIter.add(pass);
+              runInThisLoop.add(pass);
               lastRuns.put(pass, compiler.getChangeStamp());
               if (hasHaltingErrors()) {
                 return;
-              } else if (scopeHandler.hasCodeChangedSinceLastCall()) {
+              }
+              boolean passMadeChanges = scopeHandler.hasCodeChangedSinceLastCall();
+              if (loopProfile != null) {
+                loopProfile.recordRun(pass.name, passMadeChanges, System.nanoTime() - start);
+              }
+              if (passMadeChanges) {
                 madeChanges.add(pass);
+                changedInThisLoop.add(pass);
                 lastIterMadeChanges = true;
               } else {
                 madeChanges.remove(pass);
@@ -459,12 +616,21 @@ class PhaseOptimizer implements CompilerPass {
             }
           }
 
+          if (traceEvents != null) {
+            traceEvents.addSlice(
+                "loop iteration " + (count - 1) + " (" + state + ")", "loop", iterationStartMicros);
+          }
+
           previousAstSize = astSize;
           astSize = NodeUtil.countAstSize(root);
           if (state == State.RUN_PASSES_NOT_RUN_IN_PREV_ITER) {
-            if (lastIterMadeChanges && isAstSufficientlyChanging(previousAstSize, astSize)) {
+            if (!lastIterMadeChanges) {
+              return;
+            } else if (isAstSufficientlyChanging(previousAstSize, astSize)) {
               state = State.RUN_PASSES_THAT_CHANGED_STH_IN_PREV_ITER;
             } else {
+              recordUnfinishedPasses(
+                  State.RUN_PASSES_THAT_CHANGED_STH_IN_PREV_ITER, madeChanges, runInPrevIter);
               return;
             }
           } else {
@@ -480,9 +646,27 @@ class PhaseOptimizer implements CompilerPass {
       }
     }
 
+    /**
+     * Tells the compiler which passes the next iteration would have run, when the loop stops
+     * before reaching a fixpoint.
+     */
+    private void recordUnfinishedPasses(
+        State nextState, Set<NamedPass> madeChanges, Set<NamedPass> runInPrevIter) {
+      List<String> unfinished = new ArrayList<>();
+      for (NamedPass pass : myPasses) {
+        if (nextState == State.RUN_PASSES_THAT_CHANGED_STH_IN_PREV_ITER
+            ? madeChanges.contains(pass)
+            : !runInPrevIter.contains(pass)) {
+          unfinished.add(pass.name);
+        }
+      }
+      compiler.recordUnfinishedLoopPasses(unfinished);
+    }
+
     /**
      * If two loop batches in a row made the code less than 0.05% smaller than the previous
-     * batches, stop before the fixpoint.
+     * batches, stop before the fixpoint. The threshold can be changed with {@link
+     * CompilerOptions#setOptimizationLoopMinSizeGain}.
      * The 0.05% threshold is based on the following heuristic: 1% size difference matters
      * to our users. 0.1% size difference is borderline relevant. 0.05% difference
      * between loop batches is unlikely to grow the final output more than 0.1%.
@@ -501,7 +685,7 @@ class PhaseOptimizer implements CompilerPass {
     private boolean isAstSufficientlyChanging(int oldAstSize, int newAstSize) {
       if (useSizeHeuristicToStopOptimizationLoop && this.isCodeRemovalLoop) {
         float percentChange = 100 * (Math.abs(newAstSize - oldAstSize) / (float) oldAstSize);
-        if (percentChange < 0.05) {
+        if (percentChange < minSizeGainPercent) {
           this.howmanyIterationsUnderThreshold++;
         } else {
           this.howmanyIterationsUnderThreshold = 0;
@@ -530,6 +714,25 @@ class PhaseOptimizer implements CompilerPass {
       }
 
       myPasses.removeAll(optimalPasses);
+      if (loopProfile != null) {
+        // The other passes have no required order. Run the ones that most often changed the code
+        // first, so that the passes after them in the same iteration see their changes, and the
+        // cheaper ones first among equals. The sort is stable, so the order only depends on the
+        // profile.
+        Collections.sort(
+            myPasses,
+            new Comparator<NamedPass>() {
+              @Override
+              public int compare(NamedPass p1, NamedPass p2) {
+                return ComparisonChain.start()
+                    .compare(
+                        loopProfile.getChangeRate(p2.name), loopProfile.getChangeRate(p1.name))
+                    .compare(
+                        loopProfile.getAverageNanos(p1.name), loopProfile.getAverageNanos(p2.name))
+                    .result();
+              }
+            });
+      }
       myPasses.addAll(optimalPasses);
     }
 
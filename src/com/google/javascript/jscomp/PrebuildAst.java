@@ -16,14 +16,14 @@
 
 package com.google.javascript.jscomp;
 
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -32,17 +32,23 @@ import java.util.concurrent.TimeUnit;
  * A helper class to prebuild ASTs from a list of {@link CompilerInput}. Inputs are parsed into ASTs
  * the first time we try to get them. Get them all now using multiple threads, so they'll be parsed
  * in parallel and already available during the rest of the compilation.
+ *
+ * <p>A single instance is meant to live as long as its compiler, so that externs and inputs (and
+ * any inputs prebuilt again after they are repartitioned) share one pool of parse threads. Idle
+ * threads time out, so an instance that is no longer used does not keep any threads alive.
+ *
+ * <p>The biggest inputs are parsed first, so that a large file picked up last does not leave every
+ * other thread idle while it is parsed. Once a halting error has been reported, parsing of the
+ * remaining inputs is canceled; they are parsed lazily if anyone still asks for their AST.
  */
 class PrebuildAst {
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
   private final AbstractCompiler compiler;
-  private final int numParallelThreads;
+  private final ThreadPoolExecutor poolExecutor;
 
-  PrebuildAst(AbstractCompiler compiler, int numParalleThreads) {
+  PrebuildAst(AbstractCompiler compiler, int numParallelThreads) {
     this.compiler = compiler;
-    this.numParallelThreads = numParalleThreads;
-  }
-
-  void prebuild(List<CompilerInput> inputList) {
     ThreadFactory threadFactory = new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
@@ -52,31 +58,88 @@ class PrebuildAst {
           return t;
         }
     };
-    ThreadPoolExecutor poolExecutor = new ThreadPoolExecutor(
+    this.poolExecutor = new ThreadPoolExecutor(
         numParallelThreads,
         numParallelThreads,
-        Integer.MAX_VALUE,
+        KEEP_ALIVE_SECONDS,
         TimeUnit.SECONDS,
-        new LinkedBlockingQueue<Runnable>(),
+        new PriorityBlockingQueue<Runnable>(),
         threadFactory);
-    ListeningExecutorService executorService = MoreExecutors.listeningDecorator(poolExecutor);
-    List<ListenableFuture<?>> futureList = new ArrayList<>(inputList.size());
-    // TODO(moz): Support canceling all parsing on the first halting error
-    for (final CompilerInput input : inputList) {
-      futureList.add(executorService.submit(new Runnable() {
-        @Override
-        public void run() {
-          input.getAstRoot(compiler);
-        }
-      }));
+    this.poolExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  void prebuild(List<CompilerInput> inputList) {
+    if (compiler.hasHaltingErrors()) {
+      return;
+    }
+    List<ParseTask> batch = new ArrayList<>(inputList.size());
+    for (CompilerInput input : inputList) {
+      batch.add(new ParseTask(input, batch));
+    }
+    // The first tasks go straight to new threads, bypassing the priority queue, so the batch
+    // itself has to be in the order of the queue.
+    Collections.sort(batch);
+    for (ParseTask task : batch) {
+      poolExecutor.execute(task);
     }
 
-    poolExecutor.shutdown();
     try {
-      Futures.allAsList(futureList).get();
+      for (ParseTask task : batch) {
+        try {
+          task.get();
+        } catch (CancellationException e) {
+          // A halting error was reported by another input of this batch.
+        }
+      }
     } catch (InterruptedException | ExecutionException e) {
+      cancelAll(batch);
       throw new RuntimeException(e);
     }
   }
 
+  private static void cancelAll(List<ParseTask> batch) {
+    for (ParseTask task : batch) {
+      task.cancel(false);
+    }
+  }
+
+  /**
+   * Returns a cheap estimate of the size of an input, used to schedule the biggest inputs first.
+   */
+  private static long estimateSize(CompilerInput input) {
+    SourceFile sourceFile = input.getSourceFile();
+    return sourceFile == null ? 0 : sourceFile.getSizeEstimate();
+  }
+
+  /** Parses a single input, ordered so that the biggest inputs are dequeued first. */
+  private final class ParseTask extends FutureTask<Void> implements Comparable<ParseTask> {
+    private final long size;
+    private final List<ParseTask> batch;
+
+    ParseTask(final CompilerInput input, List<ParseTask> batch) {
+      super(new Callable<Void>() {
+        @Override
+        public Void call() {
+          if (!compiler.hasHaltingErrors()) {
+            input.getAstRoot(compiler);
+          }
+          return null;
+        }
+      });
+      this.size = estimateSize(input);
+      this.batch = batch;
+    }
+
+    @Override
+    protected void done() {
+      if (!isCancelled() && compiler.hasHaltingErrors()) {
+        cancelAll(batch);
+      }
+    }
+
+    @Override
+    public int compareTo(ParseTask other) {
+      return Long.compare(other.size, size);
+    }
+  }
 }
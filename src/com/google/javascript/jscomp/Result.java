@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -39,6 +40,12 @@ public class Result {
   public final String idGeneratorMap;
   public final Set<SourceFile> transpiledFiles;
 
+  /**
+   * The optimization loop passes that still had work to do when their loop was stopped before
+   * reaching a fixpoint, because of an iteration, size or time limit.
+   */
+  public final Set<String> unfinishedLoopPasses;
+
   Result(JSError[] errors, JSError[] warnings, String debugLog,
          VariableMap variableMap, VariableMap propertyMap,
          VariableMap namedAnonFunctionMap,
@@ -46,7 +53,7 @@ public class Result {
          FunctionInformationMap functionInformationMap,
          SourceMap sourceMap, String externExport,
          Map<String, Integer> cssNames, String idGeneratorMap,
-         Set<SourceFile> transpiledFiles) {
+         Set<SourceFile> transpiledFiles, Set<String> unfinishedLoopPasses) {
     this.success = errors.length == 0;
     this.errors  = errors;
     this.warnings = warnings;
@@ -61,6 +68,7 @@ public class Result {
     this.cssNames = cssNames;
     this.idGeneratorMap = idGeneratorMap;
     this.transpiledFiles = transpiledFiles;
+    this.unfinishedLoopPasses = unfinishedLoopPasses;
   }
 
   @VisibleForTesting
@@ -71,6 +79,6 @@ public class Result {
                 SourceMap sourceMap, String externExport) {
     this(errors, warnings, debugLog, variableMap, propertyMap,
          namedAnonFunctionMap, null, functionInformationMap, sourceMap,
-         externExport, null, null, null);
+         externExport, null, null, null, ImmutableSet.<String>of());
   }
 }
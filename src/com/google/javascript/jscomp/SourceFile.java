@@ -24,6 +24,7 @@ import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.CharStreams;
 import com.google.common.io.Resources;
+import com.google.javascript.jscomp.parsing.parser.LineNumberTable;
 import com.google.javascript.rhino.StaticSourceFile;
 import java.io.File;
 import java.io.IOException;
@@ -36,13 +37,19 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Objects;
@@ -84,7 +91,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
   private String originalPath = null;
 
   // Source Line Information
-  private transient int[] lineOffsets = null;
+  private transient LineNumberTable lineNumberTable = null;
 
   private transient String code = null;
 
@@ -115,40 +122,41 @@ public class SourceFile implements StaticSourceFile, Serializable {
 
   @Override
   public int getLineOffset(int lineno) {
-    findLineOffsets();
-    if (lineno < 1 || lineno > lineOffsets.length) {
+    LineNumberTable table = getLineNumberTable();
+    if (lineno < 1 || lineno > table.getLineCount()) {
       throw new IllegalArgumentException(
-          "Expected line number between 1 and " + lineOffsets.length +
+          "Expected line number between 1 and " + table.getLineCount() +
           "\nActual: " + lineno);
     }
-    return lineOffsets[lineno - 1];
+    return table.offsetOfLine(lineno - 1);
   }
 
   /** @return The number of lines in this source file. */
   int getNumLines() {
-    findLineOffsets();
-    return lineOffsets.length;
+    return getLineNumberTable().getLineCount();
   }
 
-  private void findLineOffsets() {
-    if (lineOffsets != null) {
-      return;
-    }
-    try {
-      String[] sourceLines = getCode().split("\n", -1);
-      lineOffsets = new int[sourceLines.length];
-      for (int ii = 1; ii < sourceLines.length; ++ii) {
-        lineOffsets[ii] =
-            lineOffsets[ii - 1] + sourceLines[ii - 1].length() + 1;
+  /**
+   * Returns the line start offsets of the code. The table is built on first use and then shared
+   * by the parser and by source excerpts, until the cached code is cleared or replaced.
+   */
+  LineNumberTable getLineNumberTable() {
+    LineNumberTable table = lineNumberTable;
+    if (table == null) {
+      CharSequence code;
+      try {
+        code = getCodeCharSequence();
+      } catch (IOException e) {
+        code = null;
       }
-    } catch (IOException e) {
-      lineOffsets = new int[1];
-      lineOffsets[0] = 0;
+      table = new LineNumberTable(code == null ? "" : code);
+      lineNumberTable = table;
     }
+    return table;
   }
 
   private void resetLineOffsets() {
-    lineOffsets = null;
+    lineNumberTable = null;
   }
 
   //////////////////////////////////////////////////////////////////////////////
@@ -163,6 +171,14 @@ public class SourceFile implements StaticSourceFile, Serializable {
   }
 
 
+  /**
+   * Gets all the code in this source file, for a single pass over it such as parsing. Unlike
+   * {@link #getCode}, this does not need to materialize (or cache) the code as a String.
+   */
+  public CharSequence getCodeCharSequence() throws IOException {
+    return getCode();
+  }
+
   /**
    * Gets a reader for the code in this source file.
    */
@@ -210,6 +226,14 @@ public class SourceFile implements StaticSourceFile, Serializable {
     return code != null;
   }
 
+  /**
+   * Returns an estimate of the size of this source, without loading it into memory. Only meant to
+   * be used as a scheduling hint: returns 0 when no cheap estimate is available.
+   */
+  long getSizeEstimate() {
+    return code != null ? code.length() : 0;
+  }
+
   /** Returns a unique name for the source file. */
   @Override
   public String getName() {
@@ -229,20 +253,13 @@ public class SourceFile implements StaticSourceFile, Serializable {
 
   @Override
   public int getLineOfOffset(int offset) {
-    findLineOffsets();
-    int search = Arrays.binarySearch(lineOffsets, offset);
-    if (search >= 0) {
-      return search + 1; // lines are 1-based.
-    } else {
-      int insertionPoint = -1 * (search + 1);
-      return Math.min(insertionPoint - 1, lineOffsets.length - 1) + 1;
-    }
+    return getLineNumberTable().getLine(offset) + 1; // lines are 1-based.
   }
 
   @Override
   public int getColumnOfOffset(int offset) {
-    int line = getLineOfOffset(offset);
-    return offset - lineOffsets[line - 1];
+    LineNumberTable table = getLineNumberTable();
+    return offset - table.offsetOfLine(Math.max(0, table.getLine(offset)));
   }
 
   /**
@@ -254,8 +271,8 @@ public class SourceFile implements StaticSourceFile, Serializable {
    *     or if there was an IO exception.
    */
   public String getLine(int lineNumber) {
-    findLineOffsets();
-    if (lineNumber > lineOffsets.length) {
+    LineNumberTable table = getLineNumberTable();
+    if (lineNumber > table.getLineCount()) {
       return null;
     }
 
@@ -263,29 +280,31 @@ public class SourceFile implements StaticSourceFile, Serializable {
       lineNumber = 1;
     }
 
-    int pos = lineOffsets[lineNumber - 1];
     String js = "";
     try {
-      // NOTE(nicksantos): Right now, this is optimized for few warnings.
-      // This is probably the right trade-off, but will be slow if there
-      // are lots of warnings in one file.
       js = getCode();
     } catch (IOException e) {
       return null;
     }
 
-    if (js.indexOf('\n', pos) == -1) {
-      // If next new line cannot be found, there are two cases
-      // 1. pos already reaches the end of file, then null should be returned
-      // 2. otherwise, return the contents between pos and the end of file.
-      if (pos >= js.length()) {
-        return null;
-      } else {
-        return js.substring(pos, js.length());
-      }
-    } else {
-      return js.substring(pos, js.indexOf('\n', pos));
+    int pos = table.offsetOfLine(lineNumber - 1);
+    if (pos >= js.length()) {
+      return null;
+    }
+    return js.substring(pos, getLineEnd(table, js, lineNumber));
+  }
+
+  /** Returns the offset just past the last character of a line, not counting its terminator. */
+  private static int getLineEnd(LineNumberTable table, String js, int lineNumber) {
+    int start = table.offsetOfLine(lineNumber - 1);
+    int end =
+        lineNumber < table.getLineCount()
+            ? Math.min(table.offsetOfLine(lineNumber), js.length())
+            : js.length();
+    while (end > start && LineNumberTable.isLineTerminator(js.charAt(end - 1))) {
+      end--;
     }
+    return end;
   }
 
   /**
@@ -304,39 +323,21 @@ public class SourceFile implements StaticSourceFile, Serializable {
     } catch (IOException e) {
       return null;
     }
-    int pos = 0;
+    LineNumberTable table = getLineNumberTable();
+    int lastLine = table.getLineCount();
+    if (lastLine > 1 && table.offsetOfLine(lastLine - 1) >= js.length()) {
+      // The code ends with a line terminator; there is no line after it.
+      lastLine--;
+    }
     int startLine = Math.max(1,
         lineNumber - (SOURCE_EXCERPT_REGION_LENGTH + 1) / 2 + 1);
-    for (int n = 1; n < startLine; n++) {
-      int nextpos = js.indexOf('\n', pos);
-      if (nextpos == -1) {
-        break;
-      }
-      pos = nextpos + 1;
-    }
-    int end = pos;
-    int endLine = startLine;
-    for (int n = 0; n < SOURCE_EXCERPT_REGION_LENGTH; n++, endLine++) {
-      end = js.indexOf('\n', end);
-      if (end == -1) {
-        break;
-      }
-      end++;
-    }
-    if (lineNumber >= endLine) {
+    int endLine = Math.min(lastLine, startLine + SOURCE_EXCERPT_REGION_LENGTH - 1);
+    if (lineNumber > endLine) {
       return null;
     }
-    if (end == -1) {
-      int last = js.length() - 1;
-      if (js.charAt(last) == '\n') {
-        return
-            new SimpleRegion(startLine, endLine, js.substring(pos, last));
-      } else {
-        return new SimpleRegion(startLine, endLine, js.substring(pos));
-      }
-    } else {
-      return new SimpleRegion(startLine, endLine, js.substring(pos, end));
-    }
+    int start = table.offsetOfLine(startLine - 1);
+    return new SimpleRegion(
+        startLine, endLine, js.substring(start, getLineEnd(table, js, endLine)));
   }
 
   @Override
@@ -599,8 +600,15 @@ public class SourceFile implements StaticSourceFile, Serializable {
   @GwtIncompatible("java.io.File")
   static class OnDisk extends SourceFile {
     private static final long serialVersionUID = 1L;
+
+    /** Files at least this big are memory-mapped rather than read through a Reader. */
+    @VisibleForTesting static final long MAPPED_READ_THRESHOLD = 1 << 20;
+
     private transient Path path;
     private transient Charset inputCharset = UTF_8;
+    // The mapped code of a large file, kept until the cached source is cleared so that the parser
+    // and the line number table share one mapping.
+    private transient CharSequence mappedCode;
 
     OnDisk(Path path, String originalPath, Charset c) {
       super(path.toString());
@@ -616,19 +624,93 @@ public class SourceFile implements StaticSourceFile, Serializable {
       String cachedCode = super.getCode();
 
       if (cachedCode == null) {
-        try (Reader r = getCodeReader()) {
-          cachedCode = CharStreams.toString(r);
-        } catch (java.nio.charset.MalformedInputException e) {
-          throw new IOException("Failed to read: " + path + ", is this input UTF-8 encoded?", e);
+        if (shouldMap()) {
+          cachedCode = getCodeCharSequence().toString();
+        } else {
+          try (Reader r = getCodeReader()) {
+            cachedCode = CharStreams.toString(r);
+          } catch (java.nio.charset.MalformedInputException e) {
+            throw new IOException("Failed to read: " + path + ", is this input UTF-8 encoded?", e);
+          }
         }
 
         super.setCode(cachedCode, Objects.equals(this.getCharset(), inputCharset));
         // Byte Order Mark can be removed by setCode
         cachedCode = super.getCode();
+        // The String now serves the readers of the mapping.
+        mappedCode = null;
       }
       return cachedCode;
     }
 
+    /**
+     * Large files are read straight from a memory-mapped buffer, without caching a String of the
+     * code, so that a parse does not hold both a decoded copy of the file and a String of it.
+     */
+    @Override
+    public synchronized CharSequence getCodeCharSequence() throws IOException {
+      if (hasSourceInMemory()) {
+        return getCode();
+      }
+      if (mappedCode == null) {
+        if (!shouldMap()) {
+          return getCode();
+        }
+        mappedCode = readMapped();
+      }
+      return mappedCode;
+    }
+
+    private boolean shouldMap() throws IOException {
+      return path != null
+          && isAsciiCompatible(inputCharset)
+          && Files.size(path) >= MAPPED_READ_THRESHOLD;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+      return charset.equals(UTF_8)
+          || charset.equals(StandardCharsets.US_ASCII)
+          || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Maps the file into memory. Pure ASCII files, the common case for large generated code, are
+     * read through the mapped bytes directly; others are decoded into a single char buffer.
+     */
+    private CharSequence readMapped() throws IOException {
+      MappedByteBuffer bytes;
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      if (isAscii(bytes)) {
+        return new AsciiCharSequence(bytes);
+      }
+      CharBuffer chars;
+      try {
+        chars = inputCharset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT)
+            .decode(bytes);
+      } catch (CharacterCodingException e) {
+        throw new IOException("Failed to read: " + path + ", is this input UTF-8 encoded?", e);
+      }
+      if (chars.length() > 0 && chars.charAt(0) == '\uFEFF') {
+        // Drop the Byte Order Mark, as setCode does.
+        chars.position(1);
+        chars = chars.slice();
+      }
+      return chars;
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+      for (int i = bytes.position(); i < bytes.limit(); i++) {
+        if (bytes.get(i) < 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     /**
      * Gets a reader for the code in this source file.
      */
@@ -645,8 +727,21 @@ public class SourceFile implements StaticSourceFile, Serializable {
     // Flush the cached code after the compile; we can read it off disk
     // if we need it again.
     @Override
-    public void clearCachedSource() {
+    public synchronized void clearCachedSource() {
       super.setCode(null);
+      mappedCode = null;
+    }
+
+    @Override
+    long getSizeEstimate() {
+      if (hasSourceInMemory() || path == null) {
+        return super.getSizeEstimate();
+      }
+      try {
+        return Files.size(path);
+      } catch (IOException e) {
+        return 0;
+      }
     }
 
     /**
@@ -690,6 +785,42 @@ public class SourceFile implements StaticSourceFile, Serializable {
     }
   }
 
+  /** A read-only view of a buffer of ASCII bytes as characters. */
+  @GwtIncompatible("java.nio.ByteBuffer")
+  private static final class AsciiCharSequence implements CharSequence {
+    private final ByteBuffer bytes;
+
+    AsciiCharSequence(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int length() {
+      return bytes.remaining();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) bytes.get(bytes.position() + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      checkArgument(0 <= start && start <= end && end <= length());
+      ByteBuffer slice = bytes.duplicate();
+      slice.position(bytes.position() + start);
+      slice.limit(bytes.position() + end);
+      return new AsciiCharSequence(slice.slice());
+    }
+
+    @Override
+    public String toString() {
+      byte[] chars = new byte[length()];
+      bytes.duplicate().get(chars);
+      return new String(chars, StandardCharsets.US_ASCII);
+    }
+  }
+
   /**
    * A source file at a URL where the code is only read into memory if absolutely
    * necessary. We will try to delay loading the code into memory as long as
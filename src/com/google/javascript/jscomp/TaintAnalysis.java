@@ -1,15 +1,9 @@
 package com.google.javascript.jscomp;
 
-import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
-import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.Node;
-import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,51 +16,25 @@ import javax.annotation.Nullable;
 class TaintAnalysis
     extends DataFlowAnalysis<Node, TaintAnalysis.TaintAnalysisLattice> {
 
-  private static class LiveVariableJoinOp implements JoinOp<TaintAnalysisLattice> {
-    @Override
-    public TaintAnalysisLattice apply(List<TaintAnalysisLattice> in) {
-      TaintAnalysisLattice result = new TaintAnalysisLattice(in.get(0));
-      for (int i = 1; i < in.size(); i++) {
-        result.taintSet.or(in.get(i).taintSet);
-      }
-      return result;
-    }
-  }
-
   /**
    * A lattice that stores the taint status of all local variables at a given point in the program.
    */
-  static class TaintAnalysisLattice implements LatticeElement {
-    private final BitSet taintSet;
-
+  static class TaintAnalysisLattice extends BitVectorLattice<TaintAnalysisLattice> {
     /** @param numVars Number of all local variables. */
     private TaintAnalysisLattice(int numVars) {
-      this.taintSet = new BitSet(numVars);
+      super(numVars);
     }
 
     private TaintAnalysisLattice(TaintAnalysisLattice other) {
-      checkNotNull(other);
-      this.taintSet = (BitSet) other.taintSet.clone();
+      super(other);
     }
 
     @Override
-    public boolean equals(Object other) {
-      checkNotNull(other);
-      return (other instanceof TaintAnalysisLattice)
-          && this.taintSet.equals(((TaintAnalysisLattice) other).taintSet);
-    }
-
-    public boolean isTainted(int index) { return taintSet.get(index); }
-
-    @Override
-    public String toString() {
-      return taintSet.toString();
+    TaintAnalysisLattice copy() {
+      return new TaintAnalysisLattice(this);
     }
 
-    @Override
-    public int hashCode() {
-      return taintSet.hashCode();
-    }
+    public boolean isTainted(int index) { return get(index); }
   }
 
   // The scope of the function that we are analyzing.
@@ -75,18 +43,12 @@ class TaintAnalysis
   // The scope of the body of the function that we are analyzing.
   private final Scope jsScopeChild;
 
-  // Maps the variable name to it's position
-  // in this jsScope were we to combine the function and function body scopes. The Integer
-  // represents the equivalent of the variable index property within a scope
-  private final Map<String, Integer> scopeVariables;
-
-  // obtain variables in the order in which they appear in the code
-  private final List<Var> orderedVars;
+  // Numbers the variables of the function and of its body as if they were in one scope.
+  private final LocalVariableIndex vars;
 
   // indicate whether function arguments should be marked as tainted
   private boolean argsTainted;
 
-  private final Map<String, Var> allVarsInFn;
   /**
    * Taint Analysis
    *
@@ -103,47 +65,26 @@ class TaintAnalysis
       boolean argsTainted,
       AbstractCompiler compiler,
       Es6SyntacticScopeCreator scopeCreator) {
-    super(cfg, new LiveVariableJoinOp());
+    super(cfg, new BitVectorLattice.UnionJoin<TaintAnalysisLattice>());
     checkState(jsScope.isFunctionScope(), jsScope);
 
     this.jsScope = jsScope;
     this.jsScopeChild = jsScopeChild;
-    this.scopeVariables = new HashMap<>();
     this.argsTainted = argsTainted;
-    this.allVarsInFn = new HashMap<>();
-    this.orderedVars = new ArrayList<>();
-    NodeUtil.getAllVarsDeclaredInFunction(
-        allVarsInFn, orderedVars, compiler, scopeCreator, jsScope);
-    addScopeVariables();
-  }
-
-  /**
-   * Parameters belong to the function scope, but variables defined in the function body belong to
-   * the function body scope. Assign a unique index to each variable, regardless of which scope it's
-   * in.
-   */
-  private void addScopeVariables() {
-    int num = 0;
-    for (Var v : orderedVars) {
-      scopeVariables.put(v.getName(), num);
-      num++;
-    }
+    this.vars = new LocalVariableIndex(compiler, scopeCreator, jsScope);
   }
 
   public Map<String, Var> getAllVariables() {
-    return allVarsInFn;
+    return vars.getVarsByName();
   }
 
   public List<Var> getAllVariablesInOrder() {
-    return orderedVars;
+    return vars.getOrderedVars();
   }
 
   public int getVarIndex(String var) {
     // return -1 when variable is not in scope
-    if (scopeVariables.containsKey(var)) {
-      return scopeVariables.get(var);
-    }
-    return -1;
+    return vars.getIndex(var);
   }
 
   @Override
@@ -153,13 +94,13 @@ class TaintAnalysis
 
   @Override
   TaintAnalysisLattice createEntryLattice() {
-    TaintAnalysisLattice tainted = new TaintAnalysisLattice(orderedVars.size());
+    TaintAnalysisLattice tainted = new TaintAnalysisLattice(vars.size());
 
     if(this.argsTainted) {
       Node params = NodeUtil.getFunctionParameters(this.jsScope.getRootNode());
       for (Node c = params.getFirstChild(); c != null; c = c.getNext()) {
         if (c.isName()) {
-          tainted.taintSet.set(getVarIndex(c.getString()));
+          tainted.bits.set(getVarIndex(c.getString()));
         }
       }
     }
@@ -168,7 +109,7 @@ class TaintAnalysis
 
   @Override
   TaintAnalysisLattice createInitialEstimateLattice() {
-    return new TaintAnalysisLattice(orderedVars.size());
+    return new TaintAnalysisLattice(vars.size());
   }
 
   @Override
@@ -194,7 +135,7 @@ class TaintAnalysis
       case IF:
       case FOR: {
         TaintAnalysisLattice intermediate = updateTaintStatus(n.getFirstChild(), result);
-        result.taintSet.or(intermediate.taintSet);
+        result.bits.or(intermediate.bits);
         return result;
       }
 
@@ -206,13 +147,13 @@ class TaintAnalysis
       case CONST:
       case VAR:
         if (expressionTainted(n.getFirstChild().getFirstChild(), input)) {
-          result.taintSet.set(getVarIndex(n.getFirstChild().getString()));
+          result.bits.set(getVarIndex(n.getFirstChild().getString()));
         }
 
       case NAME: {
         for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
           TaintAnalysisLattice intermediate = updateTaintStatus(c, result);
-          result.taintSet.or(intermediate.taintSet);
+          result.bits.or(intermediate.bits);
         }
       }
     }
@@ -233,7 +174,7 @@ class TaintAnalysis
 
       if(n.isName()) {
         int index = getVarIndex(n.getString());
-        if(index >= 0 && input.taintSet.get(index)){
+        if(index >= 0 && input.bits.get(index)){
           return true;
         }
       } else {
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records what the compiler spends its time on, on every thread, as events of the Trace Event
+ * Format, which trace viewers such as chrome://tracing and Perfetto can open.
+ *
+ * <p>Slices are recorded once they are finished, as "complete" events, so that slices of
+ * different threads can overlap and nested slices (a pass within a loop iteration) need no
+ * matching begin and end events. Counters record values such as the AST size over time.
+ *
+ * <p>All the methods are thread-safe.
+ */
+final class TraceEventRecorder {
+  private static final int PROCESS_ID = 1;
+
+  private final long startNanos = System.nanoTime();
+  private final List<Event> events = new ArrayList<>();
+  private final Map<Long, String> threadNames = new LinkedHashMap<>();
+
+  /** Returns the current time in microseconds since the recorder was created. */
+  long now() {
+    return (System.nanoTime() - startNanos) / 1000;
+  }
+
+  /**
+   * Records a slice of work done on the current thread.
+   *
+   * @param startMicros the start time of the slice, as returned by {@link #now}
+   */
+  void addSlice(String name, String category, long startMicros) {
+    long endMicros = now();
+    Thread thread = Thread.currentThread();
+    synchronized (this) {
+      threadNames.put(thread.getId(), thread.getName());
+      events.add(new Event(name, category, 'X', thread.getId(), startMicros, endMicros, 0));
+    }
+  }
+
+  /** Records the current value of a counter, e.g. the AST size. */
+  void addCounter(String name, long value) {
+    long nowMicros = now();
+    long threadId = Thread.currentThread().getId();
+    synchronized (this) {
+      events.add(new Event(name, "counter", 'C', threadId, nowMicros, nowMicros, value));
+    }
+  }
+
+  /** Writes the recorded events as a JSON trace. */
+  synchronized void write(Writer writer) throws IOException {
+    JsonWriter json = new JsonWriter(writer);
+    json.beginObject();
+    json.name("displayTimeUnit").value("ms");
+    json.name("traceEvents").beginArray();
+    for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+      json.beginObject();
+      json.name("name").value("thread_name");
+      json.name("ph").value("M");
+      json.name("pid").value(PROCESS_ID);
+      json.name("tid").value(thread.getKey());
+      json.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+      json.endObject();
+    }
+    for (Event event : events) {
+      json.beginObject();
+      json.name("name").value(event.name);
+      json.name("cat").value(event.category);
+      json.name("ph").value(String.valueOf(event.phase));
+      json.name("pid").value(PROCESS_ID);
+      json.name("tid").value(event.threadId);
+      json.name("ts").value(event.startMicros);
+      if (event.phase == 'X') {
+        json.name("dur").value(event.endMicros - event.startMicros);
+      } else {
+        json.name("args").beginObject().name("value").value(event.value).endObject();
+      }
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  /** Returns the number of recorded events. */
+  synchronized int getEventCount() {
+    return events.size();
+  }
+
+  private static final class Event {
+    final String name;
+    final String category;
+    final char phase;
+    final long threadId;
+    final long startMicros;
+    final long endMicros;
+    final long value;
+
+    Event(
+        String name,
+        String category,
+        char phase,
+        long threadId,
+        long startMicros,
+        long endMicros,
+        long value) {
+      this.name = name;
+      this.category = category;
+      this.phase = phase;
+      this.threadId = threadId;
+      this.startMicros = startMicros;
+      this.endMicros = endMicros;
+      this.value = value;
+    }
+  }
+}
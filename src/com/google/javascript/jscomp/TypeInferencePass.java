@@ -154,8 +154,6 @@ class TypeInferencePass implements CompilerPass {
   }
 
   private ControlFlowGraph<Node> computeCfg(Node n) {
-    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, false);
-    cfa.process(null, n);
-    return cfa.getCfg();
+    return ControlFlowAnalysis.getCfg(compiler, n);
   }
 }
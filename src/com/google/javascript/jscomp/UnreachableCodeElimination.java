@@ -63,10 +63,7 @@ class UnreachableCodeElimination implements CompilerPass {
         @Override
         public void enterChangeScopeRoot(AbstractCompiler compiler, Node root) {
           // Computes the control flow graph.
-          ControlFlowAnalysis cfa =
-              new ControlFlowAnalysis(compiler, false, false);
-          cfa.process(null, root);
-          ControlFlowGraph<Node> cfg = cfa.getCfg();
+          ControlFlowGraph<Node> cfg = ControlFlowAnalysis.getCfg(compiler, root);
           new GraphReachability<>(cfg)
               .compute(cfg.getEntry().getValue());
           if (root.isFunction()) {
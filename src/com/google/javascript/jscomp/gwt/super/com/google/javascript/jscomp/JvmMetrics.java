@@ -22,4 +22,28 @@ import java.io.PrintStream;
 class JvmMetrics {
   public static void maybeWriteJvmMetrics(PrintStream out, String options) {
   }
+
+  static long getCurrentThreadAllocatedBytes() {
+    return -1;
+  }
+
+  static long getGcCount() {
+    return 0;
+  }
+
+  static long getGcTimeMillis() {
+    return 0;
+  }
+
+  static final class HeapPeak {
+    void restart() {}
+
+    long getPeakBytes() {
+      return 0;
+    }
+  }
+
+  static long getHeapRetainedBytes() {
+    return 0;
+  }
 }
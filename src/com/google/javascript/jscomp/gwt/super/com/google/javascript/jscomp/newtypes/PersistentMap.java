@@ -17,15 +17,20 @@
 package com.google.javascript.jscomp.newtypes;
 
 import java.util.AbstractMap;
+import java.util.Map;
 
-/** A wrapper around a naive persistent map. */
+/** A wrapper around a CHAMP persistent map. */
 abstract class PersistentMap<K, V> extends AbstractMap<K, V> {
-  private static final PersistentMap EMPTY = NaivePersistentMap.create();
+  private static final PersistentMap EMPTY = ChampPersistentMap.create();
 
   public abstract PersistentMap<K, V> with(K key, V value);
 
   public abstract PersistentMap<K, V> without(K key);
 
+  public Iterable<Map.Entry<K, V>> entriesNotSharedWith(PersistentMap<K, V> other) {
+    return entrySet();
+  }
+
   @SuppressWarnings("unchecked")
   public static <K, V> PersistentMap<K, V> create() {
     return EMPTY;
@@ -18,9 +18,9 @@ package com.google.javascript.jscomp.newtypes;
 
 import java.util.AbstractSet;
 
-/** A wrapper around a naive persistent set. */
+/** A wrapper around a CHAMP persistent set. */
 abstract class PersistentSet<K> extends AbstractSet<K> {
-  private static final PersistentSet EMPTY = NaivePersistentSet.create();
+  private static final PersistentSet EMPTY = ChampPersistentSet.create();
 
   public abstract PersistentSet<K> with(K key);
 
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.rhino;
+
+/** GWT compatible no-op replacement for {@code StringInterner}; strings are values in JS. */
+public final class StringInterner {
+  private StringInterner() {}
+
+  public static String intern(String s) {
+    return s;
+  }
+
+  public static Stats getStats() {
+    return new Stats();
+  }
+
+  /** Always empty. */
+  public static final class Stats {
+    public long getLookups() {
+      return 0;
+    }
+
+    public long getDuplicates() {
+      return 0;
+    }
+
+    public long getSavedBytes() {
+      return 0;
+    }
+
+    public Stats since(Stats earlier) {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,616 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A persistent map implemented as a compressed hash-array mapped prefix-tree (CHAMP), as described
+ * in Steindorfer and Vinju, "Optimizing Hash-Array Mapped Tries for Fast and Lean Immutable JVM
+ * Collections", OOPSLA 2015.
+ *
+ * <p>Each node of the trie consumes five bits of the hash of the keys. It keeps two bitmaps: one
+ * of the hash fragments whose single entry is stored inline, and one of the hash fragments that
+ * lead to a subnode. The entries come first in the array of the node, the subnodes last. A node
+ * other than the root always holds at least two entries, so the shape of the trie only depends on
+ * its keys. {@link #with} and {@link #without} copy the path to the changed entry and share all
+ * the other nodes, so that two maps derived from the same map share most of their nodes. Both
+ * {@link #equals} and {@link #entriesNotSharedWith} skip the shared nodes without visiting them.
+ */
+final class ChampPersistentMap<K, V> extends PersistentMap<K, V> implements Serializable {
+  private static final ChampPersistentMap<Object, Object> EMPTY =
+      new ChampPersistentMap<>(BitmapNode.EMPTY, 0);
+
+  private final Node root;
+  private final int size;
+
+  private ChampPersistentMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentMap<K, V> create() {
+    return (PersistentMap<K, V>) EMPTY;
+  }
+
+  @Override
+  public PersistentMap<K, V> with(K key, V value) {
+    int hash = hash(key);
+    Object oldValue = root.find(key, hash, 0);
+    if (oldValue == value) {
+      return this;
+    }
+    return new ChampPersistentMap<>(
+        root.with(key, value, hash, 0), oldValue == Node.NOT_FOUND ? size + 1 : size);
+  }
+
+  @Override
+  public PersistentMap<K, V> without(K key) {
+    int hash = hash(key);
+    if (root.find(key, hash, 0) == Node.NOT_FOUND) {
+      return this;
+    }
+    return size == 1 ? ChampPersistentMap.<K, V>create()
+        : new ChampPersistentMap<K, V>(root.without(key, hash, 0), size - 1);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    Object value = root.find(key, hash(key), 0);
+    return value == Node.NOT_FOUND ? null : (V) value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return root.find(key, hash(key), 0) != Node.NOT_FOUND;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new TrieIterator<Map.Entry<K, V>>(root) {
+          @Override
+          @SuppressWarnings("unchecked")
+          Map.Entry<K, V> get(Node node, int index) {
+            return new AbstractMap.SimpleImmutableEntry<>(
+                (K) node.keyAt(index), (V) node.valueAt(index));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return new AbstractSet<K>() {
+      @Override
+      public Iterator<K> iterator() {
+        return new TrieIterator<K>(root) {
+          @Override
+          @SuppressWarnings("unchecked")
+          K get(Node node, int index) {
+            return (K) node.keyAt(index);
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object key) {
+        return containsKey(key);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Iterable<Map.Entry<K, V>> entriesNotSharedWith(PersistentMap<K, V> other) {
+    if (!(other instanceof ChampPersistentMap)) {
+      return entrySet();
+    }
+    List<Map.Entry<K, V>> entries = new ArrayList<>();
+    Node.collectEntriesNotShared(root, ((ChampPersistentMap<K, V>) other).root, entries);
+    return entries;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof ChampPersistentMap) {
+      ChampPersistentMap<?, ?> other = (ChampPersistentMap<?, ?>) o;
+      return size == other.size && Node.equivalent(root, other.root);
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  static int hash(Object key) {
+    return key == null ? 0 : key.hashCode();
+  }
+
+  /** A node of the trie, either a {@link BitmapNode} or a {@link CollisionNode}. */
+  abstract static class Node implements Serializable {
+    static final int BITS_PER_LEVEL = 5;
+    static final int HASH_BITS = 32;
+    /** The deepest nodes are the collision nodes, one level below the last bitmap nodes. */
+    static final int MAX_DEPTH = HASH_BITS / BITS_PER_LEVEL + 2;
+
+    /** Returned by {@link #find} for keys that are not in the trie, since values may be null. */
+    static final Object NOT_FOUND = new Object();
+
+    /** Returns the value of the key, or {@link #NOT_FOUND}. */
+    abstract Object find(Object key, int hash, int shift);
+
+    /** Returns a node that maps the key to the value, which must be a different value. */
+    abstract Node with(Object key, Object value, int hash, int shift);
+
+    /** Returns a node without the key, which must be in this node. */
+    abstract Node without(Object key, int hash, int shift);
+
+    /** Returns the number of entries stored inline in this node. */
+    abstract int entryCount();
+
+    abstract Object keyAt(int index);
+
+    abstract Object valueAt(int index);
+
+    abstract int subnodeCount();
+
+    abstract Node subnodeAt(int index);
+
+    /**
+     * Adds to {@code entries} the entries of {@code node} that are not mapped to the same value in
+     * {@code other}, two nodes that are at the same position in their tries.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> void collectEntriesNotShared(
+        Node node, Node other, List<Map.Entry<K, V>> entries) {
+      if (node == other) {
+        return;
+      }
+      if (!(node instanceof BitmapNode) || !(other instanceof BitmapNode)) {
+        collectEntries(node, entries);
+        return;
+      }
+      BitmapNode bitmapNode = (BitmapNode) node;
+      BitmapNode otherBitmapNode = (BitmapNode) other;
+      int i = 0;
+      for (int bits = bitmapNode.dataMap; bits != 0; bits &= bits - 1, i++) {
+        int bit = Integer.lowestOneBit(bits);
+        if ((otherBitmapNode.dataMap & bit) != 0) {
+          int otherIndex = otherBitmapNode.entryIndex(bit);
+          if (bitmapNode.valueAt(i) == otherBitmapNode.valueAt(otherIndex)
+              && Objects.equals(bitmapNode.keyAt(i), otherBitmapNode.keyAt(otherIndex))) {
+            continue;
+          }
+        }
+        entries.add(new AbstractMap.SimpleImmutableEntry<>(
+            (K) bitmapNode.keyAt(i), (V) bitmapNode.valueAt(i)));
+      }
+      i = 0;
+      for (int bits = bitmapNode.nodeMap; bits != 0; bits &= bits - 1, i++) {
+        int bit = Integer.lowestOneBit(bits);
+        Node subnode = bitmapNode.subnodeAt(i);
+        if ((otherBitmapNode.nodeMap & bit) != 0) {
+          collectEntriesNotShared(
+              subnode, otherBitmapNode.subnodeAt(otherBitmapNode.subnodeIndex(bit)), entries);
+        } else {
+          collectEntries(subnode, entries);
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> void collectEntries(Node node, List<Map.Entry<K, V>> entries) {
+      for (int i = 0; i < node.entryCount(); i++) {
+        entries.add(new AbstractMap.SimpleImmutableEntry<>((K) node.keyAt(i), (V) node.valueAt(i)));
+      }
+      for (int i = 0; i < node.subnodeCount(); i++) {
+        collectEntries(node.subnodeAt(i), entries);
+      }
+    }
+
+    /**
+     * Whether the two nodes hold the same entries. Since the shape of a trie only depends on its
+     * keys, the nodes of equal tries are at the same positions.
+     */
+    static boolean equivalent(Node node, Node other) {
+      if (node == other) {
+        return true;
+      }
+      if (node instanceof CollisionNode && other instanceof CollisionNode) {
+        return ((CollisionNode) node).equivalentTo((CollisionNode) other);
+      }
+      if (!(node instanceof BitmapNode) || !(other instanceof BitmapNode)) {
+        return false;
+      }
+      BitmapNode bitmapNode = (BitmapNode) node;
+      BitmapNode otherBitmapNode = (BitmapNode) other;
+      if (bitmapNode.dataMap != otherBitmapNode.dataMap
+          || bitmapNode.nodeMap != otherBitmapNode.nodeMap) {
+        return false;
+      }
+      for (int i = 0; i < bitmapNode.entryCount(); i++) {
+        if (!Objects.equals(bitmapNode.keyAt(i), otherBitmapNode.keyAt(i))
+            || !Objects.equals(bitmapNode.valueAt(i), otherBitmapNode.valueAt(i))) {
+          return false;
+        }
+      }
+      for (int i = 0; i < bitmapNode.subnodeCount(); i++) {
+        if (!equivalent(bitmapNode.subnodeAt(i), otherBitmapNode.subnodeAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A node that dispatches on five bits of the hash. Its array holds a key and a value for each
+   * bit of {@code dataMap}, followed by a subnode for each bit of {@code nodeMap}, all in the
+   * order of the bits.
+   */
+  static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+    final int dataMap;
+    final int nodeMap;
+    private final Object[] contents;
+
+    BitmapNode(int dataMap, int nodeMap, Object[] contents) {
+      this.dataMap = dataMap;
+      this.nodeMap = nodeMap;
+      this.contents = contents;
+    }
+
+    private static int fragment(int hash, int shift) {
+      return (hash >>> shift) & 31;
+    }
+
+    private static int bit(int hash, int shift) {
+      return 1 << fragment(hash, shift);
+    }
+
+    int entryIndex(int bit) {
+      return Integer.bitCount(dataMap & (bit - 1));
+    }
+
+    int subnodeIndex(int bit) {
+      return Integer.bitCount(nodeMap & (bit - 1));
+    }
+
+    @Override
+    Object find(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = entryIndex(bit);
+        return Objects.equals(key, keyAt(index)) ? valueAt(index) : NOT_FOUND;
+      }
+      if ((nodeMap & bit) != 0) {
+        return subnodeAt(subnodeIndex(bit)).find(key, hash, shift + BITS_PER_LEVEL);
+      }
+      return NOT_FOUND;
+    }
+
+    @Override
+    Node with(Object key, Object value, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = entryIndex(bit);
+        Object oldKey = keyAt(index);
+        if (Objects.equals(key, oldKey)) {
+          Object[] newContents = contents.clone();
+          newContents[2 * index + 1] = value;
+          return new BitmapNode(dataMap, nodeMap, newContents);
+        }
+        Node subnode = merge(
+            oldKey, valueAt(index), ChampPersistentMap.hash(oldKey),
+            key, value, hash, shift + BITS_PER_LEVEL);
+        return withEntryMovedToSubnode(bit, subnode);
+      }
+      if ((nodeMap & bit) != 0) {
+        int index = subnodeIndex(bit);
+        Node subnode = subnodeAt(index);
+        return withSubnode(index, subnode.with(key, value, hash, shift + BITS_PER_LEVEL));
+      }
+      int index = entryIndex(bit);
+      Object[] newContents = new Object[contents.length + 2];
+      System.arraycopy(contents, 0, newContents, 0, 2 * index);
+      newContents[2 * index] = key;
+      newContents[2 * index + 1] = value;
+      System.arraycopy(
+          contents, 2 * index, newContents, 2 * index + 2, contents.length - 2 * index);
+      return new BitmapNode(dataMap | bit, nodeMap, newContents);
+    }
+
+    @Override
+    Node without(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((dataMap & bit) != 0) {
+        int index = entryIndex(bit);
+        Object[] newContents = new Object[contents.length - 2];
+        System.arraycopy(contents, 0, newContents, 0, 2 * index);
+        System.arraycopy(
+            contents, 2 * index + 2, newContents, 2 * index, contents.length - 2 * index - 2);
+        return new BitmapNode(dataMap ^ bit, nodeMap, newContents);
+      }
+      int index = subnodeIndex(bit);
+      Node newSubnode = subnodeAt(index).without(key, hash, shift + BITS_PER_LEVEL);
+      if (newSubnode.subnodeCount() == 0 && newSubnode.entryCount() == 1) {
+        // Keep the trie canonical: a subnode with a single entry is inlined.
+        return withSubnodeMovedToEntry(bit, newSubnode.keyAt(0), newSubnode.valueAt(0));
+      }
+      return withSubnode(index, newSubnode);
+    }
+
+    /** Returns a node with the two entries, whose keys differ, and are at the given shift. */
+    private static Node merge(
+        Object key1, Object value1, int hash1, Object key2, Object value2, int hash2, int shift) {
+      if (shift >= HASH_BITS) {
+        return new CollisionNode(new Object[] {key1, value1, key2, value2});
+      }
+      int fragment1 = fragment(hash1, shift);
+      int fragment2 = fragment(hash2, shift);
+      if (fragment1 == fragment2) {
+        Node subnode = merge(key1, value1, hash1, key2, value2, hash2, shift + BITS_PER_LEVEL);
+        return new BitmapNode(0, 1 << fragment1, new Object[] {subnode});
+      }
+      Object[] contents = fragment1 < fragment2
+          ? new Object[] {key1, value1, key2, value2}
+          : new Object[] {key2, value2, key1, value1};
+      return new BitmapNode((1 << fragment1) | (1 << fragment2), 0, contents);
+    }
+
+    private Node withSubnode(int index, Node subnode) {
+      Object[] newContents = contents.clone();
+      newContents[2 * entryCount() + index] = subnode;
+      return new BitmapNode(dataMap, nodeMap, newContents);
+    }
+
+    private Node withEntryMovedToSubnode(int bit, Node subnode) {
+      int oldIndex = 2 * entryIndex(bit);
+      int newIndex = contents.length - 2 - (subnodeCount() - subnodeIndex(bit));
+      Object[] newContents = new Object[contents.length - 1];
+      System.arraycopy(contents, 0, newContents, 0, oldIndex);
+      System.arraycopy(contents, oldIndex + 2, newContents, oldIndex, newIndex - oldIndex);
+      newContents[newIndex] = subnode;
+      System.arraycopy(
+          contents, newIndex + 2, newContents, newIndex + 1, contents.length - newIndex - 2);
+      return new BitmapNode(dataMap ^ bit, nodeMap | bit, newContents);
+    }
+
+    private Node withSubnodeMovedToEntry(int bit, Object key, Object value) {
+      int oldIndex = 2 * entryCount() + subnodeIndex(bit);
+      int newIndex = 2 * entryIndex(bit);
+      Object[] newContents = new Object[contents.length + 1];
+      System.arraycopy(contents, 0, newContents, 0, newIndex);
+      newContents[newIndex] = key;
+      newContents[newIndex + 1] = value;
+      System.arraycopy(contents, newIndex, newContents, newIndex + 2, oldIndex - newIndex);
+      System.arraycopy(
+          contents, oldIndex + 1, newContents, oldIndex + 2, contents.length - oldIndex - 1);
+      return new BitmapNode(dataMap | bit, nodeMap ^ bit, newContents);
+    }
+
+    @Override
+    int entryCount() {
+      return Integer.bitCount(dataMap);
+    }
+
+    @Override
+    Object keyAt(int index) {
+      return contents[2 * index];
+    }
+
+    @Override
+    Object valueAt(int index) {
+      return contents[2 * index + 1];
+    }
+
+    @Override
+    int subnodeCount() {
+      return Integer.bitCount(nodeMap);
+    }
+
+    @Override
+    Node subnodeAt(int index) {
+      return (Node) contents[2 * entryCount() + index];
+    }
+  }
+
+  /** A node of the entries whose keys have the same hash, past the last bitmap nodes. */
+  static final class CollisionNode extends Node {
+    private final Object[] contents;
+
+    CollisionNode(Object[] contents) {
+      this.contents = contents;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < contents.length; i += 2) {
+        if (Objects.equals(key, contents[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(Object key, int hash, int shift) {
+      int index = indexOf(key);
+      return index < 0 ? NOT_FOUND : contents[index + 1];
+    }
+
+    @Override
+    Node with(Object key, Object value, int hash, int shift) {
+      int index = indexOf(key);
+      Object[] newContents;
+      if (index < 0) {
+        newContents = new Object[contents.length + 2];
+        System.arraycopy(contents, 0, newContents, 0, contents.length);
+        newContents[contents.length] = key;
+        newContents[contents.length + 1] = value;
+      } else {
+        newContents = contents.clone();
+        newContents[index + 1] = value;
+      }
+      return new CollisionNode(newContents);
+    }
+
+    @Override
+    Node without(Object key, int hash, int shift) {
+      int index = indexOf(key);
+      Object[] newContents = new Object[contents.length - 2];
+      System.arraycopy(contents, 0, newContents, 0, index);
+      System.arraycopy(contents, index + 2, newContents, index, contents.length - index - 2);
+      return new CollisionNode(newContents);
+    }
+
+    boolean equivalentTo(CollisionNode other) {
+      if (contents.length != other.contents.length) {
+        return false;
+      }
+      for (int i = 0; i < contents.length; i += 2) {
+        int otherIndex = other.indexOf(contents[i]);
+        if (otherIndex < 0 || !Objects.equals(contents[i + 1], other.contents[otherIndex + 1])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    int entryCount() {
+      return contents.length / 2;
+    }
+
+    @Override
+    Object keyAt(int index) {
+      return contents[2 * index];
+    }
+
+    @Override
+    Object valueAt(int index) {
+      return contents[2 * index + 1];
+    }
+
+    @Override
+    int subnodeCount() {
+      return 0;
+    }
+
+    @Override
+    Node subnodeAt(int index) {
+      throw new IndexOutOfBoundsException();
+    }
+  }
+
+  /** Iterates over the entries of a trie, depth first. */
+  abstract static class TrieIterator<T> implements Iterator<T> {
+    private final Node[] nodes = new Node[Node.MAX_DEPTH];
+    private final int[] nextSubnodes = new int[Node.MAX_DEPTH];
+    private int depth = 0;
+    private Node entryNode;
+    private int nextEntry = 0;
+
+    TrieIterator(Node root) {
+      nodes[0] = root;
+      entryNode = root;
+    }
+
+    /** Returns the element for the entry at the given index of the node. */
+    abstract T get(Node node, int index);
+
+    @Override
+    public boolean hasNext() {
+      while (nextEntry >= entryNode.entryCount()) {
+        if (!findNextEntryNode()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean findNextEntryNode() {
+      while (depth >= 0) {
+        Node node = nodes[depth];
+        if (nextSubnodes[depth] < node.subnodeCount()) {
+          Node subnode = node.subnodeAt(nextSubnodes[depth]++);
+          depth++;
+          nodes[depth] = subnode;
+          nextSubnodes[depth] = 0;
+          entryNode = subnode;
+          nextEntry = 0;
+          return true;
+        }
+        depth--;
+      }
+      return false;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return get(entryNode, nextEntry++);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
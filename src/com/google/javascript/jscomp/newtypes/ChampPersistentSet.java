@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import com.google.javascript.jscomp.newtypes.ChampPersistentMap.BitmapNode;
+import com.google.javascript.jscomp.newtypes.ChampPersistentMap.Node;
+import com.google.javascript.jscomp.newtypes.ChampPersistentMap.TrieIterator;
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * A persistent set implemented as a compressed hash-array mapped prefix-tree, on the nodes of
+ * {@link ChampPersistentMap}. The keys are mapped to a dummy value.
+ */
+final class ChampPersistentSet<K> extends PersistentSet<K> implements Serializable {
+  private static final Object PRESENT = Boolean.TRUE;
+
+  private static final ChampPersistentSet<Object> EMPTY =
+      new ChampPersistentSet<>(BitmapNode.EMPTY, 0);
+
+  private final Node root;
+  private final int size;
+
+  private ChampPersistentSet(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <K> PersistentSet<K> create() {
+    return (PersistentSet<K>) EMPTY;
+  }
+
+  @Override
+  public PersistentSet<K> with(K key) {
+    int hash = ChampPersistentMap.hash(key);
+    if (root.find(key, hash, 0) != Node.NOT_FOUND) {
+      return this;
+    }
+    return new ChampPersistentSet<>(root.with(key, PRESENT, hash, 0), size + 1);
+  }
+
+  @Override
+  public PersistentSet<K> without(K key) {
+    int hash = ChampPersistentMap.hash(key);
+    if (root.find(key, hash, 0) == Node.NOT_FOUND) {
+      return this;
+    }
+    return size == 1 ? ChampPersistentSet.<K>create()
+        : new ChampPersistentSet<K>(root.without(key, hash, 0), size - 1);
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return root.find(key, ChampPersistentMap.hash(key), 0) != Node.NOT_FOUND;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Iterator<K> iterator() {
+    return new TrieIterator<K>(root) {
+      @Override
+      @SuppressWarnings("unchecked")
+      K get(Node node, int index) {
+        return (K) node.keyAt(index);
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof ChampPersistentSet) {
+      ChampPersistentSet<?> other = (ChampPersistentSet<?>) o;
+      return size == other.size && Node.equivalent(root, other.root);
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+}
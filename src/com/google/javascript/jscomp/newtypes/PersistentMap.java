@@ -24,16 +24,39 @@ import java.util.Map;
 @GwtIncompatible("Class.forName")
 /** A persistent map with non-destructive additions and removals  */
 abstract class PersistentMap<K, V> extends AbstractMap<K, V> {
+  /**
+   * The system property that selects the implementation of the persistent maps and sets: "champ"
+   * (the default), "clojure", which needs Clojure in the class path, or "naive".
+   */
+  static final String IMPLEMENTATION_PROPERTY = "jscomp.newtypes.persistentCollections";
 
-  private static PersistentMap EMPTY;
-  static {
-    try {
-      @SuppressWarnings("unchecked")
-      Class<? extends Map> c =
-          (Class<? extends Map>) Class.forName("clojure.lang.PersistentHashMap");
-      EMPTY = ClojurePersistentHashMap.create(c);
-    } catch (ClassNotFoundException e) {
-      EMPTY = NaivePersistentMap.create();
+  /**
+   * Holds the empty map. The implementations are subclasses, so initializing it along with this
+   * class would be a cycle.
+   */
+  private static final class Empty {
+    static final PersistentMap MAP =
+        createEmpty(System.getProperty(IMPLEMENTATION_PROPERTY, "champ"));
+  }
+
+  /** Returns an empty map of the given implementation. */
+  static <K, V> PersistentMap<K, V> createEmpty(String implementation) {
+    switch (implementation) {
+      case "champ":
+        return ChampPersistentMap.create();
+      case "clojure":
+        try {
+          @SuppressWarnings("unchecked")
+          Class<? extends Map> c =
+              (Class<? extends Map>) Class.forName("clojure.lang.PersistentHashMap");
+          return ClojurePersistentHashMap.create(c);
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Clojure is not in the class path", e);
+        }
+      case "naive":
+        return NaivePersistentMap.create();
+      default:
+        throw new IllegalArgumentException("Unknown persistent map: " + implementation);
     }
   }
 
@@ -41,9 +64,18 @@ abstract class PersistentMap<K, V> extends AbstractMap<K, V> {
 
   public abstract PersistentMap<K, V> without(K key);
 
+  /**
+   * Returns the entries of this map that {@code other} does not map to the same value, compared
+   * with ==. It may return more entries than that, e.g. all of them, which is what this default
+   * implementation does; the implementations that share structure skip the parts they share.
+   */
+  public Iterable<Map.Entry<K, V>> entriesNotSharedWith(PersistentMap<K, V> other) {
+    return entrySet();
+  }
+
   @SuppressWarnings("unchecked")
   public static <K, V> PersistentMap<K, V> create() {
-    return EMPTY;
+    return Empty.MAP;
   }
 
   public static <K, V> PersistentMap<K, V> of(K key, V value) {
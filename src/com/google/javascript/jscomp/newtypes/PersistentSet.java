@@ -22,16 +22,33 @@ import java.util.Set;
 /** A persistent set with non-destructive additions and removals */
 abstract class PersistentSet<K> extends AbstractSet<K> {
 
-  private static PersistentSet EMPTY;
-
-  static {
-    try {
-      @SuppressWarnings("unchecked")
-      Class<? extends Set> c =
-          (Class<? extends Set>) Class.forName("clojure.lang.PersistentHashSet");
-      EMPTY = ClojurePersistentHashSet.create(c);
-    } catch (ClassNotFoundException e) {
-      EMPTY = NaivePersistentSet.create();
+  /** Holds the empty set, which cannot be initialized along with its superclass. */
+  private static final class Empty {
+    static final PersistentSet SET =
+        createEmpty(System.getProperty(PersistentMap.IMPLEMENTATION_PROPERTY, "champ"));
+  }
+
+  /**
+   * Returns an empty set of the given implementation.
+   * @see PersistentMap#IMPLEMENTATION_PROPERTY
+   */
+  static <K> PersistentSet<K> createEmpty(String implementation) {
+    switch (implementation) {
+      case "champ":
+        return ChampPersistentSet.create();
+      case "clojure":
+        try {
+          @SuppressWarnings("unchecked")
+          Class<? extends Set> c =
+              (Class<? extends Set>) Class.forName("clojure.lang.PersistentHashSet");
+          return ClojurePersistentHashSet.create(c);
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Clojure is not in the class path", e);
+        }
+      case "naive":
+        return NaivePersistentSet.create();
+      default:
+        throw new IllegalArgumentException("Unknown persistent set: " + implementation);
     }
   }
 
@@ -41,7 +58,7 @@ abstract class PersistentSet<K> extends AbstractSet<K> {
 
   @SuppressWarnings("unchecked")
   public static <K> PersistentSet<K> create() {
-    return EMPTY;
+    return Empty.SET;
   }
 
 }
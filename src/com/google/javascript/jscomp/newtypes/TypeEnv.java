@@ -111,7 +111,8 @@ public final class TypeEnv {
     if (firstEnv.changedVars == null) {
       while (envsIter.hasNext()) {
         TypeEnv env = envsIter.next();
-        for (Map.Entry<String, JSType> entry : env.typeMap.entrySet()) {
+        // The entries that env shares with newMap have equal types, so they need no join.
+        for (Map.Entry<String, JSType> entry : env.typeMap.entriesNotSharedWith(newMap)) {
           String name = entry.getKey();
           // TODO(dimvar):
           // If the iteration order in the type envs is guaranteed to get the
@@ -124,6 +124,13 @@ public abstract class Config {
   /** How to parse the descriptions of JsDoc comments. */
   abstract JsDocParsing jsDocParsingMode();
 
+  /**
+   * Whether to defer parsing JsDoc comments until their {@code JSDocInfo} is first read. Comments
+   * that affect the whole file, such as {@code @fileoverview} and {@code @license}, are always
+   * parsed right away.
+   */
+  abstract boolean parseJsDocLazily();
+
   /** Whether to keep going after encountering a parse error. */
   abstract RunMode runMode();
 
@@ -145,6 +152,7 @@ public abstract class Config {
         .setLanguageMode(LanguageMode.TYPESCRIPT)
         .setStrictMode(StrictMode.STRICT)
         .setJsDocParsingMode(JsDocParsing.TYPES_ONLY)
+        .setParseJsDocLazily(false)
         .setRunMode(RunMode.STOP_AFTER_ERROR)
         .setExtraAnnotationNames(ImmutableSet.<String>of())
         .setSuppressionNames(ImmutableSet.<String>of())
@@ -159,6 +167,8 @@ public abstract class Config {
 
     abstract Builder setJsDocParsingMode(JsDocParsing mode);
 
+    abstract Builder setParseJsDocLazily(boolean parseJsDocLazily);
+
     abstract Builder setRunMode(RunMode mode);
 
     abstract Builder setParseInlineSourceMaps(boolean parseInlineSourceMaps);
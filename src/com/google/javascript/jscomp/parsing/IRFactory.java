@@ -146,14 +146,19 @@ import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.JSDocInfo.Visibility;
 import com.google.javascript.rhino.JSDocInfoBuilder;
+import com.google.javascript.rhino.LazyJSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Node.TypeDeclarationNode;
 import com.google.javascript.rhino.StaticSourceFile;
 import com.google.javascript.rhino.Token;
 import com.google.javascript.rhino.TokenStream;
 import com.google.javascript.rhino.dtoa.DToA;
+import java.io.Serializable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -219,8 +224,7 @@ class IRFactory {
   static final String UNEXPECTED_NEW_DOT_TARGET = "new.target must be inside a function";
   static final String UNDEFINED_LABEL = "undefined label \"%s\"";
 
-  private final String sourceString;
-  private final List<Integer> newlines;
+  private final CharSequence sourceString;
   private final StaticSourceFile sourceFile;
   private final String sourceName;
   private final Config config;
@@ -246,6 +250,10 @@ class IRFactory {
   private static final Pattern COMMENT_PATTERN =
       Pattern.compile("(/|(\n[ \t]*))\\*[ \t]*@[a-zA-Z]+[ \t\n{]");
 
+  /** Annotations that make a JsDoc comment affect the whole file, so it cannot be parsed lazily. */
+  private static final Pattern FILE_LEVEL_ANNOTATION_PATTERN =
+      Pattern.compile("@(copyright|externs|fileoverview|license|nocompile|preserve|typeSummary)\\b");
+
   /**
    * If non-null, use this set of keywords instead of TokenStream.isKeyword().
    */
@@ -253,6 +261,9 @@ class IRFactory {
   private final Set<String> reservedKeywords;
   private final Set<Comment> parsedComments = new HashSet<>();
 
+  // The JsDoc comments that were attached unparsed.
+  private final List<LazyJsDoc> lazyJsDocs = new ArrayList<>();
+
   // @license text gets appended onto the fileLevelJsDocBuilder as found,
   // and stored in JSDocInfo for placeholder node.
   JSDocInfoBuilder fileLevelJsDocBuilder;
@@ -269,10 +280,14 @@ class IRFactory {
   private boolean currentFileIsExterns = false;
   private boolean hasJsDocTypeAnnotations = false;
 
+  // Non-null if JsDoc comments are parsed when first read, rather than while building the AST.
+  @Nullable
+  private final LazyJsDocContext lazyJsDocContext;
+
   private FeatureSet features = FeatureSet.BARE_MINIMUM;
   private Node resultNode;
 
-  private IRFactory(String sourceString,
+  private IRFactory(CharSequence sourceString,
                     StaticSourceFile sourceFile,
                     Config config,
                     ErrorReporter errorReporter,
@@ -280,7 +295,6 @@ class IRFactory {
     this.sourceString = sourceString;
     this.nextCommentIter = comments.iterator();
     this.currentComment = skipNonJsDoc(nextCommentIter);
-    this.newlines = new ArrayList<>();
     this.sourceFile = sourceFile;
     // The template node properties are applied to all nodes in this transform.
     this.templateNode = createTemplateNode();
@@ -288,15 +302,6 @@ class IRFactory {
     this.fileLevelJsDocBuilder =
         new JSDocInfoBuilder(config.jsDocParsingMode().shouldParseDescriptions());
 
-    // Pre-generate all the newlines in the file.
-    for (int charNo = 0; true; charNo++) {
-      charNo = sourceString.indexOf('\n', charNo);
-      if (charNo == -1) {
-        break;
-      }
-      newlines.add(charNo);
-    }
-
     // Sometimes this will be null in tests.
     this.sourceName = sourceFile == null ? null : sourceFile.getName();
 
@@ -311,6 +316,12 @@ class IRFactory {
     } else {
       reservedKeywords = ES5_RESERVED_KEYWORDS;
     }
+
+    // TypeScript mode needs to know whether JsDoc declares types while building the AST.
+    this.lazyJsDocContext =
+        config.parseJsDocLazily() && config.languageMode() != LanguageMode.TYPESCRIPT
+            ? new LazyJsDocContext(templateNode, config, errorReporter)
+            : null;
   }
 
   private static Comment skipNonJsDoc(UnmodifiableIterator<Comment> comments) {
@@ -335,7 +346,7 @@ class IRFactory {
 
   public static IRFactory transformTree(ProgramTree tree,
                                         StaticSourceFile sourceFile,
-                                        String sourceString,
+                                        CharSequence sourceString,
                                         Config config,
                                         ErrorReporter errorReporter) {
     IRFactory irFactory = new IRFactory(sourceString, sourceFile,
@@ -699,13 +710,6 @@ class IRFactory {
     return null;
   }
 
-  private JSDocInfo handleJsDoc(ParseTree node) {
-    if (!shouldAttachJSDocHere(node)) {
-      return null;
-    }
-    return handleJsDoc(getJsDoc(node));
-  }
-
   private boolean shouldAttachJSDocHere(ParseTree tree) {
     switch (tree.type) {
       case EXPRESSION_STATEMENT:
@@ -763,7 +767,15 @@ class IRFactory {
   }
 
   Node transform(ParseTree tree) {
-    JSDocInfo info = handleJsDoc(tree);
+    Comment comment = shouldAttachJSDocHere(tree) ? getJsDoc(tree) : null;
+    // Casts are created from the parsed type, so the JsDoc of parentheses is needed right away.
+    if (tree.type != ParseTreeType.PAREN_EXPRESSION && canParseLazily(comment)) {
+      Node node = transformDispatcher.process(tree);
+      node.setLazyJSDocInfo(createLazyJsDoc(comment, false));
+      setSourceInfo(node, tree);
+      return node;
+    }
+    JSDocInfo info = handleJsDoc(comment);
     Node node = transformDispatcher.process(tree);
     if (info != null) {
       node = maybeInjectCastNode(tree, info, node);
@@ -790,7 +802,14 @@ class IRFactory {
    *   Using Inline Doc Comments</a>
    */
   Node transformNodeWithInlineJsDoc(ParseTree node) {
-    JSDocInfo info = handleInlineJsDoc(node);
+    Comment comment = getJsDoc(node.location);
+    if (canParseLazily(comment)) {
+      Node irNode = transformDispatcher.process(node);
+      irNode.setLazyJSDocInfo(createLazyJsDoc(comment, isInlineTypeDoc(comment)));
+      setSourceInfo(irNode, node);
+      return irNode;
+    }
+    JSDocInfo info = handleInlineJsDoc(node.location, comment);
     Node irNode = transformDispatcher.process(node);
     if (info != null) {
       irNode.setJSDocInfo(info);
@@ -809,14 +828,89 @@ class IRFactory {
   }
 
   JSDocInfo handleInlineJsDoc(SourceRange location) {
-    Comment comment = getJsDoc(location);
-    if (comment != null && !comment.value.contains("@")) {
+    return handleInlineJsDoc(location, getJsDoc(location));
+  }
+
+  private JSDocInfo handleInlineJsDoc(SourceRange location, Comment comment) {
+    if (comment != null && isInlineTypeDoc(comment)) {
       return recordJsDoc(location, parseInlineTypeDoc(comment));
     } else {
       return handleJsDoc(comment);
     }
   }
 
+  /** Whether the comment holds only a type, as the inline JsDoc of parameters usually does. */
+  private static boolean isInlineTypeDoc(Comment comment) {
+    return !comment.value.contains("@");
+  }
+
+  /**
+   * Whether {@code comment} can be attached unparsed, to be parsed the first time its JsDoc is
+   * read. Comments that apply to the whole file have to be parsed while building the AST.
+   */
+  private boolean canParseLazily(@Nullable Comment comment) {
+    return comment != null
+        && lazyJsDocContext != null
+        && !FILE_LEVEL_ANNOTATION_PATTERN.matcher(comment.value).find();
+  }
+
+  private LazyJsDoc createLazyJsDoc(Comment comment, boolean inline) {
+    parsedComments.add(comment);
+    LazyJsDoc lazyJsDoc =
+        new LazyJsDoc(
+            lazyJsDocContext,
+            comment.value,
+            comment.location.start.offset,
+            lineno(comment.location.start),
+            charno(comment.location.start),
+            inline);
+    lazyJsDocs.add(lazyJsDoc);
+    return lazyJsDoc;
+  }
+
+  /** Returns the JsDoc comments that were attached unparsed, in source order. */
+  ImmutableList<LazyJSDocInfo> getLazyJsDocs() {
+    return sortLazyJsDocs(lazyJsDocs);
+  }
+
+  private static ImmutableList<LazyJSDocInfo> sortLazyJsDocs(List<LazyJsDoc> lazyJsDocs) {
+    Collections.sort(
+        lazyJsDocs,
+        new Comparator<LazyJsDoc>() {
+          @Override
+          public int compare(LazyJsDoc a, LazyJsDoc b) {
+            return Integer.compare(a.position, b.position);
+          }
+        });
+    return ImmutableList.<LazyJSDocInfo>copyOf(lazyJsDocs);
+  }
+
+  /**
+   * Gives the unparsed JsDoc comments of a deserialized AST the file, config and reporter of the
+   * current compilation, and returns them in source order. Comments that are already bound are
+   * left alone, and not returned.
+   */
+  static ImmutableList<LazyJSDocInfo> bindLazyJsDocs(
+      Node root, Config config, ErrorReporter errorReporter) {
+    Node templateNode = new Node(Token.SCRIPT);
+    templateNode.setStaticSourceFile(root.getStaticSourceFile());
+    LazyJsDocContext context = new LazyJsDocContext(templateNode, config, errorReporter);
+    List<LazyJsDoc> bound = new ArrayList<>();
+    Deque<Node> worklist = new ArrayDeque<>();
+    worklist.push(root);
+    while (!worklist.isEmpty()) {
+      Node n = worklist.pop();
+      Object info = n.getProp(Node.JSDOC_INFO_PROP);
+      if (info instanceof LazyJsDoc && ((LazyJsDoc) info).bind(context)) {
+        bound.add((LazyJsDoc) info);
+      }
+      for (Node child = n.getFirstChild(); child != null; child = child.getNext()) {
+        worklist.push(child);
+      }
+    }
+    return sortLazyJsDocs(bound);
+  }
+
   Node transformNumberAsString(LiteralToken token) {
     double value = normalizeNumber(token);
     Node irNode = newStringNode(DToA.numberToString(value));
@@ -922,23 +1016,15 @@ class IRFactory {
    *     normal JsDoc, or no JsDoc (if the method parses to the wrong level).
    */
   private JsDocInfoParser createJsDocInfoParser(Comment node) {
-    String comment = node.value;
-    int lineno = lineno(node.location.start);
-    int charno = charno(node.location.start);
-    int position = node.location.start.offset;
-
-    // The JsDocInfoParser expects the comment without the initial '/**'.
-    int numOpeningChars = 3;
     JsDocInfoParser jsdocParser =
-      new JsDocInfoParser(
-          new JsDocTokenStream(comment.substring(numOpeningChars),
-                               lineno,
-                               charno + numOpeningChars),
-          comment,
-          position,
-          templateNode,
-          config,
-          errorReporter);
+        newJsDocInfoParser(
+            node.value,
+            node.location.start.offset,
+            lineno(node.location.start),
+            charno(node.location.start),
+            templateNode,
+            config,
+            errorReporter);
     jsdocParser.setFileLevelJsDocBuilder(fileLevelJsDocBuilder);
     jsdocParser.setFileOverviewJSDocInfo(fileOverviewInfo);
     if (node.type == Comment.Type.IMPORTANT && node.value.length() > 0) {
@@ -954,23 +1040,165 @@ class IRFactory {
    * Parses inline type info.
    */
   private JSDocInfo parseInlineTypeDoc(Comment node) {
-    String comment = node.value;
-    int lineno = lineno(node.location.start);
-    int charno = charno(node.location.start);
+    JsDocInfoParser parser =
+        newJsDocInfoParser(
+            node.value,
+            node.location.start.offset,
+            lineno(node.location.start),
+            charno(node.location.start),
+            templateNode,
+            config,
+            errorReporter);
+    return parser.parseInlineTypeDoc();
+  }
 
+  private static JsDocInfoParser newJsDocInfoParser(
+      String comment,
+      int position,
+      int lineno,
+      int charno,
+      Node templateNode,
+      Config config,
+      ErrorReporter errorReporter) {
     // The JsDocInfoParser expects the comment without the initial '/**'.
     int numOpeningChars = 3;
-    JsDocInfoParser parser =
-      new JsDocInfoParser(
-          new JsDocTokenStream(comment.substring(numOpeningChars),
+    return new JsDocInfoParser(
+        new JsDocTokenStream(comment.substring(numOpeningChars), lineno, charno + numOpeningChars),
+        comment,
+        position,
+        templateNode,
+        config,
+        errorReporter);
+  }
+
+  /** The parts of a file's parse that lazily parsed JsDoc comments need. */
+  private static final class LazyJsDocContext {
+    final Node templateNode;
+    final Config config;
+    final ErrorReporter errorReporter;
+
+    LazyJsDocContext(Node templateNode, Config config, ErrorReporter errorReporter) {
+      this.templateNode = templateNode;
+      this.config = config;
+      this.errorReporter = errorReporter;
+    }
+  }
+
+  /** A diagnostic of a lazily parsed JsDoc comment, held until it is reported. */
+  private static final class DeferredDiagnostic implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final boolean isError;
+    final String message;
+    final String sourceName;
+    final int line;
+    final int lineOffset;
+
+    DeferredDiagnostic(
+        boolean isError, String message, String sourceName, int line, int lineOffset) {
+      this.isError = isError;
+      this.message = message;
+      this.sourceName = sourceName;
+      this.line = line;
+      this.lineOffset = lineOffset;
+    }
+  }
+
+  /**
+   * A JsDoc comment that is parsed the first time its JSDocInfo is read. Its warnings are held
+   * until {@link #reportDiagnostics}, and then go to the reporter of the parse that created it.
+   *
+   * <p>The context is not serialized. A deserialized comment must be bound to the compilation that
+   * reads it, see {@link #bindLazyJsDocs}.
+   */
+  private static final class LazyJsDoc extends LazyJSDocInfo implements ErrorReporter {
+    private static final long serialVersionUID = 1L;
+
+    // Null until a deserialized comment is bound.
+    @Nullable private transient volatile LazyJsDocContext context;
+    private final String comment;
+    private final int position;
+    private final int lineno;
+    private final int charno;
+    private final boolean inline;
+    // Null once the diagnostics are reported. Guarded by the lock of this object.
+    @Nullable private List<DeferredDiagnostic> diagnostics = new ArrayList<>();
+
+    LazyJsDoc(
+        LazyJsDocContext context,
+        String comment,
+        int position,
+        int lineno,
+        int charno,
+        boolean inline) {
+      this.context = context;
+      this.comment = comment;
+      this.position = position;
+      this.lineno = lineno;
+      this.charno = charno;
+      this.inline = inline;
+    }
+
+    /** Sets the context of a deserialized comment. Returns false if it already had one. */
+    synchronized boolean bind(LazyJsDocContext context) {
+      if (this.context != null) {
+        return false;
+      }
+      this.context = context;
+      return true;
+    }
+
+    @Override
+    protected JSDocInfo parse() {
+      checkState(context != null, "JsDoc comment read before it is bound to a compilation");
+      JsDocInfoParser parser =
+          newJsDocInfoParser(
+              comment,
+              position,
               lineno,
-              charno + numOpeningChars),
-          comment,
-          node.location.start.offset,
-          templateNode,
-          config,
-          errorReporter);
-    return parser.parseInlineTypeDoc();
+              charno,
+              context.templateNode,
+              context.config,
+              this);
+      if (inline) {
+        return parser.parseInlineTypeDoc();
+      }
+      parser.parse();
+      return parser.retrieveAndResetParsedJSDocInfo();
+    }
+
+    @Override
+    public void reportDiagnostics() {
+      get();
+      List<DeferredDiagnostic> toReport;
+      synchronized (this) {
+        toReport = diagnostics;
+        diagnostics = null;
+      }
+      if (toReport == null || toReport.isEmpty()) {
+        return;
+      }
+      for (DeferredDiagnostic diagnostic : toReport) {
+        if (diagnostic.isError) {
+          context.errorReporter.error(
+              diagnostic.message, diagnostic.sourceName, diagnostic.line, diagnostic.lineOffset);
+        } else {
+          context.errorReporter.warning(
+              diagnostic.message, diagnostic.sourceName, diagnostic.line, diagnostic.lineOffset);
+        }
+      }
+    }
+
+    // Only called by the parser of the comment, under the lock of this object.
+    @Override
+    public void warning(String message, String sourceName, int line, int lineOffset) {
+      diagnostics.add(new DeferredDiagnostic(false, message, sourceName, line, lineOffset));
+    }
+
+    @Override
+    public void error(String message, String sourceName, int line, int lineOffset) {
+      diagnostics.add(new DeferredDiagnostic(true, message, sourceName, line, lineOffset));
+    }
   }
 
   // Set the length on the node if we're in IDE mode.
@@ -1850,8 +2078,8 @@ class IRFactory {
         int start = token.location.start.offset;
         int end = token.location.end.offset;
         if (start < sourceString.length() &&
-            (sourceString.substring(
-                start, Math.min(sourceString.length(), end)).contains("\\v"))) {
+            (sourceString.subSequence(
+                start, Math.min(sourceString.length(), end)).toString().contains("\\v"))) {
           n.putBooleanProp(Node.SLASH_V, true);
         }
       }
@@ -18,6 +18,7 @@ package com.google.javascript.jscomp.parsing;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.javascript.rhino.StringInterner;
 import com.google.javascript.rhino.TokenUtil;
 
 /**
@@ -235,7 +236,7 @@ class JsDocTokenStream {
 
   private String getStringFromBuffer() {
     String s = new String(stringBuffer, 0, stringBufferTop);
-    return s.intern();
+    return StringInterner.intern(s);
   }
 
   private void addToString(int c) {
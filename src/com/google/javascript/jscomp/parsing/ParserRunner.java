@@ -24,6 +24,7 @@ import com.google.javascript.jscomp.parsing.Config.LanguageMode;
 import com.google.javascript.jscomp.parsing.Config.RunMode;
 import com.google.javascript.jscomp.parsing.Config.StrictMode;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
+import com.google.javascript.jscomp.parsing.parser.LineNumberTable;
 import com.google.javascript.jscomp.parsing.parser.Parser;
 import com.google.javascript.jscomp.parsing.parser.Parser.Config.Mode;
 import com.google.javascript.jscomp.parsing.parser.SourceFile;
@@ -31,6 +32,7 @@ import com.google.javascript.jscomp.parsing.parser.trees.Comment;
 import com.google.javascript.jscomp.parsing.parser.trees.ProgramTree;
 import com.google.javascript.jscomp.parsing.parser.util.SourcePosition;
 import com.google.javascript.rhino.ErrorReporter;
+import com.google.javascript.rhino.LazyJSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.SimpleSourceFile;
 import com.google.javascript.rhino.StaticSourceFile;
@@ -72,6 +74,24 @@ public final class ParserRunner {
       Set<String> extraAnnotationNames,
       boolean parseInlineSourceMaps,
       StrictMode strictMode) {
+    return createConfig(
+        languageMode,
+        jsdocParsingMode,
+        runMode,
+        extraAnnotationNames,
+        parseInlineSourceMaps,
+        strictMode,
+        false);
+  }
+
+  public static Config createConfig(
+      LanguageMode languageMode,
+      JsDocParsing jsdocParsingMode,
+      RunMode runMode,
+      Set<String> extraAnnotationNames,
+      boolean parseInlineSourceMaps,
+      StrictMode strictMode,
+      boolean parseJsDocLazily) {
 
     initResourceConfig();
     Set<String> effectiveAnnotationNames;
@@ -84,6 +104,7 @@ public final class ParserRunner {
     return Config.builder()
         .setExtraAnnotationNames(effectiveAnnotationNames)
         .setJsDocParsingMode(jsdocParsingMode)
+        .setParseJsDocLazily(parseJsDocLazily)
         .setRunMode(runMode)
         .setSuppressionNames(suppressionNames)
         .setLanguageMode(languageMode)
@@ -112,16 +133,42 @@ public final class ParserRunner {
     return ImmutableSet.copyOf(Splitter.on(',').trimResults().split(configProp));
   }
 
+  /**
+   * Binds the JsDoc comments that a deserialized AST holds unparsed to the current compilation,
+   * which parses them with {@code config} and reports their diagnostics to {@code errorReporter}.
+   * Returns the comments that were bound, in source order.
+   */
+  public static List<LazyJSDocInfo> bindLazyJsDocs(
+      Node root, Config config, ErrorReporter errorReporter) {
+    return IRFactory.bindLazyJsDocs(root, config, errorReporter);
+  }
+
+  public static ParseResult parse(
+      StaticSourceFile sourceFile,
+      CharSequence sourceString,
+      Config config,
+      ErrorReporter errorReporter) {
+    return parse(sourceFile, sourceString, null, config, errorReporter);
+  }
+
+  /**
+   * Parses {@code sourceString}, reusing {@code lineNumberTable} if it is non-null. The table must
+   * have been built from the same source text.
+   */
   public static ParseResult parse(
       StaticSourceFile sourceFile,
-      String sourceString,
+      CharSequence sourceString,
+      @Nullable LineNumberTable lineNumberTable,
       Config config,
       ErrorReporter errorReporter) {
     // TODO(johnlenz): unify "SourceFile", "Es6ErrorReporter" and "Config"
 
     String sourceName = sourceFile.getName();
     try {
-      SourceFile file = new SourceFile(sourceName, sourceString);
+      SourceFile file =
+          lineNumberTable == null
+              ? new SourceFile(sourceName, sourceString)
+              : new SourceFile(sourceName, sourceString, lineNumberTable);
       boolean keepGoing = config.runMode() == Config.RunMode.KEEP_GOING;
       Es6ErrorReporter es6ErrorReporter = new Es6ErrorReporter(errorReporter, keepGoing);
       com.google.javascript.jscomp.parsing.parser.Parser.Config es6config = newParserConfig(config);
@@ -129,6 +176,7 @@ public final class ParserRunner {
       ProgramTree tree = p.parseProgram();
       Node root = null;
       List<Comment> comments = ImmutableList.of();
+      List<LazyJSDocInfo> lazyJsDocs = ImmutableList.of();
       FeatureSet features = p.getFeatures();
       if (tree != null && (!es6ErrorReporter.hadError() || keepGoing)) {
         IRFactory factory =
@@ -136,12 +184,13 @@ public final class ParserRunner {
         root = factory.getResultNode();
         features = features.union(factory.getFeatures());
         root.putProp(Node.FEATURE_SET, features);
+        lazyJsDocs = factory.getLazyJsDocs();
 
         if (config.jsDocParsingMode().shouldParseDescriptions()) {
           comments = p.getComments();
         }
       }
-      return new ParseResult(root, comments, features, p.getSourceMapURL());
+      return new ParseResult(root, comments, features, p.getSourceMapURL(), lazyJsDocs);
     } catch (Throwable t) {
       throw new RuntimeException("Exception parsing \"" + sourceName + "\"", t);
     }
@@ -238,12 +287,27 @@ public final class ParserRunner {
     public final List<Comment> comments;
     public final FeatureSet features;
     @Nullable public final String sourceMapURL;
+    /**
+     * The JSDoc comments that were attached unparsed, in source order. Their diagnostics are only
+     * reported when {@link LazyJSDocInfo#reportDiagnostics} is called.
+     */
+    public final List<LazyJSDocInfo> lazyJsDocs;
 
     public ParseResult(Node ast, List<Comment> comments, FeatureSet features, String sourceMapURL) {
+      this(ast, comments, features, sourceMapURL, ImmutableList.<LazyJSDocInfo>of());
+    }
+
+    public ParseResult(
+        Node ast,
+        List<Comment> comments,
+        FeatureSet features,
+        String sourceMapURL,
+        List<LazyJSDocInfo> lazyJsDocs) {
       this.ast = ast;
       this.comments = comments;
       this.features = features;
       this.sourceMapURL = sourceMapURL;
+      this.lazyJsDocs = lazyJsDocs;
     }
   }
 }
@@ -19,51 +19,47 @@ package com.google.javascript.jscomp.parsing.parser;
 import com.google.javascript.jscomp.parsing.parser.util.SourcePosition;
 import com.google.javascript.jscomp.parsing.parser.util.SourceRange;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
  * Maps offsets into a source string into line/column positions.
  *
- * Immutable.
+ * Immutable. A table only depends on the source text, so the table of a file can be built once
+ * and shared by every parse of the file and by whatever later looks up its lines, such as source
+ * excerpts in error messages.
  */
-public class LineNumberTable {
+public final class LineNumberTable {
 
-  private final SourceFile sourceFile;
   private final int[] lineStartOffsets;
 
-  public LineNumberTable(SourceFile sourceFile) {
-    this.sourceFile = sourceFile;
-    this.lineStartOffsets = computeLineStartOffsets(sourceFile.contents);
+  public LineNumberTable(CharSequence source) {
+    this.lineStartOffsets = computeLineStartOffsets(source);
   }
 
-  private static int[] computeLineStartOffsets(String source) {
-    // TODO(johnlenz): do this more efficiently.
-    ArrayList<Integer> lineStartOffsets = new ArrayList<>();
-    lineStartOffsets.add(0);
-    for (int index = 0; index < source.length(); index++) {
+  private static int[] computeLineStartOffsets(CharSequence source) {
+    int length = source.length();
+    // Leave room for the sentinel at the end.
+    int[] lineStartOffsets = new int[2 + length / 32];
+    int lineCount = 1;
+    for (int index = 0; index < length; index++) {
       char ch = source.charAt(index);
       if (isLineTerminator(ch)) {
-        if (index + 1 < source.length() && ch == '\r'
+        if (index + 1 < length && ch == '\r'
             && source.charAt(index + 1) == '\n') {
           index++;
         }
-        lineStartOffsets.add(index + 1);
+        if (lineCount + 1 == lineStartOffsets.length) {
+          lineStartOffsets = Arrays.copyOf(lineStartOffsets, lineStartOffsets.length * 2);
+        }
+        lineStartOffsets[lineCount++] = index + 1;
       }
     }
-    lineStartOffsets.add(Integer.MAX_VALUE);
-    return toIntArray(lineStartOffsets);
-  }
-
-  public static int[] toIntArray(ArrayList<Integer> integers) {
-      int[] ret = new int[integers.size()];
-      for (int i = 0; i < ret.length; i++) {
-          ret[i] = integers.get(i).intValue();
-      }
-      return ret;
+    lineStartOffsets[lineCount] = Integer.MAX_VALUE;
+    return Arrays.copyOf(lineStartOffsets, lineCount + 1);
   }
 
-  private static boolean isLineTerminator(char ch) {
+  /** Whether {@code ch} ends a line. A {@code \r\n} pair ends a single line. */
+  public static boolean isLineTerminator(char ch) {
     switch (ch) {
     case '\n': // Line Feed
     case '\r':  // Carriage Return
@@ -75,11 +71,12 @@ public class LineNumberTable {
     }
   }
 
-  public SourcePosition getSourcePosition(int offset) {
+  public SourcePosition getSourcePosition(SourceFile sourceFile, int offset) {
     int line = getLine(offset);
     return new SourcePosition(sourceFile, offset, line, getColumn(line, offset));
   }
 
+  /** Returns the zero-based line of {@code offset}. */
   public int getLine(int offset) {
     int index = Arrays.binarySearch(lineStartOffsets, offset);
     // start of line
@@ -89,6 +86,11 @@ public class LineNumberTable {
     return -index - 2;
   }
 
+  /** Returns the number of lines; text after the last line terminator counts as a line. */
+  public int getLineCount() {
+    return lineStartOffsets.length - 1;
+  }
+
   public int offsetOfLine(int line) {
     return lineStartOffsets[line];
   }
@@ -97,7 +99,8 @@ public class LineNumberTable {
     return offset - offsetOfLine(line);
   }
 
-  public SourceRange getSourceRange(int startOffset, int endOffset) {
-    return new SourceRange(getSourcePosition(startOffset), getSourcePosition(endOffset));
+  public SourceRange getSourceRange(SourceFile sourceFile, int startOffset, int endOffset) {
+    return new SourceRange(
+        getSourcePosition(sourceFile, startOffset), getSourcePosition(sourceFile, endOffset));
   }
 }
@@ -22,6 +22,7 @@ import com.google.javascript.jscomp.parsing.parser.trees.Comment;
 import com.google.javascript.jscomp.parsing.parser.util.ErrorReporter;
 import com.google.javascript.jscomp.parsing.parser.util.SourcePosition;
 import com.google.javascript.jscomp.parsing.parser.util.SourceRange;
+import com.google.javascript.rhino.StringInterner;
 import java.util.ArrayList;
 
 /**
@@ -81,11 +82,11 @@ public class Scanner {
   }
 
   private SourcePosition getPosition(int offset) {
-    return getLineNumberTable().getSourcePosition(offset);
+    return getLineNumberTable().getSourcePosition(source, offset);
   }
 
   private SourceRange getTokenRange(int startOffset) {
-    return getLineNumberTable().getSourceRange(startOffset, index);
+    return getLineNumberTable().getSourceRange(source, startOffset, index);
   }
 
   public Token nextToken() {
@@ -364,8 +365,8 @@ public class Scanner {
     while (!isAtEnd() && !isLineTerminator(peekChar())) {
       nextChar();
     }
-    SourceRange range = getLineNumberTable().getSourceRange(startOffset, index);
-    String value = this.source.contents.substring(startOffset, index);
+    SourceRange range = getLineNumberTable().getSourceRange(source, startOffset, index);
+    String value = this.source.contents.subSequence(startOffset, index).toString();
     recordComment(type, range, value);
   }
 
@@ -393,9 +394,8 @@ public class Scanner {
         }
       }
       SourceRange range = getLineNumberTable().getSourceRange(
-          startOffset, index);
-      String value = this.source.contents.substring(
-          startOffset, index);
+          source, startOffset, index);
+      String value = this.source.contents.subSequence(startOffset, index).toString();
       recordComment(type, range, value);
     } else {
       reportError("unterminated comment");
@@ -730,7 +730,7 @@ public class Scanner {
     }
 
     // Intern the value to avoid creating lots of copies of the same string.
-    return new IdentifierToken(getTokenRange(beginToken), value.intern());
+    return new IdentifierToken(getTokenRange(beginToken), StringInterner.intern(value));
   }
 
   /**
@@ -850,7 +850,7 @@ public class Scanner {
   }
 
   private String getTokenString(int beginIndex) {
-    return this.source.contents.substring(beginIndex, index);
+    return this.source.contents.subSequence(beginIndex, index).toString();
   }
 
   private boolean peekStringLiteralChar(char terminator) {
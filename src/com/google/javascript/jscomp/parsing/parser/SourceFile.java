@@ -19,16 +19,22 @@ package com.google.javascript.jscomp.parsing.parser;
 /**
  * A source file.
  *
- * Immutable.
+ * Immutable. The contents are only read through {@link CharSequence}, so they can be backed by
+ * something other than a String (such as a buffer over a memory-mapped file) without copying them.
  */
 public final class SourceFile {
   public final String name;
-  public final String contents;
+  public final CharSequence contents;
   public final LineNumberTable lineNumberTable;
 
-  public SourceFile(String name, String contents) {
+  public SourceFile(String name, CharSequence contents) {
+    this(name, contents, new LineNumberTable(contents));
+  }
+
+  /** Creates a source file that reuses a table built earlier from the same contents. */
+  public SourceFile(String name, CharSequence contents, LineNumberTable lineNumberTable) {
     this.name = name;
     this.contents = contents;
-    this.lineNumberTable = new LineNumberTable(this);
+    this.lineNumberTable = lineNumberTable;
   }
 }
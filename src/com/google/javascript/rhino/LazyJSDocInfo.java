@@ -0,0 +1,105 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+
+package com.google.javascript.rhino;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import javax.annotation.Nullable;
+
+/**
+ * A JSDoc comment that is only parsed the first time its {@link JSDocInfo} is read.
+ *
+ * <p>The parser attaches these to nodes with {@link Node#setLazyJSDocInfo} when it is configured
+ * to defer JSDoc parsing, and {@link Node#getJSDocInfo} resolves them transparently. Nodes may be
+ * read from several threads once their AST is built, so the comment is parsed at most once, under
+ * the lock of this object.
+ *
+ * <p>Reading the JSDoc does not report the warnings about the comment, since passes read comments
+ * in no particular order and on any thread. They are reported by {@link #reportDiagnostics}, which
+ * the owner of the parse calls at a fixed point for all the comments of a file, in source order.
+ *
+ * <p>A serialized AST keeps its comments as they are, parsed or not.
+ */
+public abstract class LazyJSDocInfo implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private volatile boolean parsed = false;
+  private JSDocInfo info;
+
+  /** Returns the parsed JSDoc, parsing the comment if this is the first request. */
+  @Nullable
+  public final JSDocInfo get() {
+    if (!parsed) {
+      synchronized (this) {
+        if (!parsed) {
+          info = parse();
+          parsed = true;
+        }
+      }
+    }
+    return info;
+  }
+
+  /** Whether the comment has been parsed yet. */
+  public final boolean isParsed() {
+    return parsed;
+  }
+
+  /**
+   * Parses the comment. Called at most once. The diagnostics must be held until {@link
+   * #reportDiagnostics} is called.
+   */
+  @Nullable
+  protected abstract JSDocInfo parse();
+
+  /**
+   * Reports the diagnostics of the comment to the reporter of the parse that created it, parsing
+   * the comment first if nobody read it. The diagnostics are only reported once.
+   */
+  public abstract void reportDiagnostics();
+
+  private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(get());
+  }
+}
@@ -352,7 +352,7 @@ public class Node implements Serializable {
         throw new IllegalArgumentException("StringNode: str is null");
       }
       // Intern the string reference so that serialization won't save repeated strings.
-      this.str = str.intern();
+      this.str = StringInterner.intern(str);
     }
 
     @Override
@@ -395,7 +395,7 @@ public class Node implements Serializable {
     private void readObject(java.io.ObjectInputStream in) throws Exception {
       in.defaultReadObject();
 
-      this.str = this.str.intern();
+      this.str = StringInterner.intern(this.str);
     }
   }
 
@@ -2382,7 +2382,8 @@ public class Node implements Serializable {
    */
   @Nullable
   public final JSDocInfo getJSDocInfo() {
-    return (JSDocInfo) getProp(JSDOC_INFO_PROP);
+    Object info = getProp(JSDOC_INFO_PROP);
+    return info instanceof LazyJSDocInfo ? ((LazyJSDocInfo) info).get() : (JSDocInfo) info;
   }
 
   /**
@@ -2393,6 +2394,14 @@ public class Node implements Serializable {
     return this;
   }
 
+  /**
+   * Attaches JSDoc that is parsed the first time {@link #getJSDocInfo} is called.
+   */
+  public final Node setLazyJSDocInfo(LazyJSDocInfo info) {
+    putProp(JSDOC_INFO_PROP, info);
+    return this;
+  }
+
   /** This node was last changed at {@code time} */
   public final void setChangeTime(int time) {
     putIntProp(CHANGE_TIME, time);
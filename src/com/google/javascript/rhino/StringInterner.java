@@ -0,0 +1,126 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+
+package com.google.javascript.rhino;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A process-wide table of canonical identifier and string literal values.
+ *
+ * <p>The scanner, the JSDoc tokenizer and {@link Node} route the strings they keep through this
+ * table, so that a property name such as {@code prototype} is stored once no matter how many inputs
+ * use it, and so that {@code Node} can compare strings by reference. Unlike {@link String#intern},
+ * lookups do not contend on a global lock when many inputs are parsed in parallel, and entries are
+ * dropped once no AST refers to them anymore.
+ */
+@GwtIncompatible("com.google.common.collect.Interners")
+public final class StringInterner {
+
+  /**
+   * Approximate size of a {@code String} and its backing array on a 64-bit JVM with compressed
+   * references, not counting the characters.
+   */
+  private static final int STRING_OVERHEAD_BYTES = 24 + 16;
+
+  private static final Interner<String> interner = Interners.newWeakInterner();
+
+  private static final LongAdder lookups = new LongAdder();
+  private static final LongAdder duplicates = new LongAdder();
+  private static final LongAdder savedBytes = new LongAdder();
+
+  private StringInterner() {}
+
+  /** Returns the canonical instance of {@code s}. */
+  public static String intern(String s) {
+    String canonical = interner.intern(s);
+    lookups.increment();
+    if (canonical != s) {
+      duplicates.increment();
+      savedBytes.add(estimateSize(s));
+    }
+    return canonical;
+  }
+
+  /** Returns the counters accumulated by this process so far. */
+  public static Stats getStats() {
+    return new Stats(lookups.sum(), duplicates.sum(), savedBytes.sum());
+  }
+
+  private static long estimateSize(String s) {
+    long size = STRING_OVERHEAD_BYTES + 2L * s.length();
+    return (size + 7) & ~7L;
+  }
+
+  /** A snapshot of the interning counters. */
+  public static final class Stats {
+    private final long lookups;
+    private final long duplicates;
+    private final long savedBytes;
+
+    Stats(long lookups, long duplicates, long savedBytes) {
+      this.lookups = lookups;
+      this.duplicates = duplicates;
+      this.savedBytes = savedBytes;
+    }
+
+    /** The number of strings that were looked up. */
+    public long getLookups() {
+      return lookups;
+    }
+
+    /** The number of lookups that found an existing copy, whose own copy could then be dropped. */
+    public long getDuplicates() {
+      return duplicates;
+    }
+
+    /** An estimate of the heap no longer retained thanks to the dropped duplicates. */
+    public long getSavedBytes() {
+      return savedBytes;
+    }
+
+    /** Returns the counters accumulated since {@code earlier} was taken. */
+    public Stats since(Stats earlier) {
+      return new Stats(
+          lookups - earlier.lookups,
+          duplicates - earlier.duplicates,
+          savedBytes - earlier.savedBytes);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.io.Files;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.LazyJSDocInfo;
+import com.google.javascript.rhino.Node;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import junit.framework.TestCase;
+
+/** Tests for {@link AstCache}. */
+public final class AstCacheTest extends TestCase {
+  private Path cacheDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    cacheDir = Files.createTempDir().toPath();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    for (File file : cacheDir.toFile().listFiles()) {
+      file.delete();
+    }
+    cacheDir.toFile().delete();
+    super.tearDown();
+  }
+
+  public void testReusesCachedAst() throws Exception {
+    String code = "/** @const */ var x = 1; // comment\nfunction f(a) { return a; }";
+
+    AstCache firstCache = new AstCache(cacheDir);
+    Node first = parse(firstCache, SourceFile.fromCode("a.js", code));
+    assertEquals(0, firstCache.getHitCount());
+    assertEquals(1, firstCache.getMissCount());
+
+    // A new cache over the same directory, as in a new worker process.
+    AstCache secondCache = new AstCache(cacheDir);
+    SourceFile secondFile = SourceFile.fromCode("a.js", code);
+    Node second = parse(secondCache, secondFile);
+    assertEquals(1, secondCache.getHitCount());
+    assertEquals(0, secondCache.getMissCount());
+
+    assertNull(first.checkTreeEquals(second));
+    assertThat(second.getStaticSourceFile()).isSameAs(secondFile);
+    assertThat(second.getFirstChild().getStaticSourceFile()).isSameAs(secondFile);
+    JSDocInfo info = second.getFirstChild().getJSDocInfo();
+    assertNotNull(info);
+    assertTrue(info.isConstant());
+  }
+
+  public void testChangedCodeIsNotReused() throws Exception {
+    AstCache cache = new AstCache(cacheDir);
+    parse(cache, SourceFile.fromCode("a.js", "var x = 1;"));
+    parse(cache, SourceFile.fromCode("a.js", "var x = 2;"));
+    assertEquals(0, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  public void testParseErrorsAreReplayedOnHit() throws Exception {
+    Compiler second = assertDiagnosticsReplayedOnHit("var b = 1 +;");
+    assertThat(second.getErrors()).isNotEmpty();
+  }
+
+  public void testParseWarningsAreReplayedOnHit() throws Exception {
+    Compiler second = assertDiagnosticsReplayedOnHit("/** @type {!Array<number} */ var a;");
+    assertThat(second.getWarnings()).isNotEmpty();
+  }
+
+  /**
+   * Parses the code as a.js, and then as b.js from a new cache over the same directory. Checks that
+   * the second parse reuses the entry, and reports the same diagnostics for b.js.
+   */
+  private Compiler assertDiagnosticsReplayedOnHit(String code) throws Exception {
+    Compiler first = newCompiler(false);
+    new CompilerInput(new AstCache(cacheDir).createAst(SourceFile.fromCode("a.js", code)))
+        .getAstRoot(first);
+    assertThat(cacheDir.toFile().list()).hasLength(1);
+
+    AstCache cache = new AstCache(cacheDir);
+    Compiler second = newCompiler(false);
+    new CompilerInput(cache.createAst(SourceFile.fromCode("b.js", code))).getAstRoot(second);
+    assertEquals(1, cache.getHitCount());
+    assertThat(describe(second.getErrors())).isEqualTo(describe(first.getErrors(), "b.js"));
+    assertThat(describe(second.getWarnings())).isEqualTo(describe(first.getWarnings(), "b.js"));
+    return second;
+  }
+
+  public void testLazyJsDocIsCachedUnparsed() throws Exception {
+    String code = "/** @const */ var x = 1;\n/** @type {!Array<number} */ var a;";
+    Compiler first = newCompiler(true);
+    new CompilerInput(new AstCache(cacheDir).createAst(SourceFile.fromCode("a.js", code)))
+        .getAstRoot(first);
+    first.generateReport();
+
+    AstCache cache = new AstCache(cacheDir);
+    Compiler second = newCompiler(true);
+    Node root =
+        new CompilerInput(cache.createAst(SourceFile.fromCode("b.js", code))).getAstRoot(second);
+    assertEquals(1, cache.getHitCount());
+    Object lazyJsDoc = root.getFirstChild().getProp(Node.JSDOC_INFO_PROP);
+    assertThat(lazyJsDoc).isInstanceOf(LazyJSDocInfo.class);
+    assertFalse(((LazyJSDocInfo) lazyJsDoc).isParsed());
+    assertTrue(root.getFirstChild().getJSDocInfo().isConstant());
+    assertThat(second.getWarnings()).isEmpty();
+
+    second.generateReport();
+    assertThat(first.getWarnings()).isNotEmpty();
+    assertThat(describe(second.getWarnings())).isEqualTo(describe(first.getWarnings(), "b.js"));
+  }
+
+  public void testCorruptEntryIsIgnored() throws Exception {
+    AstCache cache = new AstCache(cacheDir);
+    parse(cache, SourceFile.fromCode("a.js", "var x = 1;"));
+    File[] entries = cacheDir.toFile().listFiles();
+    assertThat(entries).hasLength(1);
+    Files.write(new byte[] {1, 2, 3}, entries[0]);
+
+    Node root = parse(cache, SourceFile.fromCode("a.js", "var x = 1;"));
+    assertTrue(root.getFirstChild().isVar());
+    assertEquals(0, cache.getHitCount());
+  }
+
+  public void testPersistentInputStoreUsesCache() throws Exception {
+    AstCache cache = new AstCache(cacheDir);
+    PersistentInputStore store = new PersistentInputStore(cache);
+    store.addInput("path/to/a.js", "aaa");
+    SourceFile file = SourceFile.fromCode("path/to/a.js", "var x = 1;");
+    Compiler compiler = new Compiler();
+    compiler.initOptions(new CompilerOptions());
+    store.getCachedCompilerInput(file).getAstRoot(compiler);
+    assertEquals(1, cache.getMissCount());
+
+    AstCache newCache = new AstCache(cacheDir);
+    PersistentInputStore newStore = new PersistentInputStore(newCache);
+    newStore.addInput("path/to/a.js", "aaa");
+    Node root = newStore.getCachedCompilerInput(file).getAstRoot(compiler);
+    assertTrue(root.getFirstChild().isVar());
+    assertEquals(1, newCache.getHitCount());
+  }
+
+  private static Node parse(AstCache cache, SourceFile file) {
+    return new CompilerInput(cache.createAst(file)).getAstRoot(newCompiler(false));
+  }
+
+  private static Compiler newCompiler(boolean parseJsDocLazily) {
+    Compiler compiler = new Compiler(new BlackHoleErrorManager());
+    CompilerOptions options = new CompilerOptions();
+    options.setParseJsDocLazily(parseJsDocLazily);
+    // Reports the bad type annotations of the tests.
+    options.setCheckTypes(true);
+    compiler.initOptions(options);
+    return compiler;
+  }
+
+  private static List<String> describe(JSError[] diagnostics) {
+    return describe(diagnostics, null);
+  }
+
+  /** Describes the diagnostics, as if they were reported for {@code sourceName} if non-null. */
+  private static List<String> describe(JSError[] diagnostics, @Nullable String sourceName) {
+    List<String> descriptions = new ArrayList<>();
+    for (JSError diagnostic : diagnostics) {
+      descriptions.add(
+          (sourceName == null ? diagnostic.sourceName : sourceName)
+              + ":"
+              + diagnostic.lineNumber
+              + ":"
+              + diagnostic.getCharno()
+              + ": "
+              + diagnostic.description);
+    }
+    return descriptions;
+  }
+}
@@ -1334,6 +1334,25 @@ public final class CommandLineRunnerTest extends TestCase {
     assertThat(multistageOutput).isEqualTo(singleStageOutput);
   }
 
+  public void testOptimizationLoopProfile() throws Exception {
+    File profileFile = new File(Files.createTempDir(), "profile.txt");
+    String inputString =
+        "[{\"src\": \"function f(x) { return x; } alert(f(1));\", \"path\": \"foo.js\"}]";
+    args.add("--json_streams=BOTH");
+    args.add("--compilation_level=ADVANCED");
+    args.add("--optimization_loop_profile=" + profileFile.getAbsolutePath());
+
+    String firstOutput = compile(inputString, args);
+    assertThat(profileFile.exists()).isTrue();
+    LoopPassProfile profile = LoopPassProfile.load(profileFile.getAbsolutePath());
+    assertThat(profile.getChangeRate(PassNames.INLINE_FUNCTIONS)).isGreaterThan(0.0);
+
+    // The next compile reads the profile and updates it.
+    assertThat(compile(inputString, args)).isEqualTo(firstOutput);
+    assertThat(LoopPassProfile.load(profileFile.getAbsolutePath()).getAverageNanos(
+        PassNames.INLINE_FUNCTIONS)).isGreaterThan(0L);
+  }
+
   private String compile(String inputString, List<String> args) {
     ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
     ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
@@ -30,6 +30,7 @@ import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.InputId;
+import com.google.javascript.rhino.LazyJSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import java.io.ByteArrayInputStream;
@@ -418,6 +419,73 @@ public final class CompilerTest extends TestCase {
     assertFalse(compiler.getInput(new InputId("in2")).isExtern());
   }
 
+  public void testParallelParsing() {
+    CompilerOptions options = new CompilerOptions();
+    options.setNumParallelThreads(4);
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i, "var x" + i + " = " + i + ";"));
+    }
+    Compiler compiler = new Compiler();
+    Result result = compiler.compile(EMPTY_EXTERNS, inputs, options);
+
+    assertTrue(result.success);
+    assertEquals(20, compiler.getJsRoot().getChildCount());
+    assertEquals("in0", compiler.getJsRoot().getFirstChild().getSourceFileName());
+    assertEquals("in19", compiler.getJsRoot().getLastChild().getSourceFileName());
+  }
+
+  public void testParallelParsingStopsOnHaltingError() {
+    CompilerOptions options = new CompilerOptions();
+    options.setNumParallelThreads(4);
+    List<SourceFile> inputs = new ArrayList<>();
+    inputs.add(SourceFile.fromCode("bad", "var = ;"));
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i, "var x" + i + " = " + i + ";"));
+    }
+    Compiler compiler = new Compiler();
+    Result result = compiler.compile(EMPTY_EXTERNS, inputs, options);
+
+    assertFalse(result.success);
+    assertThat(compiler.getErrorCount()).isAtLeast(1);
+  }
+
+  public void testLazyJsDocReportsTheSameWarningsAsEagerParsing() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(
+          SourceFile.fromCode(
+              "in" + i,
+              lines(
+                  "/** @type {Array<number} */ var a" + i + " = [];",
+                  // Removed before any pass reads its JSDoc.
+                  "if (false) { /** @param {string x */ var f = function(x) {}; }",
+                  "/** @private @public */ var b" + i + " = a" + i + ";")));
+    }
+
+    List<String> eager = compileForWarnings(inputs, false);
+    List<String> lazy = compileForWarnings(inputs, true);
+    // Two type annotations, a visibility tag and the unreachable code, in each input.
+    assertThat(eager).hasSize(80);
+    assertThat(lazy).containsExactlyElementsIn(eager).inOrder();
+  }
+
+  private static List<String> compileForWarnings(List<SourceFile> inputs, boolean lazyJsDoc) {
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
+    options.setNumParallelThreads(4);
+    options.setCheckTypes(true);
+    options.setParseJsDocLazily(lazyJsDoc);
+    Compiler compiler = new Compiler();
+    compiler.compile(EMPTY_EXTERNS, inputs, options);
+    List<String> warnings = new ArrayList<>();
+    for (JSError warning : compiler.getWarnings()) {
+      warnings.add(warning.toString());
+    }
+    Collections.sort(warnings);
+    return warnings;
+  }
+
   public void testRebuildInputsFromModule() {
     List<JSModule> modules = ImmutableList.of(
         new JSModule("m1"), new JSModule("m2"));
@@ -1116,6 +1184,38 @@ public final class CompilerTest extends TestCase {
 
   }
 
+  public void testSaveRestoreKeepsLazyJsDocUnparsed() throws Exception {
+    CompilerOptions options = new CompilerOptions();
+    options.setCheckTypes(true);
+    options.setParseJsDocLazily(true);
+    Compiler compiler = new Compiler(new BlackHoleErrorManager());
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("in.js", "/** @type {Array<number} */ var a;")),
+        options);
+    compiler.parse();
+
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    compiler.saveState(byteArrayOutputStream);
+    byteArrayOutputStream.close();
+    assertThat(compiler.getWarnings()).isEmpty();
+
+    compiler = new Compiler(new BlackHoleErrorManager());
+    compiler.options = options;
+    try (ByteArrayInputStream byteArrayInputStream =
+        new ByteArrayInputStream(byteArrayOutputStream.toByteArray())) {
+      compiler.restoreState(byteArrayInputStream);
+    }
+    Object lazyJsDoc =
+        compiler.getJsRoot().getFirstFirstChild().getProp(Node.JSDOC_INFO_PROP);
+    assertThat(lazyJsDoc).isInstanceOf(LazyJSDocInfo.class);
+    assertFalse(((LazyJSDocInfo) lazyJsDoc).isParsed());
+
+    compiler.generateReport();
+    assertThat(compiler.getWarnings()).hasLength(1);
+    assertThat(compiler.getWarnings()[0].sourceName).isEqualTo("in.js");
+  }
+
   public void testExternsDependencyPruning() {
     List<SourceFile> inputs =
         ImmutableList.of(
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.javascript.jscomp.graph.GraphReachability;
+import com.google.javascript.rhino.Node;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link ControlFlowGraphCache}. */
+public final class ControlFlowGraphCacheTest extends TestCase {
+  private Compiler compiler;
+  private Node root;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    compiler = new Compiler();
+    CompilerOptions options = new CompilerOptions();
+    options.setCacheControlFlowGraphs(true);
+    compiler.initOptions(options);
+    root = compiler.parseTestCode("function f(x) { if (x) { return 1; } return 2; } f(0);");
+  }
+
+  private Node getFunction() {
+    return root.getFirstChild();
+  }
+
+  public void testUnchangedFunctionHits() {
+    Node function = getFunction();
+    ControlFlowGraphCache cache = compiler.getControlFlowGraphCache();
+    ControlFlowGraph<Node> cfg = ControlFlowAnalysis.getCfg(compiler, function);
+    assertSame(cfg, ControlFlowAnalysis.getCfg(compiler, function));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(cfg.getNodes().size(), cache.getCachedNodeCount());
+  }
+
+  public void testChangedFunctionMisses() {
+    Node function = getFunction();
+    ControlFlowGraph<Node> cfg = ControlFlowAnalysis.getCfg(compiler, function);
+
+    Node ifNode = function.getLastChild().getFirstChild();
+    ifNode.detach();
+    compiler.reportChangeToChangeScope(function);
+
+    ControlFlowGraph<Node> newCfg = ControlFlowAnalysis.getCfg(compiler, function);
+    assertNotSame(cfg, newCfg);
+    assertNull(newCfg.getNode(ifNode));
+    assertSame(newCfg, ControlFlowAnalysis.getCfg(compiler, function));
+  }
+
+  public void testDeletedFunctionMisses() {
+    Node function = getFunction();
+    ControlFlowGraph<Node> cfg = ControlFlowAnalysis.getCfg(compiler, function);
+    function.detach();
+    compiler.reportFunctionDeleted(function);
+
+    assertNotSame(cfg, ControlFlowAnalysis.getCfg(compiler, function));
+    assertEquals(0, compiler.getControlFlowGraphCache().getHits());
+  }
+
+  public void testGlobalScopeIsNotCached() {
+    ControlFlowGraph<Node> cfg = ControlFlowAnalysis.getCfg(compiler, root);
+    assertNotSame(cfg, ControlFlowAnalysis.getCfg(compiler, root));
+    assertEquals(0, compiler.getControlFlowGraphCache().getCachedNodeCount());
+  }
+
+  public void testFullCacheKeepsItsGraphs() {
+    Node function = getFunction();
+    int size = ControlFlowAnalysis.computeCfg(compiler, function).getNodes().size();
+    ControlFlowGraphCache cache = new ControlFlowGraphCache(size - 1);
+    ControlFlowGraph<Node> cfg = cache.getCfg(compiler, function);
+    assertNotSame(cfg, cache.getCfg(compiler, function));
+    assertEquals(0, cache.getCachedNodeCount());
+    assertEquals(2, cache.getMisses());
+  }
+
+  public void testFullCacheDropsInvalidGraphs() {
+    Node function = getFunction();
+    int size = ControlFlowAnalysis.computeCfg(compiler, function).getNodes().size();
+    ControlFlowGraphCache cache = new ControlFlowGraphCache(size);
+    cache.getCfg(compiler, function);
+    compiler.reportChangeToChangeScope(function);
+
+    Node otherFunction = compiler.parseTestCode("function g(y) { if (y) { return 3; } return 4; }")
+        .getFirstChild();
+    ControlFlowGraph<Node> cfg = cache.getCfg(compiler, otherFunction);
+    assertSame(cfg, cache.getCfg(compiler, otherFunction));
+    assertEquals(size, cache.getCachedNodeCount());
+  }
+
+  public void testUnreportedChangeIsCaughtInDevMode() {
+    compiler = new Compiler();
+    CompilerOptions options = new CompilerOptions();
+    options.setCacheControlFlowGraphs(true);
+    options.devMode = CompilerOptions.DevMode.EVERY_PASS;
+    compiler.initOptions(options);
+    Node function =
+        compiler.parseTestCode("function f(x) { if (x) { return 1; } }").getFirstChild();
+    ControlFlowAnalysis.getCfg(compiler, function);
+    ControlFlowAnalysis.getCfg(compiler, function);
+
+    function.getLastChild().getFirstChild().detach();
+    try {
+      ControlFlowAnalysis.getCfg(compiler, function);
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageThat().contains("control flow graph of f is stale");
+    }
+  }
+
+  public void testDisabledCache() {
+    compiler = new Compiler();
+    CompilerOptions options = new CompilerOptions();
+    compiler.initOptions(options);
+    Node function = compiler.parseTestCode("function f() {}").getFirstChild();
+
+    ControlFlowGraph<Node> cfg = ControlFlowAnalysis.getCfg(compiler, function);
+    assertNotSame(cfg, ControlFlowAnalysis.getCfg(compiler, function));
+    assertEquals(2, compiler.getControlFlowGraphCache().getMisses());
+  }
+
+  public void testAnnotationsAreReleasedAfterThePass() {
+    Node function = getFunction();
+    ControlFlowGraph<Node> cfg = ControlFlowAnalysis.getCfg(compiler, function);
+    new GraphReachability<>(cfg).compute(cfg.getEntry().getValue());
+    assertNotNull(cfg.getEntry().getAnnotation());
+
+    compiler.afterPass("pass");
+    assertNull(cfg.getEntry().getAnnotation());
+  }
+}
@@ -19,6 +19,7 @@ package com.google.javascript.jscomp;
 import static com.google.common.truth.Truth.assertThat;
 import static java.util.Comparator.comparingInt;
 
+import com.google.common.collect.ImmutableList;
 import com.google.javascript.jscomp.AbstractCompiler.LifeCycleStage;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
@@ -26,8 +27,10 @@ import com.google.javascript.jscomp.DataFlowAnalysis.BranchedFlowState;
 import com.google.javascript.jscomp.DataFlowAnalysis.BranchedForwardDataFlowAnalysis;
 import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
 import com.google.javascript.jscomp.DataFlowAnalysis.MaxIterationsExceededException;
+import com.google.javascript.jscomp.DataFlowAnalysis.PriorityWorklist;
 import com.google.javascript.jscomp.JoinOp.BinaryJoinOp;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.jscomp.graph.GraphNode;
 import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.InputId;
@@ -659,6 +662,61 @@ public final class DataFlowAnalysisTest extends TestCase {
     assertEquals(1, JoinOp.BinaryJoinOp.computeMidPoint(2));
   }
 
+  public void testWorklistTakesNodesInOrder() {
+    PriorityWorklist<String> worklist =
+        new PriorityWorklist<>(ImmutableList.of("a", "b", "c", "d"));
+    assertTrue(worklist.isEmpty());
+    worklist.add("c");
+    worklist.add("a");
+    worklist.add("c");
+    assertEquals("a", worklist.poll());
+    worklist.add("d");
+    worklist.add("b");
+    assertEquals("b", worklist.poll());
+    assertEquals("c", worklist.poll());
+    worklist.add("a");
+    assertEquals("a", worklist.poll());
+    assertEquals("d", worklist.poll());
+    assertTrue(worklist.isEmpty());
+  }
+
+  public void testWorklistWithoutComparatorFollowsTheFlow() {
+    // a = 0; a = a + 1; a = a + 2; ... with the nodes created from the last instruction to the
+    // first, and a graph without a node comparator.
+    Variable a = new Variable("a");
+    Instruction[] insts = new Instruction[MAX_STEP];
+    insts[0] = newAssignNumberToVariableInstruction(a, 0);
+    for (int i = 1; i < MAX_STEP; i++) {
+      insts[i] = new ArithmeticInstruction(a, a, Operation.ADD, i);
+    }
+    ControlFlowGraph<Instruction> cfg = new ControlFlowGraph<>(insts[0], true, true);
+    assertNull(cfg.getOptionalNodeComparator(true));
+    List<GraphNode<Instruction, Branch>> nodes = new ArrayList<>();
+    for (int i = MAX_STEP - 1; i >= 0; i--) {
+      nodes.add(0, cfg.createNode(insts[i]));
+    }
+    for (int i = 0; i + 1 < MAX_STEP; i++) {
+      cfg.connect(insts[i], ControlFlowGraph.Branch.UNCOND, insts[i + 1]);
+    }
+
+    DummyConstPropagation constProp = new DummyConstPropagation(cfg);
+    PriorityWorklist<DiGraphNode<Instruction, Branch>> worklist = constProp.createWorklist();
+    for (int i = MAX_STEP - 1; i >= 0; i--) {
+      worklist.add(cfg.getDirectedGraphNode(insts[i]));
+    }
+    for (int i = 0; i < MAX_STEP; i++) {
+      assertSame(insts[i], worklist.poll().getValue());
+    }
+    assertTrue(worklist.isEmpty());
+
+    // In the reverse postorder, every node is visited once. In the order of creation, the nodes
+    // after the first would be visited twice.
+    constProp.analyze(MAX_STEP - 1);
+    for (int i = 0; i < MAX_STEP; i++) {
+      verifyOutHas(nodes.get(i), a, i * (i + 1) / 2);
+    }
+  }
+
   // tests for computeEscaped method
 
   public void testEscaped() {
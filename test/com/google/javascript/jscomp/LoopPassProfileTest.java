@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import junit.framework.TestCase;
+
+/** Tests for {@link LoopPassProfile}. */
+public final class LoopPassProfileTest extends TestCase {
+
+  public void testSaveAndLoad() throws IOException {
+    LoopPassProfile profile = new LoopPassProfile();
+    profile.recordRun("x", true, 10);
+    profile.recordRun("x", false, 30);
+    for (int i = 0; i < LoopPassProfile.MIN_RUNS_TO_BE_DORMANT; i++) {
+      profile.recordRun("y", false, 5);
+    }
+    Path file = Files.createTempFile("profile", ".txt");
+    profile.save(file.toString());
+
+    LoopPassProfile loaded = LoopPassProfile.load(file.toString());
+    assertEquals(0.5, loaded.getChangeRate("x"));
+    assertEquals(20, loaded.getAverageNanos("x"));
+    assertFalse(loaded.isDormant("x"));
+    assertEquals(0.0, loaded.getChangeRate("y"));
+    assertTrue(loaded.isDormant("y"));
+  }
+
+  public void testLoadMissingFile() throws IOException {
+    Path dir = Files.createTempDirectory("profile");
+    LoopPassProfile loaded = LoopPassProfile.load(dir.resolve("missing.txt").toString());
+    assertEquals(1.0, loaded.getChangeRate("x"));
+    assertFalse(loaded.isDormant("x"));
+  }
+
+  public void testLoadCorruptFile() throws IOException {
+    Path file = Files.createTempFile("profile", ".txt");
+    Files.write(file, "# loop pass profile v1\nx\t20\tnot a number\t5\n".getBytes(UTF_8));
+    LoopPassProfile loaded = LoopPassProfile.load(file.toString());
+    assertEquals(1.0, loaded.getChangeRate("x"));
+  }
+}
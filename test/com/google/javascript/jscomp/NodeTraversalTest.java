@@ -127,6 +127,103 @@ public final class NodeTraversalTest extends TestCase {
   }
 
 
+  public void testCallbackOrder() {
+    Compiler compiler = new Compiler();
+    compiler.initCompilerOptionsIfTesting();
+    compiler.getOptions().setLanguageIn(LanguageMode.ECMASCRIPT_2015);
+    Node tree =
+        parse(
+            compiler,
+            lines(
+                "function f(a) { if (a) { let C = class D extends B {}; } }",
+                "g(() => 1);",
+                "class E { m() {} }"));
+    final List<String> events = new ArrayList<>();
+    NodeTraversal.traverseEs6(
+        compiler,
+        tree,
+        new NodeTraversal.ScopedCallback() {
+          @Override
+          public boolean shouldTraverse(NodeTraversal t, Node n, Node parent) {
+            events.add("pre " + n.getToken());
+            return !n.isLet();
+          }
+
+          @Override
+          public void visit(NodeTraversal t, Node n, Node parent) {
+            events.add("post " + n.getToken());
+          }
+
+          @Override
+          public void enterScope(NodeTraversal t) {
+            events.add("enter " + t.getScopeRoot().getToken());
+          }
+
+          @Override
+          public void exitScope(NodeTraversal t) {
+            events.add("exit " + t.getScopeRoot().getToken());
+          }
+        });
+    assertThat(events)
+        .containsExactly(
+            "enter SCRIPT", "pre SCRIPT", "pre FUNCTION", "pre NAME",
+            "post NAME", "enter FUNCTION", "pre PARAM_LIST", "pre NAME",
+            "post NAME", "post PARAM_LIST", "pre BLOCK", "enter BLOCK",
+            "pre IF", "pre NAME", "post NAME", "pre BLOCK",
+            "enter BLOCK", "pre LET", "exit BLOCK", "post BLOCK",
+            "post IF", "exit BLOCK", "post BLOCK", "exit FUNCTION",
+            "post FUNCTION", "pre EXPR_RESULT", "pre CALL", "pre NAME",
+            "post NAME", "pre FUNCTION", "enter FUNCTION", "pre NAME",
+            "post NAME", "pre PARAM_LIST", "post PARAM_LIST", "pre NUMBER",
+            "post NUMBER", "exit FUNCTION", "post FUNCTION", "post CALL",
+            "post EXPR_RESULT", "pre CLASS", "pre NAME", "post NAME",
+            "enter CLASS", "pre EMPTY", "post EMPTY", "pre CLASS_MEMBERS",
+            "pre MEMBER_FUNCTION_DEF", "pre FUNCTION", "enter FUNCTION", "pre NAME",
+            "post NAME", "pre PARAM_LIST", "post PARAM_LIST", "pre BLOCK",
+            "enter BLOCK", "exit BLOCK", "post BLOCK", "exit FUNCTION",
+            "post FUNCTION", "post MEMBER_FUNCTION_DEF", "post CLASS_MEMBERS", "exit CLASS",
+            "post CLASS", "post SCRIPT", "exit SCRIPT")
+        .inOrder();
+  }
+
+  public void testDeeplyNestedCodeOnSmallStack() throws Exception {
+    final Compiler compiler = new Compiler();
+    compiler.initCompilerOptionsIfTesting();
+    Node expr = IR.number(1);
+    for (int i = 0; i < 100000; i++) {
+      expr = IR.not(expr);
+    }
+    Node block = IR.block(IR.exprResult(expr));
+    for (int i = 0; i < 10000; i++) {
+      block = IR.block(block);
+    }
+    final Node root = IR.root(IR.script(block));
+    final int[] visits = new int[1];
+    // Far too small a stack for a recursive traversal of this tree.
+    Thread thread =
+        new Thread(
+            null,
+            new Runnable() {
+              @Override
+              public void run() {
+                NodeTraversal.traverseEs6(
+                    compiler,
+                    root,
+                    new AbstractPostOrderCallback() {
+                      @Override
+                      public void visit(NodeTraversal t, Node n, Node parent) {
+                        visits[0]++;
+                      }
+                    });
+              }
+            },
+            "small-stack",
+            256 * 1024);
+    thread.start();
+    thread.join();
+    assertEquals(1 + 100000 + 1 + 10001 + 1 + 1, visits[0]);
+  }
+
   public void testGetScopeRoot() {
     Compiler compiler = new Compiler();
     String code = lines(
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/** Runs the {@link PeepholeIntegrationTest}s with the change scopes optimized in parallel. */
+public final class ParallelPeepholeIntegrationTest extends PeepholeIntegrationTest {
+  @Override
+  protected CompilerOptions getOptions(CompilerOptions options) {
+    options = super.getOptions(options);
+    options.setNumParallelThreads(4);
+    options.setParallelPeepholeOptimizations(true);
+    return options;
+  }
+
+  public void testManyFunctions() {
+    StringBuilder code = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      code.append("function f" + i + "() { if (true) { return function() { return 1 + 2; }; } }");
+      expected.append("function f" + i + "() { return function() { return 3; }; }");
+    }
+    test(code.toString(), expected.toString());
+  }
+
+  public void testSameOutputAndWarningsAsSerial() {
+    StringBuilder code = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      code.append("function f" + i + "() {");
+      code.append("  var a = ~" + i + ".5;");
+      code.append("  return function() { return [1, 2][" + (i + 2) + "] + 1 + 2; };");
+      code.append("}");
+    }
+    String serial = optimize(code.toString(), false);
+    String parallel = optimize(code.toString(), true);
+    assertThat(parallel).isEqualTo(serial);
+    assertThat(parallel).contains("JSC_FRACTIONAL_BITWISE_OPERAND");
+    assertThat(parallel).contains("JSC_INDEX_OUT_OF_BOUNDS_ERROR");
+    // The warnings arrive in the same order whichever thread finishes first.
+    String reportingOrder = optimizeReportingOrder(code.toString());
+    for (int i = 0; i < 5; i++) {
+      assertThat(optimizeReportingOrder(code.toString())).isEqualTo(reportingOrder);
+    }
+  }
+
+  public void testTypesAreNotQueriedInParallel() {
+    CompilerOptions options = getOptions(new CompilerOptions());
+    assertTrue(options.shouldRunPeepholeOptimizationsInParallel());
+    options.setUseTypesForLocalOptimization(true);
+    assertFalse(options.shouldRunPeepholeOptimizationsInParallel());
+  }
+
+  /**
+   * Returns the optimized code followed by the warnings, sorted like in the report of the
+   * compiler, since the scopes are not optimized in the same order.
+   */
+  private String optimize(String code, boolean parallel) {
+    Compiler compiler = new Compiler();
+    process(compiler, code, parallel, null);
+    List<String> warnings = new ArrayList<>();
+    for (JSError warning : compiler.getWarnings()) {
+      warnings.add(warning.toString());
+    }
+    Collections.sort(warnings);
+    return compiler.toSource() + "\n" + Joiner.on("\n").join(warnings);
+  }
+
+  /** Returns the warnings in the order in which they were reported. */
+  private String optimizeReportingOrder(String code) {
+    final StringBuilder warnings = new StringBuilder();
+    process(
+        new Compiler(),
+        code,
+        true,
+        new ErrorHandler() {
+          @Override
+          public void report(CheckLevel level, JSError error) {
+            warnings.append(error).append("\n");
+          }
+        });
+    return warnings.toString();
+  }
+
+  private void process(
+      Compiler compiler, String code, boolean parallel, @Nullable ErrorHandler errorHandler) {
+    CompilerOptions options = new CompilerOptions();
+    options.setNumParallelThreads(4);
+    options.setParallelPeepholeOptimizations(parallel);
+    options.setErrorHandler(errorHandler);
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("in.js", code)),
+        options);
+    compiler.parse();
+    new PeepholeOptimizationsPass(
+            compiler,
+            "peephole",
+            new PeepholeRemoveDeadCode(),
+            new PeepholeFoldConstants(false, false /* useTypes */))
+        .process(compiler.getExternsRoot(), compiler.getJsRoot());
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests for {@link ParallelScopeRunner}. */
+public final class ParallelScopeRunnerTest extends TestCase {
+
+  public void testProcessesNestedScopesFirst() {
+    Compiler compiler = new Compiler();
+    Node script =
+        compiler.parseTestCode(
+            "function a() { function b() { function c() {} } } function d() { function e() {} }");
+    final List<Node> scopeRoots = new ArrayList<>();
+    NodeUtil.visitPreOrder(
+        script,
+        new NodeUtil.Visitor() {
+          @Override
+          public void visit(Node n) {
+            if (NodeUtil.isChangeScopeRoot(n)) {
+              scopeRoots.add(n);
+            }
+          }
+        });
+
+    final Thread caller = Thread.currentThread();
+    final List<String> contents = Collections.synchronizedList(new ArrayList<String>());
+    final List<String> roots = new ArrayList<>();
+    new ParallelScopeRunner(compiler, 4)
+        .run(
+            scopeRoots,
+            new ParallelScopeRunner.ScopeWork() {
+              @Override
+              public void processContents(Node scopeRoot) {
+                contents.add(name(scopeRoot));
+              }
+
+              @Override
+              public void processRoot(Node scopeRoot) {
+                assertThat(Thread.currentThread()).isSameAs(caller);
+                // The contents of every scope of a wave are done before its roots are processed.
+                assertThat(contents).contains(name(scopeRoot));
+                roots.add(name(scopeRoot));
+              }
+            });
+
+    assertThat(contents).containsExactly("c", "b", "e", "a", "d", "script");
+    assertThat(roots).containsExactly("c", "b", "e", "a", "d", "script").inOrder();
+  }
+
+  public void testAppliesReportsInTheOrderOfTheScopes() {
+    final Compiler compiler = new Compiler();
+    final List<String> warnings = new ArrayList<>();
+    CompilerOptions options = new CompilerOptions();
+    options.setErrorHandler(
+        new ErrorHandler() {
+          @Override
+          public void report(CheckLevel level, JSError error) {
+            warnings.add(error.description);
+          }
+        });
+    compiler.initOptions(options);
+    StringBuilder code = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      code.append("function f" + i + "() {}");
+    }
+    Node script = compiler.parseTestCode(code.toString());
+    List<Node> scopeRoots = new ArrayList<>();
+    for (Node function : script.children()) {
+      scopeRoots.add(function);
+    }
+    compiler.getChangedScopeNodesForPass("test");
+
+    final DiagnosticType diagnostic = DiagnosticType.warning("JSC_TEST", "{0}");
+    new ParallelScopeRunner(compiler, 4)
+        .run(
+            scopeRoots,
+            new ParallelScopeRunner.ScopeWork() {
+              @Override
+              public void processContents(Node scopeRoot) {
+                // The last scopes finish first.
+                int index = Integer.parseInt(name(scopeRoot).substring(1));
+                sleep(50 - index);
+                compiler.report(JSError.make(scopeRoot, diagnostic, name(scopeRoot)));
+                compiler.reportChangeToEnclosingScope(scopeRoot.getLastChild());
+              }
+
+              @Override
+              public void processRoot(Node scopeRoot) {
+                // The reports of the contents of the wave are applied before the roots.
+                assertThat(warnings).hasSize(50);
+              }
+            });
+
+    for (int i = 0; i < 50; i++) {
+      assertThat(warnings.get(i)).isEqualTo("f" + i);
+    }
+    assertThat(compiler.getChangedScopeNodesForPass("test"))
+        .containsExactlyElementsIn(scopeRoots)
+        .inOrder();
+  }
+
+  public void testRethrowsExceptions() {
+    Compiler compiler = new Compiler();
+    Node script = compiler.parseTestCode("function a() {} function b() {}");
+    ParallelScopeRunner runner = new ParallelScopeRunner(compiler, 2);
+    try {
+      runner.run(
+          ImmutableList.of(script.getFirstChild(), script.getLastChild()),
+          new ParallelScopeRunner.ScopeWork() {
+            @Override
+            public void processContents(Node scopeRoot) {
+              throw new IllegalStateException("failed in " + name(scopeRoot));
+            }
+
+            @Override
+            public void processRoot(Node scopeRoot) {
+              fail();
+            }
+          });
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).startsWith("failed in ");
+    }
+  }
+
+  private static void sleep(int millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static String name(Node scopeRoot) {
+    return scopeRoot.isScript() ? "script" : scopeRoot.getFirstChild().getString();
+  }
+}
@@ -20,12 +20,23 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
 import com.google.javascript.jscomp.PerformanceTracker.Stats;
+import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 import junit.framework.TestCase;
 
@@ -102,6 +113,127 @@ public final class PerformanceTrackerTest extends TestCase {
     assertEquals(0, st.changes);
   }
 
+  public void testMemoryStats() {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    tracker.recordPassStart("allocating", true);
+    byte[][] garbage = new byte[64][];
+    for (int i = 0; i < garbage.length; i++) {
+      garbage[i] = new byte[1 << 16];
+    }
+    tracker.recordPassStop("allocating", 5);
+
+    Stats st = tracker.getStats().get("allocating");
+    assertThat(st.allocatedBytes).isAtLeast((long) garbage.length << 16);
+    assertThat(st.gcCount).isAtLeast(0L);
+    assertThat(st.peakHeapMem).isAtLeast(0);
+  }
+
+  public void testPeakHeapCoversTheHeapInUseDuringThePass() {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    tracker.recordPassStart("retaining", true);
+    byte[] retained = new byte[32 << 20];
+    tracker.recordPassStop("retaining", 5);
+
+    assertThat(retained).hasLength(32 << 20);
+    assertThat(tracker.getStats().get("retaining").peakHeapMem).isAtLeast(32);
+  }
+
+  public void testPeakHeapLeavesThePeaksOfTheMemoryPoolsAlone() {
+    List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+    List<Long> peaksBefore = new ArrayList<>();
+    for (MemoryPoolMXBean pool : pools) {
+      peaksBefore.add(pool.getPeakUsage() == null ? 0 : pool.getPeakUsage().getUsed());
+    }
+
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    tracker.recordPassStart("a", true);
+    tracker.recordPassStop("a", 5);
+    tracker.recordPassStart("b", true);
+    tracker.recordPassStop("b", 5);
+
+    for (int i = 0; i < pools.size(); i++) {
+      if (pools.get(i).getPeakUsage() != null) {
+        assertThat(pools.get(i).getPeakUsage().getUsed()).isAtLeast(peaksBefore.get(i));
+      }
+    }
+  }
+
+  public void testControlFlowGraphCacheStats() {
+    Compiler compiler = new Compiler();
+    CompilerOptions options = new CompilerOptions();
+    options.setCacheControlFlowGraphs(true);
+    compiler.initOptions(options);
+    Node function = IR.function(IR.name("f"), IR.paramList(), IR.block(IR.returnNode()));
+    IR.script(IR.exprResult(function));
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    tracker.setControlFlowGraphCache(compiler.getControlFlowGraphCache());
+
+    tracker.recordPassStart("passA", true);
+    ControlFlowAnalysis.getCfg(compiler, function);
+    tracker.recordPassStop("passA", 1);
+    tracker.recordPassStart("passB", true);
+    ControlFlowAnalysis.getCfg(compiler, function);
+    ControlFlowAnalysis.getCfg(compiler, function);
+    tracker.recordPassStop("passB", 1);
+
+    Stats passA = tracker.getStats().get("passA");
+    assertEquals(0, passA.cfgCacheHits);
+    assertEquals(1, passA.cfgCacheMisses);
+    Stats passB = tracker.getStats().get("passB");
+    assertEquals(2, passB.cfgCacheHits);
+    assertEquals(0, passB.cfgCacheMisses);
+  }
+
+  public void testJsonOutput() throws IOException {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    tracker.recordPassStart("passA", true);
+    tracker.recordPassStop("passA", 5);
+    tracker.recordPassStart("passA", true);
+    tracker.recordPassStop("passA", 7);
+
+    StringWriter writer = new StringWriter();
+    tracker.outputTracerJson(writer);
+    JsonObject json = new JsonParser().parse(writer.toString()).getAsJsonObject();
+    assertEquals(12, json.get("passesRuntime").getAsInt());
+    assertEquals(2, json.get("runs").getAsInt());
+    JsonArray summary = json.getAsJsonArray("summary");
+    assertEquals(1, summary.size());
+    JsonObject passA = summary.get(0).getAsJsonObject();
+    assertEquals("passA", passA.get("pass").getAsString());
+    assertEquals(2, passA.get("runs").getAsInt());
+    assertTrue(passA.has("allocatedBytes"));
+    assertTrue(passA.has("gcTime"));
+    assertTrue(passA.has("retainedHeapMem"));
+    assertEquals(2, json.getAsJsonArray("log").size());
+  }
+
+  public void testTraceEvents() throws IOException {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    tracker.setTraceEventRecorder(new TraceEventRecorder());
+    tracker.recordPassStart("passA", true);
+    tracker.recordPassStart("toSource", true);
+    tracker.recordPassStop("toSource", 1);
+    tracker.recordPassStop("passA", 5);
+
+    StringWriter writer = new StringWriter();
+    tracker.outputTraceEvents(writer);
+    JsonArray events =
+        new JsonParser().parse(writer.toString()).getAsJsonObject().getAsJsonArray("traceEvents");
+    List<String> slices = new ArrayList<>();
+    for (JsonElement event : events) {
+      if (event.getAsJsonObject().get("ph").getAsString().equals("X")) {
+        slices.add(event.getAsJsonObject().get("name").getAsString());
+      }
+    }
+    assertThat(slices).containsExactly("toSource", "passA").inOrder();
+  }
+
   public void testOutputFormat() {
     ByteArrayOutputStream output = new ByteArrayOutputStream();
     try (PrintStream outstream = new PrintStream(output)) {
@@ -116,6 +248,13 @@ public final class PerformanceTrackerTest extends TestCase {
         "Wall time\\(ms\\): [0-9]+",
         "Passes runtime\\(ms\\): [0-9]+",
         "Max mem usage \\(measured after each pass\\)\\(MB\\): -?[0-9]+",
+        "Max heap usage \\(peak during a pass\\)\\(MB\\): [0-9]+",
+        "Max retained heap \\(after GC during a pass\\)\\(MB\\): [0-9]+",
+        "Allocated by the compiler thread\\(bytes\\): [0-9]+",
+        "#GCs: [0-9]+",
+        "GC time\\(ms\\): [0-9]+",
+        "Control flow graph cache hits: [0-9]+",
+        "Control flow graph cache misses: [0-9]+",
         "#Runs: [0-9]+",
         "#Changing runs: [0-9]+",
         "#Loopable runs: [0-9]+",
@@ -133,11 +272,18 @@ public final class PerformanceTrackerTest extends TestCase {
         "Extern lines:   [0-9]+",
         "Extern sources: [0-9]+",
         "",
+        "Interned strings:",
+        "Lookups: [0-9]+",
+        "Duplicates dropped: [0-9]+",
+        "Estimated savings\\(bytes\\): [0-9]+",
+        "",
         "Summary:",
-        "pass,runtime,allocMem,runs,changingRuns,astReduction,reduction,gzReduction",
+        "pass,runtime,allocMem,runs,changingRuns,astReduction,reduction,gzReduction,"
+            + "allocatedBytes,gcs,gcTime,peakHeapMem,retainedHeapMem,cfgCacheHits,cfgCacheMisses",
         "",
         "Log:",
-        "pass,runtime,allocMem,codeChanged,astReduction,reduction,gzReduction,astSize,size,gzSize",
+        "pass,runtime,allocMem,codeChanged,astReduction,reduction,gzReduction,astSize,size,gzSize,"
+            + "allocatedBytes,gcs,gcTime,peakHeapMem,retainedHeapMem,cfgCacheHits,cfgCacheMisses",
         "",
         ".*"),
         Pattern.DOTALL);
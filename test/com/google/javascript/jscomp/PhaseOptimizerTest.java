@@ -17,8 +17,11 @@
 package com.google.javascript.jscomp;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
 import com.google.javascript.jscomp.PhaseOptimizer.Loop;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
@@ -90,6 +93,49 @@ public final class PhaseOptimizerTest extends TestCase {
     assertPasses(PassNames.PEEPHOLE_OPTIMIZATIONS);
   }
 
+  public void testCappedLoopReportsUnfinishedPasses() {
+    CompilerOptions options = compiler.getOptions();
+    options.optimizationLoopMaxIterations = 1;
+    optimizer = new PhaseOptimizer(compiler, tracker);
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, PassNames.PEEPHOLE_OPTIMIZATIONS, 2);
+    addLoopedPass(loop, PassNames.REMOVE_UNREACHABLE_CODE, 0);
+    optimizer.process(null, dummyRoot);
+    assertThat(compiler.getResult().unfinishedLoopPasses)
+        .containsExactly(PassNames.PEEPHOLE_OPTIMIZATIONS);
+  }
+
+  public void testTimeBudgetStopsLoop() {
+    compiler.getOptions().setOptimizationLoopTimeBudget(1);
+    optimizer = new PhaseOptimizer(compiler, tracker);
+    optimizer.addOneTimePass(
+        createPassFactory(
+            "slow",
+            new CompilerPass() {
+              @Override
+              public void process(Node externs, Node root) {
+                passesRun.add("slow");
+                sleepUninterruptibly(10, MILLISECONDS);
+              }
+            },
+            true));
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 3);
+    addLoopedPass(loop, "y", 0);
+    // Each pass of the loop still runs once.
+    assertPasses("slow", "x", "y");
+    assertThat(compiler.getResult().unfinishedLoopPasses).containsExactly("x");
+  }
+
+  public void testFixpointHasNoUnfinishedPasses() {
+    compiler.getOptions().setOptimizationLoopTimeBudget(60000);
+    optimizer = new PhaseOptimizer(compiler, tracker);
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 3);
+    assertPasses("x", "x", "x", "x");
+    assertThat(compiler.getResult().unfinishedLoopPasses).isEmpty();
+  }
+
   public void testNotInfiniteLoop() {
     Loop loop = optimizer.addFixedPointLoop();
     addLoopedPass(loop, "x", PhaseOptimizer.MAX_LOOPS - 2);
@@ -150,6 +196,80 @@ public final class PhaseOptimizerTest extends TestCase {
     assertPasses("a", "b", "c");
   }
 
+  public void testFusesAdjacentTraversalChecks() {
+    List<PassFactory> factories =
+        optimizer.fuseAdjacentChecks(
+            ImmutableList.of(
+                createPassFactory("a", 0, true),
+                createTraversalCheck("b", FeatureSet.latest()),
+                createTraversalCheck("c", FeatureSet.latest()),
+                createPassFactory("d", 0, true),
+                createTraversalCheck("e", FeatureSet.latest())));
+    assertThat(factories).hasSize(4);
+    assertEquals("b+c", factories.get(1).getName());
+    assertEquals("e", factories.get(3).getName());
+
+    optimizer.consume(factories);
+    assertPasses("a", "b", "c", "d", "e");
+  }
+
+  public void testFusedChecksRecordTheirOwnTime() {
+    optimizer.consume(
+        ImmutableList.<PassFactory>of(
+            createTraversalCheck("b", FeatureSet.latest()),
+            createTraversalCheck("c", FeatureSet.latest())));
+    assertPasses("b", "c");
+    assertThat(tracker.getStats().keySet()).containsExactly("b", "c", "b+c");
+    assertEquals(1, tracker.getStats().get("b").runs);
+    assertEquals(1, tracker.getStats().get("c").runs);
+  }
+
+  public void testFusedChecksShareTheHeapOfTheirPass() {
+    optimizer.consume(
+        ImmutableList.<PassFactory>of(
+            createTraversalCheck("b", FeatureSet.latest()),
+            createTraversalCheck("c", FeatureSet.latest())));
+    assertPasses("b", "c");
+    int allocMem = tracker.getStats().get("b+c").allocMem;
+    assertEquals(allocMem, tracker.getStats().get("b").allocMem);
+    assertEquals(allocMem, tracker.getStats().get("c").allocMem);
+  }
+
+  public void testFusedChecksSeeTheirOwnCallbacksAfterTheTraversal() {
+    final List<String> finished = new ArrayList<>();
+    PassFactory counter =
+        new PassFactory.TraversalCheckFactory("counter") {
+          @Override
+          protected List<NodeTraversal.Callback> createCallbacks(AbstractCompiler compiler) {
+            return ImmutableList.<NodeTraversal.Callback>of(new ScriptCounter());
+          }
+
+          @Override
+          protected void afterTraversal(
+              AbstractCompiler compiler, List<NodeTraversal.Callback> callbacks) {
+            finished.add("counter:" + ((ScriptCounter) Iterables.getOnlyElement(callbacks)).count);
+          }
+
+          @Override
+          protected FeatureSet featureSet() {
+            return FeatureSet.latest();
+          }
+        };
+    optimizer.consume(
+        ImmutableList.of(createTraversalCheck("b", FeatureSet.latest()), counter));
+    assertPasses("b");
+    assertThat(finished).containsExactly("counter:1");
+  }
+
+  public void testFusedChecksKeepTheirFeatureSets() {
+    compiler.setFeatureSet(FeatureSet.ES6);
+    optimizer.consume(
+        ImmutableList.<PassFactory>of(
+            createTraversalCheck("b", FeatureSet.ES5),
+            createTraversalCheck("c", FeatureSet.ES6)));
+    assertPasses("c");
+  }
+
   public void testDuplicateLoop() {
     Loop loop = optimizer.addFixedPointLoop();
     addLoopedPass(loop, "x", 1);
@@ -174,6 +294,62 @@ public final class PhaseOptimizerTest extends TestCase {
     assertEquals(PhaseOptimizer.OPTIMAL_ORDER, passesRun);
   }
 
+  public void testLoopRecordsProfile() {
+    LoopPassProfile profile = new LoopPassProfile();
+    compiler.getOptions().setOptimizationLoopProfile(profile);
+    optimizer = new PhaseOptimizer(compiler, tracker);
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 3);
+    addLoopedPass(loop, "y", 0);
+    optimizer.process(null, dummyRoot);
+    assertEquals(0.75, profile.getChangeRate("x"));
+    assertEquals(0.0, profile.getChangeRate("y"));
+    assertEquals(1.0, profile.getChangeRate("z"));
+  }
+
+  public void testProfileOrdersPasses() {
+    LoopPassProfile profile = new LoopPassProfile();
+    profile.recordRun("x", false, 1);
+    profile.recordRun("y", true, 1);
+    profile.recordRun(PassNames.PEEPHOLE_OPTIMIZATIONS, false, 1);
+    compiler.getOptions().setOptimizationLoopProfile(profile);
+    optimizer = new PhaseOptimizer(compiler, tracker);
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, PassNames.PEEPHOLE_OPTIMIZATIONS, 0);
+    addLoopedPass(loop, "x", 0);
+    addLoopedPass(loop, "y", 0);
+    // The passes of OPTIMAL_ORDER still run last.
+    assertPasses("y", "x", PassNames.PEEPHOLE_OPTIMIZATIONS);
+  }
+
+  public void testProfileStopsRepeatingDormantPasses() {
+    LoopPassProfile profile = new LoopPassProfile();
+    for (int i = 0; i < LoopPassProfile.MIN_RUNS_TO_BE_DORMANT; i++) {
+      profile.recordRun("x", false, 1);
+      profile.recordRun("y", true, 1);
+    }
+    compiler.getOptions().setOptimizationLoopProfile(profile);
+    optimizer = new PhaseOptimizer(compiler, tracker);
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 0);
+    addLoopedPass(loop, "y", 3);
+    // Without the profile, x would run again after y is done.
+    assertPasses("y", "x", "y", "y", "y");
+  }
+
+  public void testProfileKeepsRunningDormantPassesThatChangeTheCode() {
+    LoopPassProfile profile = new LoopPassProfile();
+    for (int i = 0; i < LoopPassProfile.MIN_RUNS_TO_BE_DORMANT; i++) {
+      profile.recordRun("x", false, 1);
+    }
+    compiler.getOptions().setOptimizationLoopProfile(profile);
+    optimizer = new PhaseOptimizer(compiler, tracker);
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 2);
+    assertPasses("x", "x", "x");
+    assertFalse(profile.isDormant("x"));
+  }
+
   public void testProgress() {
     final List<Double> progressList = new ArrayList<>();
     compiler = new Compiler() {
@@ -231,6 +407,41 @@ public final class PhaseOptimizerTest extends TestCase {
     };
   }
 
+  /** Creates a traversal check that records its name when it visits the script. */
+  /** Counts the scripts that it visits. */
+  private static final class ScriptCounter extends NodeTraversal.AbstractPostOrderCallback {
+    int count = 0;
+
+    @Override
+    public void visit(NodeTraversal t, Node n, Node parent) {
+      if (n.isScript()) {
+        count++;
+      }
+    }
+  }
+
+  private PassFactory createTraversalCheck(final String name, final FeatureSet featureSet) {
+    return new PassFactory.TraversalCheckFactory(name) {
+      @Override
+      protected List<NodeTraversal.Callback> createCallbacks(AbstractCompiler compiler) {
+        return ImmutableList.<NodeTraversal.Callback>of(
+            new NodeTraversal.AbstractPostOrderCallback() {
+              @Override
+              public void visit(NodeTraversal t, Node n, Node parent) {
+                if (n.isScript()) {
+                  passesRun.add(name);
+                }
+              }
+            });
+      }
+
+      @Override
+      protected FeatureSet featureSet() {
+        return featureSet;
+      }
+    };
+  }
+
   private CompilerPass createPass(final String name, int numChanges) {
     final PhaseOptimizerTest self = this;
     final int[] numChangesClosure = new int[] {numChanges};
@@ -18,6 +18,7 @@ package com.google.javascript.jscomp;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.javascript.rhino.Node;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -54,6 +55,25 @@ public final class SourceFileTest extends TestCase {
     assertThat(sf.getLineOffset(3)).isEqualTo(14);
   }
 
+  public void testLinesUseParserLineTerminators() throws Exception {
+    SourceFile sf = SourceFile.fromCode("test.js", "'1';\r\n'2';\r'3';\u2028'4';\n");
+    assertThat(sf.getNumLines()).isEqualTo(5);
+    assertThat(sf.getLineOffset(2)).isEqualTo(6);
+    assertThat(sf.getLineOffset(3)).isEqualTo(11);
+    assertThat(sf.getLineOffset(4)).isEqualTo(16);
+    assertThat(sf.getLineOfOffset(12)).isEqualTo(3);
+    assertThat(sf.getColumnOfOffset(12)).isEqualTo(1);
+    assertThat(sf.getLine(1)).isEqualTo("'1';");
+    assertThat(sf.getLine(2)).isEqualTo("'2';");
+    assertThat(sf.getLine(5)).isNull();
+
+    Region region = sf.getRegion(1);
+    assertThat(region.getBeginningLineNumber()).isEqualTo(1);
+    assertThat(region.getEndingLineNumber()).isEqualTo(4);
+    assertThat(region.getSourceExcerpt()).isEqualTo("'1';\r\n'2';\r'3';\u2028'4';");
+    assertThat(sf.getRegion(5)).isNull();
+  }
+
   public void testCachingFile() throws IOException {
     // Setup environment.
     String expectedContent = "// content content content";
@@ -73,6 +93,57 @@ public final class SourceFileTest extends TestCase {
     assertEquals(newExpectedContent, sourceFile.getCode());
   }
 
+  public void testMappedAsciiFile() throws IOException {
+    String content = largeContent("var x = 1; // ascii\n");
+    Path jsFile = Files.createTempFile("test", ".js");
+    Files.write(jsFile, content.getBytes(StandardCharsets.UTF_8));
+    SourceFile sourceFile = SourceFile.fromPath(jsFile, StandardCharsets.UTF_8);
+
+    CharSequence code = sourceFile.getCodeCharSequence();
+    assertThat(code).isNotInstanceOf(String.class);
+    assertEquals(content, code.toString());
+    assertEquals("var x", code.subSequence(0, 5).toString());
+    // The mapping is kept, but the code is not cached as a String.
+    assertSame(code, sourceFile.getCodeCharSequence());
+    assertFalse(sourceFile.hasSourceInMemory());
+    assertEquals(content, sourceFile.getCode());
+
+    sourceFile.clearCachedSource();
+    assertNotSame(code, sourceFile.getCodeCharSequence());
+  }
+
+  public void testMappedNonAsciiFileWithByteOrderMark() throws IOException {
+    String content = largeContent("var x = '\u00e9\u4e2d'; // not ascii\n");
+    Path jsFile = Files.createTempFile("test", ".js");
+    Files.write(jsFile, ("\uFEFF" + content).getBytes(StandardCharsets.UTF_8));
+    SourceFile sourceFile = SourceFile.fromPath(jsFile, StandardCharsets.UTF_8);
+
+    assertEquals(content, sourceFile.getCodeCharSequence().toString());
+    assertEquals(content, sourceFile.getCode());
+  }
+
+  public void testParseMappedFile() throws IOException {
+    String content = largeContent("var x = 1;\n");
+    Path jsFile = Files.createTempFile("test", ".js");
+    Files.write(jsFile, content.getBytes(StandardCharsets.UTF_8));
+    SourceFile sourceFile = SourceFile.fromPath(jsFile, StandardCharsets.UTF_8);
+
+    Compiler compiler = new Compiler();
+    compiler.initOptions(new CompilerOptions());
+    Node root = new JsAst(sourceFile).getAstRoot(compiler);
+    assertEquals(
+        content.length() / "var x = 1;\n".length(), root.getChildCount());
+    assertEquals(2, root.getSecondChild().getLineno());
+  }
+
+  private static String largeContent(String line) {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < SourceFile.OnDisk.MAPPED_READ_THRESHOLD) {
+      sb.append(line);
+    }
+    return sb.toString();
+  }
+
   public void testCachingZipFile() throws IOException {
     // Setup environment.
     String expectedContent = "// content content content";
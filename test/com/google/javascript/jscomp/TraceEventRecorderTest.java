@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+
+/** Tests for {@link TraceEventRecorder}. */
+public final class TraceEventRecorderTest extends TestCase {
+
+  public void testSlicesAndCountersOnSeveralThreads() throws Exception {
+    final TraceEventRecorder recorder = new TraceEventRecorder();
+    long start = recorder.now();
+    Thread worker =
+        new Thread("worker") {
+          @Override
+          public void run() {
+            recorder.addSlice("work", "parse", recorder.now());
+          }
+        };
+    worker.start();
+    worker.join();
+    recorder.addCounter("AST size (#nodes)", 42);
+    recorder.addSlice("main", "pass", start);
+    assertEquals(3, recorder.getEventCount());
+
+    JsonArray events = write(recorder);
+    Map<String, JsonObject> eventsByName = new HashMap<>();
+    Map<Long, String> threadNames = new HashMap<>();
+    for (JsonElement element : events) {
+      JsonObject event = element.getAsJsonObject();
+      if (event.get("ph").getAsString().equals("M")) {
+        threadNames.put(
+            event.get("tid").getAsLong(),
+            event.getAsJsonObject("args").get("name").getAsString());
+      } else {
+        eventsByName.put(event.get("name").getAsString(), event);
+      }
+    }
+
+    JsonObject work = eventsByName.get("work");
+    assertEquals("X", work.get("ph").getAsString());
+    assertEquals("worker", threadNames.get(work.get("tid").getAsLong()));
+
+    JsonObject main = eventsByName.get("main");
+    assertEquals("pass", main.get("cat").getAsString());
+    assertEquals(start, main.get("ts").getAsLong());
+    assertThat(main.get("dur").getAsLong()).isAtLeast(0L);
+    assertThat(main.get("tid").getAsLong()).isNotEqualTo(work.get("tid").getAsLong());
+
+    JsonObject counter = eventsByName.get("AST size (#nodes)");
+    assertEquals("C", counter.get("ph").getAsString());
+    assertEquals(42, counter.getAsJsonObject("args").get("value").getAsInt());
+  }
+
+  private static JsonArray write(TraceEventRecorder recorder) throws IOException {
+    StringWriter writer = new StringWriter();
+    recorder.write(writer);
+    JsonObject trace = new JsonParser().parse(writer.toString()).getAsJsonObject();
+    return trace.getAsJsonArray("traceEvents");
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link ChampPersistentMap}. */
+public final class ChampPersistentMapTest extends TestCase {
+
+  /** A key whose hash code is given, to create collisions. */
+  private static final class Key {
+    private final int hash;
+    private final int id;
+
+    Key(int hash, int id) {
+      this.hash = hash;
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).hash == hash && ((Key) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return hash + "#" + id;
+    }
+  }
+
+  public void testEmpty() {
+    PersistentMap<String, Integer> map = ChampPersistentMap.create();
+    assertThat(map).isEmpty();
+    assertNull(map.get("a"));
+    assertSame(map, map.without("a"));
+  }
+
+  public void testWithAndWithout() {
+    PersistentMap<String, Integer> empty = ChampPersistentMap.create();
+    PersistentMap<String, Integer> map = empty.with("a", 1).with("b", 2);
+    assertThat(map).containsExactly("a", 1, "b", 2);
+    assertThat(map.with("a", 3)).containsExactly("a", 3, "b", 2);
+    assertThat(map.without("a")).containsExactly("b", 2);
+    assertSame(empty, map.without("a").without("b"));
+    // The original map is unchanged.
+    assertThat(map).containsExactly("a", 1, "b", 2);
+  }
+
+  public void testNullKeysAndValues() {
+    PersistentMap<String, Integer> map =
+        ChampPersistentMap.<String, Integer>create().with(null, 1).with("a", null);
+    assertThat(map).containsExactly(null, 1, "a", null);
+    assertTrue(map.containsKey("a"));
+    assertThat(map.without(null)).containsExactly("a", null);
+  }
+
+  public void testWithSameValueReturnsSameMap() {
+    Integer value = 1000;
+    PersistentMap<String, Integer> map =
+        ChampPersistentMap.<String, Integer>create().with("a", value);
+    assertSame(map, map.with("a", value));
+  }
+
+  public void testCollisions() {
+    PersistentMap<Key, Integer> map = ChampPersistentMap.create();
+    for (int i = 0; i < 5; i++) {
+      map = map.with(new Key(42, i), i);
+    }
+    map = map.with(new Key(43, 0), 5);
+    assertThat(map).hasSize(6);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Integer.valueOf(i), map.get(new Key(42, i)));
+    }
+    for (int i = 0; i < 4; i++) {
+      map = map.without(new Key(42, i));
+    }
+    assertThat(map).containsExactly(new Key(42, 4), 4, new Key(43, 0), 5);
+  }
+
+  public void testEqualsIgnoresHistory() {
+    PersistentMap<String, Integer> map1 = ChampPersistentMap.create();
+    PersistentMap<String, Integer> map2 = ChampPersistentMap.create();
+    for (int i = 0; i < 100; i++) {
+      map1 = map1.with("k" + i, i);
+      map2 = map2.with("k" + (99 - i), 99 - i);
+    }
+    map2 = map2.with("extra", 0).without("extra");
+    assertEquals(map1, map2);
+    assertEquals(map1.hashCode(), map2.hashCode());
+    assertEquals(new HashMap<>(map1), map2);
+    assertFalse(map1.equals(map2.with("k0", 1)));
+  }
+
+  public void testEntriesNotSharedWith() {
+    PersistentMap<String, Integer> base = ChampPersistentMap.create();
+    for (int i = 0; i < 1000; i++) {
+      base = base.with("k" + i, i);
+    }
+    PersistentMap<String, Integer> map1 = base.with("k1", -1).with("new", 0);
+    PersistentMap<String, Integer> map2 = base.with("k2", -2).without("k3");
+
+    Set<String> keys = new HashSet<>();
+    for (Map.Entry<String, Integer> entry : map1.entriesNotSharedWith(map2)) {
+      keys.add(entry.getKey());
+      assertEquals(map1.get(entry.getKey()), entry.getValue());
+    }
+    // Only the changed entries must be returned; the others only if they share a node with them.
+    assertThat(keys).containsAllOf("k1", "k2", "new");
+    assertThat(keys.size()).isLessThan(100);
+    assertThat(map1.entriesNotSharedWith(map1)).isEmpty();
+  }
+
+  public void testRandomOperationsAgainstHashMap() {
+    Random random = new Random(0);
+    Map<Key, Integer> expected = new HashMap<>();
+    PersistentMap<Key, Integer> map = ChampPersistentMap.create();
+    for (int i = 0; i < 20000; i++) {
+      // Few hash codes with many bits in common, to get deep tries and collisions.
+      Key key = new Key(random.nextInt(64) << random.nextInt(28), random.nextInt(3));
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.without(key);
+      } else {
+        expected.put(key, i);
+        map = map.with(key, i);
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    assertEquals(expected, map);
+    assertEquals(expected, new HashMap<>(map));
+    for (Key key : expected.keySet()) {
+      map = map.without(key);
+    }
+    assertThat(map).isEmpty();
+  }
+}
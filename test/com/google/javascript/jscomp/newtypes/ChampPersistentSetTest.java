@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link ChampPersistentSet}. */
+public final class ChampPersistentSetTest extends TestCase {
+
+  public void testWithAndWithout() {
+    PersistentSet<String> empty = ChampPersistentSet.create();
+    PersistentSet<String> set = empty.with("a").with("b");
+    assertThat(set).containsExactly("a", "b");
+    assertSame(set, set.with("a"));
+    assertThat(set.without("a")).containsExactly("b");
+    assertSame(empty, set.without("a").without("b"));
+    assertSame(set, set.without("c"));
+  }
+
+  public void testEquals() {
+    PersistentSet<String> set1 = ChampPersistentSet.<String>create().with("a").with("b");
+    PersistentSet<String> set2 = ChampPersistentSet.<String>create().with("b").with("a");
+    assertEquals(set1, set2);
+    assertEquals(ImmutableSet.of("a", "b"), set1);
+    assertEquals(set1.hashCode(), ImmutableSet.of("a", "b").hashCode());
+    assertFalse(set1.equals(set2.with("c")));
+  }
+
+  public void testRandomOperationsAgainstHashSet() {
+    Random random = new Random(0);
+    Set<Integer> expected = new HashSet<>();
+    PersistentSet<Integer> set = ChampPersistentSet.create();
+    for (int i = 0; i < 10000; i++) {
+      Integer element = random.nextInt(2000) << random.nextInt(20);
+      if (random.nextBoolean()) {
+        expected.remove(element);
+        set = set.without(element);
+      } else {
+        expected.add(element);
+        set = set.with(element);
+      }
+    }
+    assertEquals(expected, set);
+    assertEquals(expected, new HashSet<>(set));
+  }
+}
@@ -29,13 +29,17 @@ import com.google.javascript.jscomp.parsing.Config.LanguageMode;
 import com.google.javascript.jscomp.parsing.ParserRunner.ParseResult;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet.Feature;
+import com.google.javascript.rhino.ErrorReporter;
 import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.LazyJSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.SimpleSourceFile;
 import com.google.javascript.rhino.StaticSourceFile;
 import com.google.javascript.rhino.Token;
 import com.google.javascript.rhino.testing.BaseJSTypeTestCase;
 import com.google.javascript.rhino.testing.TestErrorReporter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public final class ParserTest extends BaseJSTypeTestCase {
@@ -907,6 +911,124 @@ public final class ParserTest extends BaseJSTypeTestCase {
     assertThat(info.getType().isVarArgs()).isTrue();
   }
 
+  public void testLazyJSDoc() {
+    TestErrorReporter reporter = TestErrorReporter.forNoExpectedReports();
+    ParseResult result =
+        parseJsDocLazily(
+            "/** @type {number} */ var a; function f(/** string */ x) {}"
+                + " /** @type {Array<number} */ var b = (/** @type {?} */ (c));",
+            reporter);
+    Node script = result.ast;
+
+    JSDocInfo varInfo = script.getFirstChild().getJSDocInfo();
+    assertTypeEquals(NUMBER_TYPE, varInfo.getType());
+    JSDocInfo paramInfo = script.getSecondChild().getSecondChild().getFirstChild().getJSDocInfo();
+    assertTypeEquals(STRING_TYPE, paramInfo.getType());
+    // Casts are still created while parsing.
+    assertNode(script.getLastChild().getFirstFirstChild()).hasType(Token.CAST);
+
+    // Reading the JSDoc does not report its warnings.
+    assertThat(script.getLastChild().getJSDocInfo()).isNull();
+    assertThat(result.lazyJsDocs).hasSize(3);
+
+    reporter.setWarnings(new String[] {MISSING_GT_MESSAGE});
+    for (LazyJSDocInfo lazyJsDoc : result.lazyJsDocs) {
+      lazyJsDoc.reportDiagnostics();
+    }
+    reporter.assertHasEncounteredAllWarnings();
+    // But only once.
+    for (LazyJSDocInfo lazyJsDoc : result.lazyJsDocs) {
+      lazyJsDoc.reportDiagnostics();
+    }
+  }
+
+  public void testLazyJSDocReportsTheSameWarningsAsEagerParsing() {
+    String source =
+        Joiner.on('\n')
+            .join(
+                "/** @type {Array<number} */ var a;",
+                "/** @param {string x */ function f(/** {number */ y) {",
+                "  /** @return {?} @return {?} */ function g() {}",
+                "}",
+                "/** @type {number} @type {string} */ var b;",
+                "/** @const {!Object */ var c = (/** @type {Foo} */ (d));",
+                "/** @private @public */ var e;");
+    List<String> eager = new ArrayList<>();
+    ParserRunner.parse(
+        new SimpleSourceFile("input", false),
+        source,
+        createConfig(false),
+        newRecordingReporter(eager));
+
+    List<String> lazy = new ArrayList<>();
+    ParseResult result =
+        ParserRunner.parse(
+            new SimpleSourceFile("input", false),
+            source,
+            createConfig(true),
+            newRecordingReporter(lazy));
+    // Read the comments out of order, as passes would.
+    result.ast.getLastChild().getJSDocInfo();
+    result.ast.getSecondChild().getLastChild().getFirstChild().getJSDocInfo();
+    for (LazyJSDocInfo lazyJsDoc : result.lazyJsDocs) {
+      lazyJsDoc.reportDiagnostics();
+    }
+
+    assertThat(eager).isNotEmpty();
+    assertThat(lazy).containsExactlyElementsIn(eager);
+    // The warnings of the lazily parsed comments come in source order.
+    List<String> sorted = new ArrayList<>(lazy);
+    Collections.sort(sorted);
+    assertThat(lazy).containsExactlyElementsIn(sorted).inOrder();
+  }
+
+  public void testLazyJSDocParsesFileLevelCommentsEagerly() {
+    TestErrorReporter reporter = TestErrorReporter.forNoExpectedReports();
+    Node script =
+        parseJsDocLazily("/** @fileoverview @suppress {checkTypes} */ var a;", reporter).ast;
+
+    assertThat(script.getJSDocInfo()).isNotNull();
+    assertThat(script.getJSDocInfo().getSuppressions()).containsExactly("checkTypes");
+    assertThat(script.getFirstChild().getJSDocInfo()).isNull();
+
+    script = parseJsDocLazily("/** @license MIT */ var a;", reporter).ast;
+    assertThat(script.getJSDocInfo().getLicense()).isEqualTo(" MIT ");
+  }
+
+  private ParseResult parseJsDocLazily(String source, TestErrorReporter reporter) {
+    ParseResult result =
+        ParserRunner.parse(
+            new SimpleSourceFile("input", false), source, createConfig(true), reporter);
+    reporter.assertHasEncounteredAllErrors();
+    return result;
+  }
+
+  private Config createConfig(boolean parseJsDocLazily) {
+    return ParserRunner.createConfig(
+        mode,
+        Config.JsDocParsing.TYPES_ONLY,
+        Config.RunMode.STOP_AFTER_ERROR,
+        null,
+        true,
+        strictMode,
+        parseJsDocLazily);
+  }
+
+  /** Returns a reporter that records the warnings as "line:column message". */
+  private static ErrorReporter newRecordingReporter(final List<String> warnings) {
+    return new ErrorReporter() {
+      @Override
+      public void warning(String message, String sourceName, int line, int lineOffset) {
+        warnings.add(String.format("%03d:%03d %s", line, lineOffset, message));
+      }
+
+      @Override
+      public void error(String message, String sourceName, int line, int lineOffset) {
+        fail(message);
+      }
+    };
+  }
+
   public void testIncorrectJSDocDoesNotAlterJSParsing1() throws Exception {
     assertNodeEquality(
         parse("var a = [1,2]"),